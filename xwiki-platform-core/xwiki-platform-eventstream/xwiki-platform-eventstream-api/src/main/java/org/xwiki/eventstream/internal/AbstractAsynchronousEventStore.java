@@ -29,6 +29,7 @@
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -183,6 +184,9 @@ public EventStoreTaskType getType()
     @Inject
     private Execution execution;
 
+    @Inject
+    private EventStreamConfiguration configuration;
+
     private Thread thread;
 
     private BlockingQueue<EventStoreTask<?, ?>> queue;
@@ -193,6 +197,10 @@ public EventStoreTaskType getType()
 
     private boolean disposed;
 
+    private int batchSize;
+
+    private long batchMaxLatency;
+
     /**
      * Give an estimation of the number of events that are going to be added to the store. Can be negative if there is
      * more deletes than add.
@@ -324,24 +332,22 @@ private void run()
 
             processTasks(firstTask);
         }
+
+        // Don't lose what was queued before the store was disposed
+        for (EventStoreTask<?, ?> task = this.queue.poll(); task != null; task = this.queue.poll()) {
+            processTasks(task);
+        }
     }
 
     private void processTasks(EventStoreTask<?, ?> firstTask)
     {
+        List<EventStoreTask<?, ?>> tasks = getBatch(firstTask);
+
         this.execution.setContext(new ExecutionContext());
 
-        List<EventStoreTask<?, ?>> tasks = new ArrayList<>();
         try {
-            for (EventStoreTask<?, ?> task = firstTask; task != null; task = this.queue.poll()) {
-                if (task != EventStoreTask.STOP) {
-                    try {
-                        processTask(task);
-                    } catch (Exception e) {
-                        task.future.completeExceptionally(e);
-                    }
-
-                    tasks.add(task);
-                }
+            for (int index = 0; index < tasks.size();) {
+                index = processTasks(tasks, index);
             }
         } finally {
             afterTasks(tasks);
@@ -350,6 +356,102 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
         }
     }
 
+    private List<EventStoreTask<?, ?>> getBatch(EventStoreTask<?, ?> firstTask)
+    {
+        List<EventStoreTask<?, ?>> tasks = new ArrayList<>();
+
+        long deadline = System.currentTimeMillis() + this.batchMaxLatency;
+        for (EventStoreTask<?, ?> task = firstTask; task != null; task = pollTask(deadline)) {
+            if (task == EventStoreTask.STOP) {
+                break;
+            }
+
+            tasks.add(task);
+
+            if (this.batchSize > 0 && tasks.size() >= this.batchSize) {
+                break;
+            }
+        }
+
+        return tasks;
+    }
+
+    private EventStoreTask<?, ?> pollTask(long deadline)
+    {
+        EventStoreTask<?, ?> task = this.queue.poll();
+
+        if (task == null && !this.disposed) {
+            // Wait a bit for more tasks to send bigger batches to the store
+            long timeout = deadline - System.currentTimeMillis();
+            if (timeout > 0) {
+                try {
+                    task = this.queue.poll(timeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        return task;
+    }
+
+    private int processTasks(List<EventStoreTask<?, ?>> tasks, int index)
+    {
+        EventStoreTask<?, ?> task = tasks.get(index);
+
+        if (task.type == EventStoreTaskType.SAVE_EVENT) {
+            // Save together the consecutive events
+            int end = index + 1;
+            while (end < tasks.size() && tasks.get(end).type == EventStoreTaskType.SAVE_EVENT) {
+                ++end;
+            }
+
+            if (end - index > 1) {
+                processSaveEventTasks(tasks.subList(index, end));
+
+                return end;
+            }
+        }
+
+        processSingleTask(task);
+
+        return index + 1;
+    }
+
+    private void processSingleTask(EventStoreTask<?, ?> task)
+    {
+        try {
+            processTask(task);
+        } catch (Exception e) {
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    private void processSaveEventTasks(List<EventStoreTask<?, ?>> tasks)
+    {
+        List<Event> events = new ArrayList<>(tasks.size());
+        for (EventStoreTask<?, ?> task : tasks) {
+            events.add((Event) task.input);
+        }
+
+        List<Event> savedEvents;
+        try {
+            savedEvents = syncSaveEvents(events);
+        } catch (Exception e) {
+            this.logger.warn("Failed to save a batch of [{}] events in event store [{}], saving them one by one: {}",
+                tasks.size(), this.descriptor.getRoleHint(), e.getMessage());
+
+            // Find which events are causing the failure
+            tasks.forEach(this::processSingleTask);
+
+            return;
+        }
+
+        for (int i = 0; i < tasks.size(); ++i) {
+            processTaskOutput((EventStoreTask<Event, Event>) tasks.get(i), savedEvents.get(i));
+        }
+    }
+
     private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamException
     {
         switch (task.type) {
@@ -482,6 +584,25 @@ private <O, I> void complete(EventStoreTask<O, I> task, O output)
      */
     protected abstract Event syncSaveEvent(Event event) throws EventStreamException;
 
+    /**
+     * Save several events at once. The default implementation calls {@link #syncSaveEvent(Event)} for each event but
+     * stores are encouraged to override it with something more efficient.
+     * 
+     * @param events the events to save
+     * @return the saved events, in the same order
+     * @throws EventStreamException when failing to save the events
+     * @since 12.10
+     */
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        List<Event> savedEvents = new ArrayList<>(events.size());
+        for (Event event : events) {
+            savedEvents.add(syncSaveEvent(event));
+        }
+
+        return savedEvents;
+    }
+
     /**
      * @param event the event to save update
      * @since 12.6
@@ -530,6 +651,9 @@ protected void initialize(int queueCapacity, boolean notifyEach, boolean notifyA
         this.notifyEach = notifyEach;
         this.notifyAll = !notifyEach && notifyAll;
 
+        this.batchSize = this.configuration.getEventStoreBatchSize();
+        this.batchMaxLatency = this.configuration.getEventStoreBatchMaxLatency();
+
         this.queue = new LinkedBlockingQueue<>(queueCapacity);
 
         this.thread = new Thread(this::run);
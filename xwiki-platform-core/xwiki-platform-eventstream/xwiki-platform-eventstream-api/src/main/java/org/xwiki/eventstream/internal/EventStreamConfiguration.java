@@ -54,4 +54,24 @@ public boolean isEventStoreEnabled()
     {
         return this.configuration.getProperty("eventstream.store.enabled", true);
     }
+
+    /**
+     * @return the maximum number of tasks (save, delete, etc.) handled at once by the asynchronous {@link EventStore}
+     *         implementations, 0 or less for no limit
+     * @since 12.10
+     */
+    public int getEventStoreBatchSize()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.size", 100);
+    }
+
+    /**
+     * @return the maximum time (in milliseconds) to wait for more tasks when the queue of the asynchronous
+     *         {@link EventStore} implementations is empty before handling the current batch
+     * @since 12.10
+     */
+    public long getEventStoreBatchMaxLatency()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.maxLatency", 0L);
+    }
 }
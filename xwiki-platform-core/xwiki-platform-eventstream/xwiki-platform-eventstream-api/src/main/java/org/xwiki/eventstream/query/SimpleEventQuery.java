@@ -351,6 +351,28 @@ public SimpleEventQuery after(Date date)
         return this;
     }
 
+    /**
+     * Select the events located after the passed event when sorting them by date and then by id in the passed order.
+     * Combined with sorts on {@link Event#FIELD_DATE} and {@link Event#FIELD_ID} in the same order it allows paginating
+     * the results based on the last returned event instead of an offset, which remains cheap whatever the page.
+     *
+     * @param event the last event of the previous page
+     * @param order the order in which the events are sorted
+     * @return this {@link SimpleEventQuery}
+     * @since 12.10
+     */
+    public SimpleEventQuery after(Event event, Order order)
+    {
+        CompareType type = order == Order.ASC ? CompareType.GREATER : CompareType.LESS;
+
+        addCondition(new GroupQueryCondition(true, this.nextReversed,
+            new CompareQueryCondition(Event.FIELD_DATE, event.getDate(), type),
+            new GroupQueryCondition(false, false, new CompareQueryCondition(Event.FIELD_DATE, event.getDate(),
+                CompareType.EQUALS), new CompareQueryCondition(Event.FIELD_ID, event.getId(), type))));
+
+        return this;
+    }
+
     /**
      * @param property the name of the property
      * @param values the values to compare to the property
@@ -23,6 +23,7 @@
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.query.CompareQueryCondition;
 import org.xwiki.eventstream.query.CompareQueryCondition.CompareType;
 import org.xwiki.eventstream.query.GroupQueryCondition;
@@ -127,6 +128,34 @@ void before()
         assertEquals(CompareType.LESS, ((CompareQueryCondition) query.getConditions().get(0)).getType());
     }
 
+    @Test
+    void afterEvent()
+    {
+        Event event = new DefaultEvent();
+        event.setId("id");
+        event.setDate(new Date());
+
+        SimpleEventQuery query = new SimpleEventQuery();
+
+        query.after(event, Order.DESC);
+
+        assertEquals(1, query.getConditions().size());
+        assertEquals(new GroupQueryCondition(true, false,
+            new CompareQueryCondition(Event.FIELD_DATE, event.getDate(), CompareType.LESS),
+            new GroupQueryCondition(false, false,
+                new CompareQueryCondition(Event.FIELD_DATE, event.getDate(), CompareType.EQUALS),
+                new CompareQueryCondition(Event.FIELD_ID, "id", CompareType.LESS))),
+            query.getConditions().get(0));
+
+        query = new SimpleEventQuery();
+
+        query.after(event, Order.ASC);
+
+        assertEquals(CompareType.GREATER,
+            ((CompareQueryCondition) ((GroupQueryCondition) query.getConditions().get(0)).getConditions().get(0))
+                .getType());
+    }
+
     @Test
     void status()
     {
@@ -19,7 +19,9 @@
  */
 package org.xwiki.eventstream.internal;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -35,9 +37,11 @@
 import org.xwiki.eventstream.EventSearchResult;
 import org.xwiki.eventstream.EventStatus;
 import org.xwiki.eventstream.EventStreamException;
+import org.xwiki.test.annotation.BeforeComponent;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectComponentManager;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
 import org.xwiki.test.mockito.MockitoComponentManager;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -45,6 +49,7 @@
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
 
 /**
  * Validate {@link AbstractAsynchronousEventStore}.
@@ -81,6 +86,8 @@ EventEntry getEventEntry(String eventId, boolean create)
 
         ReentrantLock lock = new ReentrantLock();
 
+        List<Integer> batches = new ArrayList<>();
+
         @Override
         public Optional<Event> getEvent(String eventId) throws EventStreamException
         {
@@ -151,6 +158,14 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
             }
         }
 
+        @Override
+        protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+        {
+            this.batches.add(events.size());
+
+            return super.syncSaveEvents(events);
+        }
+
         @Override
         protected Event syncPrefilterEvent(Event event) throws EventStreamException
         {
@@ -254,9 +269,18 @@ protected Optional<Event> syncDeleteEvent(Event event) throws EventStreamExcepti
     @InjectComponentManager
     private MockitoComponentManager componentManager;
 
+    @MockComponent
+    private EventStreamConfiguration configuration;
+
     @InjectMockComponents
     private TestAbstractAsynchronousEventStore store;
 
+    @BeforeComponent("batch")
+    void beforeBatch()
+    {
+        when(this.configuration.getEventStoreBatchSize()).thenReturn(2);
+    }
+
     private DefaultEvent event(String id)
     {
         DefaultEvent event = new DefaultEvent();
@@ -421,4 +445,35 @@ void prefilter() throws InterruptedException, ExecutionException, EventStreamExc
         assertTrue(this.store.getEvent(event1.getId()).get().isPrefiltered());
         assertFalse(this.store.getEvent(event2.getId()).get().isPrefiltered());
     }
+
+    @Test
+    void batch() throws InterruptedException, ExecutionException, EventStreamException
+    {
+        // Lock and wait for the store thread to be blocked on the first event
+        this.store.lock.lock();
+
+        try {
+            this.store.saveEvent(event("id0"));
+            while (!this.store.lock.hasQueuedThreads()) {
+                Thread.sleep(1);
+            }
+
+            this.store.saveEvent(event("id1"));
+            this.store.saveEvent(event("id2"));
+            this.store.saveEvent(event("id3"));
+            this.store.deleteEvent("id0");
+            this.store.saveEvent(event("id4"));
+        } finally {
+            this.store.lock.unlock();
+        }
+
+        this.store.saveEvent(event("id5")).get();
+
+        // The consecutive saves are sent together without exceeding the batch size
+        assertEquals(2, this.store.batches.get(0).intValue());
+        assertFalse(this.store.getEvent("id0").isPresent());
+        for (int i = 1; i < 6; ++i) {
+            assertTrue(this.store.getEvent("id" + i).isPresent());
+        }
+    }
 }
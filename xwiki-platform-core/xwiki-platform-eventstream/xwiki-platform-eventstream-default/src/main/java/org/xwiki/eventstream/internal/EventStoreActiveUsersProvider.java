@@ -0,0 +1,106 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.eventstream.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventSearchResult;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.eventstream.query.SimpleEventQuery;
+import org.xwiki.eventstream.query.SortableEventQuery.SortClause.Order;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.security.authorization.cache.ActiveUsersProvider;
+
+/**
+ * Find the most recently active users in the events of the event store.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component
+@Singleton
+public class EventStoreActiveUsersProvider implements ActiveUsersProvider
+{
+    private static final long EVENT_BATCH_SIZE = 100;
+
+    /**
+     * The maximum number of events to go through (relative to the number of users to find).
+     */
+    private static final int EVENT_SCAN_FACTOR = 50;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public Collection<DocumentReference> getActiveUsers(int maxUsers)
+    {
+        // The event store is optional
+        if (maxUsers <= 0 || !this.componentManager.hasComponent(EventStore.class)) {
+            return Collections.emptySet();
+        }
+
+        Set<DocumentReference> users = new LinkedHashSet<>();
+
+        try {
+            EventStore eventStore = this.componentManager.getInstance(EventStore.class);
+
+            SimpleEventQuery query = new SimpleEventQuery(0, EVENT_BATCH_SIZE);
+            query.addSort(Event.FIELD_DATE, Order.DESC);
+
+            long maxEvents = (long) maxUsers * EVENT_SCAN_FACTOR;
+            for (long offset = 0; offset < maxEvents && users.size() < maxUsers; offset += EVENT_BATCH_SIZE) {
+                query.setOffset(offset);
+
+                try (EventSearchResult result = eventStore.search(query)) {
+                    for (Iterator<Event> it = result.stream().iterator(); it.hasNext() && users.size() < maxUsers;) {
+                        DocumentReference user = it.next().getUser();
+                        if (user != null) {
+                            users.add(user);
+                        }
+                    }
+
+                    if (result.getSize() < EVENT_BATCH_SIZE) {
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to search the most recently active users", e);
+        }
+
+        return users;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.eventstream.internal;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventSearchResult;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link EventStoreActiveUsersProvider}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class EventStoreActiveUsersProviderTest
+{
+    private static final DocumentReference ALICE = new DocumentReference("xwiki", "XWiki", "Alice");
+
+    private static final DocumentReference BOB = new DocumentReference("xwiki", "XWiki", "Bob");
+
+    @InjectMockComponents
+    private EventStoreActiveUsersProvider provider;
+
+    @MockComponent
+    @Named("context")
+    private ComponentManager componentManager;
+
+    private Event mockEvent(DocumentReference user)
+    {
+        Event event = mock(Event.class);
+        when(event.getUser()).thenReturn(user);
+
+        return event;
+    }
+
+    @Test
+    void getActiveUsers() throws Exception
+    {
+        EventStore eventStore = mock(EventStore.class);
+        when(this.componentManager.hasComponent(EventStore.class)).thenReturn(true);
+        when(this.componentManager.getInstance(EventStore.class)).thenReturn(eventStore);
+
+        EventSearchResult result = mock(EventSearchResult.class);
+        when(result.getSize()).thenReturn(4L);
+        when(result.stream())
+            .thenReturn(Stream.of(mockEvent(ALICE), mockEvent(BOB), mockEvent(ALICE), mockEvent(null)));
+        when(eventStore.search(any())).thenReturn(result);
+
+        assertEquals(Arrays.asList(ALICE, BOB), Arrays.asList(this.provider.getActiveUsers(10).toArray()));
+    }
+
+    @Test
+    void getActiveUsersWithoutEventStore() throws Exception
+    {
+        assertTrue(this.provider.getActiveUsers(10).isEmpty());
+    }
+
+    @Test
+    void getActiveUsersWithoutUsers() throws Exception
+    {
+        when(this.componentManager.hasComponent(EventStore.class)).thenReturn(true);
+
+        assertTrue(this.provider.getActiveUsers(0).isEmpty());
+
+        verify(this.componentManager, never()).getInstance(EventStore.class);
+    }
+}
@@ -19,6 +19,11 @@
  */
 package org.xwiki.eventstream.store.internal;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -91,6 +96,78 @@ public void saveEvent(Event event)
         }
     }
 
+    /**
+     * Add several new events to the storage, using a single transaction per database.
+     *
+     * @param events the events to store
+     * @since 12.10
+     */
+    public void saveEvents(List<Event> events)
+    {
+        // Group the events by database, keeping their order
+        Map<String, List<LegacyEvent>> eventsByWiki = new LinkedHashMap<>();
+        for (Event event : events) {
+            try {
+                LegacyEvent legacyEvent = eventConverter.convertEventToLegacyActivity(event);
+
+                boolean isSavedOnMainStore = false;
+
+                if (configuration.useLocalStore()) {
+                    eventsByWiki.computeIfAbsent(legacyEvent.getWiki(), k -> new ArrayList<>()).add(legacyEvent);
+                    isSavedOnMainStore = wikiDescriptorManager.isMainWiki(legacyEvent.getWiki());
+                }
+
+                if (configuration.useMainStore() && !isSavedOnMainStore) {
+                    eventsByWiki.computeIfAbsent(wikiDescriptorManager.getMainWikiId(), k -> new ArrayList<>())
+                        .add(legacyEvent);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to save an event in the event stream.", e);
+            }
+        }
+
+        for (Map.Entry<String, List<LegacyEvent>> entry : eventsByWiki.entrySet()) {
+            try {
+                saveLegacyEvents(entry.getValue(), entry.getKey());
+            } catch (Exception e) {
+                logger.error("Failed to save events in the event stream.", e);
+            }
+        }
+    }
+
+    private void saveLegacyEvents(List<LegacyEvent> events, String wikiId) throws Exception
+    {
+        namespaceContextExecutor.execute(new WikiNamespace(wikiId), () -> {
+            XWikiContext context = contextProvider.get();
+            XWikiHibernateStore hibernateStore = context.getWiki().getHibernateStore();
+            boolean saved = false;
+            try {
+                hibernateStore.beginTransaction(context);
+                Session session = hibernateStore.getSession(context);
+                for (LegacyEvent event : events) {
+                    session.save(event);
+                }
+                hibernateStore.endTransaction(context, true);
+
+                saved = true;
+            } catch (Exception e) {
+                logger.warn("Failed to save [{}] events at once in wiki [{}], saving them one by one: {}",
+                    events.size(), wikiId, e.getMessage());
+
+                hibernateStore.endTransaction(context, false);
+            }
+
+            if (!saved) {
+                // Don't lose all the events because of a single one
+                for (LegacyEvent event : events) {
+                    saveLegacyEvent(event, wikiId);
+                }
+            }
+
+            return null;
+        });
+    }
+
     private void saveLegacyEvent(LegacyEvent event, String wikiId) throws Exception
     {
         namespaceContextExecutor.execute(new WikiNamespace(wikiId), () -> {
@@ -22,6 +22,7 @@
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -181,6 +182,23 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
         return event;
     }
 
+    @Override
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        List<SolrInputDocument> documents = new ArrayList<>(events.size());
+        for (Event event : events) {
+            documents.add(toSolrInputDocument(event));
+        }
+
+        try {
+            this.client.add(documents);
+        } catch (Exception e) {
+            throw new EventStreamException("Failed to save events", e);
+        }
+
+        return events;
+    }
+
     @Override
     protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStreamException
     {
@@ -24,15 +24,16 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Singleton;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
-import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.codec.binary.Base64OutputStream;
 import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.filter.FilterEventParameters;
@@ -52,6 +53,10 @@
 @Singleton
 public class AttachmentReader extends AbstractReader implements XARXMLReader<AttachmentReader.WikiAttachment>
 {
+    private static final int CONTENT_BUFFER_SIZE = 8192;
+
+    private static final char MAX_ASCII_CHARACTER = 0x7F;
+
     public static class AbstractContent extends AbstractInputStreamInputSource
     {
         public DeferredFileOutputStream content;
@@ -61,14 +66,12 @@ public static class AbstractContent extends AbstractInputStreamInputSource
         @Override
         protected InputStream openStream() throws IOException
         {
-            InputStream stream;
+            // The content is decoded while being read from the XML
             if (this.content.isInMemory()) {
-                stream = new ByteArrayInputStream(this.content.getData());
+                return new ByteArrayInputStream(this.content.getData());
             } else {
-                stream = new FileInputStream(this.content.getFile());
+                return new FileInputStream(this.content.getFile());
             }
-
-            return new Base64InputStream(stream);
         }
 
         public void dispose()
@@ -261,13 +264,60 @@ private void readContent(XMLStreamReader xmlReader, AbstractContent content)
         // a file)
         content.content = new DeferredFileOutputStream(100000, temporaryFile);
 
-        // Copy the content to byte array or file depending on its size
-        for (xmlReader.next(); xmlReader.isCharacters(); xmlReader.next()) {
-            try {
-                content.content.write(xmlReader.getText().getBytes(StandardCharsets.UTF_8));
-            } catch (IOException e) {
-                throw new FilterException(e);
+        // Decode the content and copy it to byte array or file depending on its size
+        try (OutputStream stream = new Base64OutputStream(content.content, false)) {
+            byte[] buffer = new byte[CONTENT_BUFFER_SIZE];
+            xmlReader.next();
+            while (writeContentEvent(xmlReader, stream, buffer)) {
+                xmlReader.next();
             }
+        } catch (IOException e) {
+            throw new FilterException(e);
+        }
+    }
+
+    private boolean writeContentEvent(XMLStreamReader xmlReader, OutputStream stream, byte[] buffer)
+        throws IOException
+    {
+        int eventType = xmlReader.getEventType();
+
+        if (eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA
+            || eventType == XMLStreamConstants.SPACE) {
+            // Access the parser internal buffer directly to avoid creating a String for each text event
+            writeCharacters(xmlReader.getTextCharacters(), xmlReader.getTextStart(), xmlReader.getTextLength(), stream,
+                buffer);
+        } else if (eventType == XMLStreamConstants.ENTITY_REFERENCE) {
+            // Only reported when the parser is not configured to replace the entity references
+            String text = xmlReader.getText();
+            if (text != null) {
+                writeCharacters(text.toCharArray(), 0, text.length(), stream, buffer);
+            }
+        } else {
+            // Skip the comments and processing instructions located in the content
+            return eventType == XMLStreamConstants.COMMENT || eventType == XMLStreamConstants.PROCESSING_INSTRUCTION;
+        }
+
+        return true;
+    }
+
+    private void writeCharacters(char[] characters, int start, int length, OutputStream stream, byte[] buffer)
+        throws IOException
+    {
+        int size = 0;
+        for (int index = start; index < start + length; ++index) {
+            char c = characters[index];
+            // Base64 only use ASCII characters, the other ones would be ignored by the decoder anyway (and casting them
+            // to a byte could produce a valid base64 character)
+            if (c <= MAX_ASCII_CHARACTER) {
+                buffer[size++] = (byte) c;
+                if (size == buffer.length) {
+                    stream.write(buffer, 0, size);
+                    size = 0;
+                }
+            }
+        }
+        if (size > 0) {
+            stream.write(buffer, 0, size);
         }
     }
 }
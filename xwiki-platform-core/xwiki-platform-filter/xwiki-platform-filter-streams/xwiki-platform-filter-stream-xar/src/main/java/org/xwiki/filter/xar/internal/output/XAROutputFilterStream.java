@@ -21,6 +21,7 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
@@ -30,8 +31,8 @@
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -103,10 +104,10 @@ public class XAROutputFilterStream extends AbstractBeanOutputFilterStream<XAROut
     private Map<String, String> currentObjectProperties;
 
     /**
-     * the size of the chunks used when attachments are streamed. As the attachment data is base64 encoded in the
-     * process, this size must be a multiple of three to prevent padding between the chunks; see XWIKI-9830
+     * the size of the chunks of base64 encoded attachment data written to the XML. The attachment content is encoded on
+     * the fly while it's read so the chunks don't need to be aligned on the base64 quantum (see XWIKI-9830).
      */
-    private static final int ATTACHMENT_BUFFER_CHUNK_SIZE = 4095;
+    private static final int ATTACHMENT_BUFFER_CHUNK_SIZE = 8192;
 
     @Override
     public void close() throws IOException
@@ -544,31 +545,21 @@ private void writeContent(InputSource content) throws FilterException
     {
         this.writer.writeStartElement(XARAttachmentModel.ELEMENT_CONTENT);
 
-        long contentSize = 0;
+        long contentSize;
 
         try (InputSource source = content) {
-            InputStream stream = getInputStream(source);
+            // Encode the content while reading it to never have more than a chunk of it in memory
+            CountingInputStream stream = new CountingInputStream(getInputStream(source));
+            InputStream base64Stream = new Base64InputStream(stream, true, 0, null);
 
             byte[] buffer = new byte[ATTACHMENT_BUFFER_CHUNK_SIZE];
-            int readSize;
-            do {
-                try {
-                    readSize = stream.read(buffer, 0, ATTACHMENT_BUFFER_CHUNK_SIZE);
-                } catch (IOException e) {
-                    throw new FilterException("Failed to read content stream", e);
-                }
-
+            for (int readSize = read(base64Stream, buffer); readSize != -1; readSize = read(base64Stream, buffer)) {
                 if (readSize > 0) {
-                    String chunk;
-                    if (readSize == ATTACHMENT_BUFFER_CHUNK_SIZE) {
-                        chunk = Base64.encodeBase64String(buffer);
-                    } else {
-                        chunk = Base64.encodeBase64String(ArrayUtils.subarray(buffer, 0, readSize));
-                    }
-                    this.writer.writeCharacters(chunk);
-                    contentSize += readSize;
+                    this.writer.writeCharacters(new String(buffer, 0, readSize, StandardCharsets.US_ASCII));
                 }
-            } while (readSize == ATTACHMENT_BUFFER_CHUNK_SIZE);
+            }
+
+            contentSize = stream.getByteCount();
         } catch (IOException e) {
             throw new FilterException("Failed to close stream", e);
         }
@@ -578,6 +569,15 @@ private void writeContent(InputSource content) throws FilterException
         this.writer.writeElement(XARAttachmentModel.ELEMENT_CONTENT_SIZE, toString(contentSize));
     }
 
+    private int read(InputStream stream, byte[] buffer) throws FilterException
+    {
+        try {
+            return stream.read(buffer);
+        } catch (IOException e) {
+            throw new FilterException("Failed to read content stream", e);
+        }
+    }
+
     private InputStream getInputStream(InputSource content) throws FilterException
     {
         if (content instanceof InputStreamInputSource) {
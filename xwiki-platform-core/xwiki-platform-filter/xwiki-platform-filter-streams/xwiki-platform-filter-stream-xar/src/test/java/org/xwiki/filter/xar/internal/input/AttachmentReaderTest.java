@@ -0,0 +1,125 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.filter.xar.internal.input;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.xwiki.filter.xar.input.XARInputProperties;
+import org.xwiki.filter.xar.internal.input.AttachmentReader.WikiAttachment;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link AttachmentReader}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class AttachmentReaderTest
+{
+    @InjectMockComponents
+    private AttachmentReader reader;
+
+    private WikiAttachment read(String content) throws Exception
+    {
+        String xml = "<attachment><filename>file.bin</filename><content>" + content
+            + "</content><filesize>0</filesize></attachment>";
+
+        XMLStreamReader xmlReader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+        xmlReader.nextTag();
+
+        WikiAttachment attachment = this.reader.read(xmlReader, new XARInputProperties());
+
+        // The reader should stop at the end of the attachment
+        assertTrue(xmlReader.isEndElement());
+        assertEquals("attachment", xmlReader.getLocalName());
+        assertEquals("file.bin", attachment.name);
+
+        return attachment;
+    }
+
+    private byte[] getContent(WikiAttachment attachment) throws Exception
+    {
+        try (InputStream stream = attachment.openStream()) {
+            return IOUtils.toByteArray(stream);
+        } finally {
+            attachment.dispose();
+        }
+    }
+
+    @Test
+    void readContent() throws Exception
+    {
+        byte[] content = "attachment content".getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(content, getContent(read(Base64.encodeBase64String(content))));
+    }
+
+    @Test
+    void readChunkedContent() throws Exception
+    {
+        // Bigger than the decoding buffer and than the in memory threshold
+        byte[] content = new byte[500000];
+        new Random(42).nextBytes(content);
+
+        // Split in lines of 76 characters
+        String base64 = new String(Base64.encodeBase64Chunked(content), StandardCharsets.US_ASCII);
+
+        assertArrayEquals(content, getContent(read(base64)));
+    }
+
+    @Test
+    void readCDATAContent() throws Exception
+    {
+        byte[] content = "attachment content in CDATA".getBytes(StandardCharsets.UTF_8);
+        String base64 = Base64.encodeBase64String(content);
+
+        // Mix CDATA sections, text, comments and character references
+        String xml = "<![CDATA[" + base64.substring(0, 10) + "]]>" + base64.substring(10, 20) + "<!-- comment -->&#10;"
+            + "<![CDATA[" + base64.substring(20) + "]]>";
+
+        assertArrayEquals(content, getContent(read(xml)));
+    }
+
+    @Test
+    void readContentWithNonASCIICharacters() throws Exception
+    {
+        byte[] content = "attachment content".getBytes(StandardCharsets.UTF_8);
+        String base64 = Base64.encodeBase64String(content);
+
+        // U+0141 would become a valid base64 character ('A') if it was just cast to a byte
+        String xml = base64.substring(0, 8) + "Łé" + base64.substring(8);
+
+        assertArrayEquals(content, getContent(read(xml)));
+    }
+}
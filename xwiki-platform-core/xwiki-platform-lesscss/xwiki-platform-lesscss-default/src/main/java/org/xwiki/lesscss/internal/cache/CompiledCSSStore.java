@@ -0,0 +1,238 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+
+import com.github.sommeri.less4j.LessCompiler;
+
+/**
+ * A filesystem store of the CSS produced by LESS, to not compile again the LESS code which did not change after a
+ * restart or a cache flush.
+ * <p>
+ * The entries are addressed by a digest of the LESS code and of the context of the compilation (skin, color theme,
+ * Less4j version). Each entry also contains a digest of the content of the templates imported by the LESS code so
+ * that a modified template invalidates it. The entries which have not been used for a while are removed at startup.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component(roles = CompiledCSSStore.class)
+@Singleton
+public class CompiledCSSStore implements Initializable
+{
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final String EXTENSION = ".css";
+
+    private static final String TMP_EXTENSION = ".tmp";
+
+    private static final char IMPORT_SEPARATOR = ' ';
+
+    private static final long MAX_UNUSED_DURATION = TimeUnit.DAYS.toMillis(30);
+
+    @Inject
+    private LESSConfiguration configuration;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Logger logger;
+
+    private File directory;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        if (this.configuration.isPersistentCacheEnabled()) {
+            this.directory = new File(this.environment.getPermanentDirectory(), "cache/lesscss");
+
+            clean();
+        }
+    }
+
+    private void clean()
+    {
+        long limit = System.currentTimeMillis() - MAX_UNUSED_DURATION;
+
+        File[] subdirectories = this.directory.listFiles(File::isDirectory);
+        if (subdirectories != null) {
+            for (File subdirectory : subdirectories) {
+                File[] files = subdirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        // Remove the entries which are not used anymore and the left over of interrupted writes
+                        if (!file.getName().endsWith(EXTENSION) || file.lastModified() < limit) {
+                            file.delete();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param lessCode the LESS code to compile
+     * @param skin the skin holding the imported templates
+     * @param colorTheme the current color theme
+     * @param inlineSourceMap whether the generated CSS contains inline sourcemaps
+     * @return the key of the compiled CSS, or {@code null} if the store is disabled
+     */
+    public String getKey(String lessCode, String skin, String colorTheme, boolean inlineSourceMap)
+    {
+        if (this.directory == null) {
+            return null;
+        }
+
+        MessageDigest digest = createDigest();
+        update(digest, LessCompiler.class.getPackage().getImplementationVersion());
+        update(digest, skin);
+        update(digest, colorTheme);
+        update(digest, String.valueOf(inlineSourceMap));
+        update(digest, lessCode);
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private void update(MessageDigest digest, String value)
+    {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private String digest(String content)
+    {
+        return Hex.encodeHexString(createDigest().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("Failed to create a " + DIGEST_ALGORITHM + " digest", e);
+        }
+    }
+
+    private File getFile(String key)
+    {
+        return new File(new File(this.directory, key.substring(0, 2)), key + EXTENSION);
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(String, String, String, boolean)}
+     * @param templateContentProvider provide the current content of an imported template ({@code null} if it does not
+     *            exist anymore)
+     * @return the stored CSS, or {@code null} if it's not in the store or one of the imported templates changed
+     */
+    public String get(String key, Function<String, String> templateContentProvider)
+    {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            // The digests of the imported templates, until an empty line
+            for (String line = reader.readLine(); !StringUtils.isEmpty(line); line = reader.readLine()) {
+                String template = StringUtils.substringAfter(line, String.valueOf(IMPORT_SEPARATOR));
+                String templateContent = templateContentProvider.apply(template);
+                if (templateContent == null
+                    || !StringUtils.substringBefore(line, String.valueOf(IMPORT_SEPARATOR))
+                        .equals(digest(templateContent))) {
+                    return null;
+                }
+            }
+
+            String css = IOUtils.toString(reader);
+
+            // Remember the access to not remove the entry at startup
+            file.setLastModified(System.currentTimeMillis());
+
+            return css;
+        } catch (IOException e) {
+            // The entry was probably replaced in the meantime
+            this.logger.debug("Failed to read the compiled CSS [{}]: {}", file, e.getMessage());
+
+            return null;
+        }
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(String, String, String, boolean)}
+     * @param templates the content of the templates imported during the compilation, indexed by template name
+     * @param css the compiled CSS
+     */
+    public void set(String key, Map<String, String> templates, String css)
+    {
+        File file = getFile(key);
+        File tmpFile = new File(file.getParentFile(), key + '-' + UUID.randomUUID() + TMP_EXTENSION);
+
+        try {
+            file.getParentFile().mkdirs();
+
+            try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> template : templates.entrySet()) {
+                    writer.write(digest(template.getValue()));
+                    writer.write(IMPORT_SEPARATOR);
+                    writer.write(template.getKey());
+                    writer.write('\n');
+                }
+                writer.write('\n');
+                writer.write(css);
+            }
+
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            this.logger.warn("Failed to store the compiled CSS in [{}]: {}", file, e.getMessage());
+
+            tmpFile.delete();
+        }
+    }
+}
@@ -19,10 +19,16 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.lesscss.internal.cache.CompiledCSSStore;
+import org.xwiki.lesscss.internal.colortheme.CurrentColorThemeGetter;
+import org.xwiki.skin.Skin;
 import org.xwiki.skin.SkinManager;
 import org.xwiki.template.TemplateManager;
 
@@ -47,6 +53,12 @@
     @Inject
     private SkinManager skinManager;
 
+    @Inject
+    private CurrentColorThemeGetter currentColorThemeGetter;
+
+    @Inject
+    private CompiledCSSStore compiledCSSStore;
+
     /**
      * Compile the LESS code and get the included files from the skin templates.
      * @param lessCode code to compile
@@ -57,14 +69,45 @@
      */
     public String compile(String lessCode, String skin, boolean inlineSourceMap) throws Less4jException
     {
+        Skin skinObject = skinManager.getSkin(skin);
+
+        // Reuse the CSS of a previous compilation of the same code, unless one of the imported templates changed
+        String key = compiledCSSStore.getKey(lessCode, skin,
+            currentColorThemeGetter.getCurrentColorTheme(true, "default"), inlineSourceMap);
+        if (key != null) {
+            String css = compiledCSSStore.get(key, template -> getTemplateContent(template, skinObject));
+            if (css != null) {
+                return css;
+            }
+        }
+
         LessCompiler lessCompiler = new DefaultLessCompiler();
         LessCompiler.Configuration options = new LessCompiler.Configuration();
         options.setCompressing(true);
         options.getSourceMapConfiguration().setInline(inlineSourceMap);
         options.getSourceMapConfiguration().setIncludeSourcesContent(true);
-        LessSource lessSource = 
-            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin));
+        Map<String, String> readTemplates = new LinkedHashMap<>();
+        LessSource lessSource = new CustomContentLESSSource(lessCode, templateManager, skinObject, readTemplates);
         LessCompiler.CompilationResult lessResult = lessCompiler.compile(lessSource, options);
-        return lessResult.getCss();
+        String css = lessResult.getCss();
+
+        if (key != null) {
+            compiledCSSStore.set(key, readTemplates, css);
+        }
+
+        return css;
+    }
+
+    private String getTemplateContent(String template, Skin skin)
+    {
+        if (skin.getResource(template) == null) {
+            return null;
+        }
+
+        try {
+            return new TemplateLESSSource(templateManager, skin, template).getContent();
+        } catch (LessSource.FileNotFound | LessSource.CannotReadFile e) {
+            return null;
+        }
     }
 }
@@ -55,4 +55,12 @@ public void generateSourceMaps() throws Exception
         lessConfiguration.isGenerateInlineSourceMaps();
         verify(configurationSource).getProperty("lesscss.generateInlineSourceMaps", false);
     }
+
+    @Test
+    public void persistentCache() throws Exception
+    {
+        when(configurationSource.getProperty("lesscss.persistentCache", true)).thenReturn(true);
+        lessConfiguration.isPersistentCacheEnabled();
+        verify(configurationSource).getProperty("lesscss.persistentCache", true);
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link CompiledCSSStore}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class CompiledCSSStoreTest
+{
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    private final LESSConfiguration configuration = mock(LESSConfiguration.class);
+
+    private final Map<String, String> templates = new HashMap<>();
+
+    private CompiledCSSStore store;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.configuration.isPersistentCacheEnabled()).thenReturn(true);
+
+        this.store = createStore();
+    }
+
+    private CompiledCSSStore createStore() throws Exception
+    {
+        Environment environment = mock(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+
+        CompiledCSSStore instance = new CompiledCSSStore();
+        ReflectionUtils.setFieldValue(instance, "configuration", this.configuration);
+        ReflectionUtils.setFieldValue(instance, "environment", environment);
+        ReflectionUtils.setFieldValue(instance, "logger", mock(Logger.class));
+        instance.initialize();
+
+        return instance;
+    }
+
+    @Test
+    void getKey()
+    {
+        String key = this.store.getKey("code", "skin", "colorTheme", false);
+
+        assertEquals(key, this.store.getKey("code", "skin", "colorTheme", false));
+        assertNotEquals(key, this.store.getKey("other code", "skin", "colorTheme", false));
+        assertNotEquals(key, this.store.getKey("code", "other skin", "colorTheme", false));
+        assertNotEquals(key, this.store.getKey("code", "skin", "other colorTheme", false));
+        assertNotEquals(key, this.store.getKey("code", "skin", "colorTheme", true));
+    }
+
+    @Test
+    void setAndGet() throws Exception
+    {
+        String key = this.store.getKey("code", "skin", "colorTheme", false);
+
+        assertNull(this.store.get(key, this.templates::get));
+
+        this.templates.put("less/style.less.vm", "style");
+        this.templates.put("less/variables.less", "variables");
+        this.store.set(key, this.templates, "css\nwith several lines");
+
+        assertEquals("css\nwith several lines", this.store.get(key, this.templates::get));
+
+        // The store is persisted
+        assertEquals("css\nwith several lines", createStore().get(key, this.templates::get));
+
+        // Modified template
+        this.templates.put("less/variables.less", "modified variables");
+        assertNull(this.store.get(key, this.templates::get));
+
+        // Deleted template
+        this.templates.remove("less/variables.less");
+        assertNull(this.store.get(key, this.templates::get));
+    }
+
+    @Test
+    void setAndGetWithoutTemplates()
+    {
+        String key = this.store.getKey("code", "skin", "colorTheme", false);
+
+        this.store.set(key, Collections.emptyMap(), "css");
+
+        assertEquals("css", this.store.get(key, this.templates::get));
+    }
+
+    @Test
+    void disabled() throws Exception
+    {
+        when(this.configuration.isPersistentCacheEnabled()).thenReturn(false);
+
+        assertNull(createStore().getKey("code", "skin", "colorTheme", false));
+    }
+}
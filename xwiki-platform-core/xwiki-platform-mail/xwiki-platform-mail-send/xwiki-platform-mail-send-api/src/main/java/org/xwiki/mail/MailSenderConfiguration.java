@@ -23,6 +23,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents all XWiki configuration options for the Mail Sending feature.
@@ -121,4 +122,15 @@ default int getSendQueueCapacity()
     {
         return 1000;
     }
+
+    /**
+     * @return the number of threads sending the mails in parallel, each one using its own connection to the SMTP server.
+     *         Note that the {@link #getSendWaitTime() send wait time} is applied by each thread
+     * @since 12.10
+     */
+    @Unstable
+    default int getSendThreadCount()
+    {
+        return 1;
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal;
+
+import org.xwiki.mail.MailListener;
+
+/**
+ * Extension of {@link MailListener} able to handle several mail events together, for example to store the
+ * corresponding mail statuses in a single database transaction instead of one transaction per mail.
+ * <p>
+ * Only the prepare events are grouped: the sender threads wait for the configured send wait time after each mail
+ * and the send status of a mail is expected as soon as it's sent (e.g. to know when a synchronous batch is
+ * finished), so the send events are still handled one by one.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+public interface GroupingMailListener extends MailListener
+{
+    /**
+     * Handle together all the listener calls made by the passed runnable.
+     *
+     * @param calls the calls to this listener to group
+     */
+    void group(Runnable calls);
+}
@@ -59,6 +59,12 @@ public void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Inte
         getMailQueue().offer(mailQueueItem, timeout, unit);
     }
 
+    @Override
+    public void putMessage(T mailQueueItem) throws InterruptedException
+    {
+        getMailQueue().put(mailQueueItem);
+    }
+
     @Override
     public boolean hasMessage()
     {
@@ -71,6 +77,12 @@ public T peekMessage()
         return getMailQueue().peek();
     }
 
+    @Override
+    public T pollMessage(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return getMailQueue().poll(timeout, unit);
+    }
+
     @Override
     public boolean removeMessageFromQueue(T mailQueueItem)
     {
@@ -55,6 +55,15 @@ default void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Int
         addToQueue(mailQueueItem);
     }
 
+    /**
+     * Add a mail on the queue for processing, waiting if necessary for space to become available.
+     *
+     * @param mailQueueItem the object representing the mail item to add to the queue
+     * @throws InterruptedException if interrupted while waiting
+     * @since 12.10
+     */
+    void putMessage(T mailQueueItem) throws InterruptedException;
+
     /**
      * @return true if the queue has messages waiting for processing
      */
@@ -65,6 +74,17 @@ default void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Int
      */
     T peekMessage();
 
+    /**
+     * Removes the next mail from the queue, waiting if necessary for a mail to become available.
+     *
+     * @param timeout how long to wait before giving up, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return the next mail on the queue, or {@code null} if no mail became available before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     * @since 12.10
+     */
+    T pollMessage(long timeout, TimeUnit unit) throws InterruptedException;
+
     /**
      * Removes the next mail on the queue.
      *
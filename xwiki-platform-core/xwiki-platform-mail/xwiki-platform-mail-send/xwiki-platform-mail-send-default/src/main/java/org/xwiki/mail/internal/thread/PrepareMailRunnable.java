@@ -19,8 +19,10 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -38,6 +40,7 @@
 import org.xwiki.mail.MailContentStore;
 import org.xwiki.mail.MailListener;
 import org.xwiki.mail.MailStatusResult;
+import org.xwiki.mail.internal.GroupingMailListener;
 import org.xwiki.mail.internal.UpdateableMailStatusResult;
 
 import com.xpn.xwiki.XWikiContext;
@@ -54,6 +57,11 @@
 @Singleton
 public class PrepareMailRunnable extends AbstractMailRunnable
 {
+    /**
+     * The maximum number of prepared messages to keep before putting them on the Mail Sender Queue.
+     */
+    private static final int MAX_PREPARED_MAILS = 50;
+
     @Inject
     private MailQueueManager<PrepareMailQueueItem> prepareMailQueueManager;
 
@@ -95,6 +103,11 @@ public void run()
 
     /**
      * Prepare the messages to send, persist them and put them on the Mail Sender Queue.
+     * <p>
+     * The messages are prepared one by one (so that a batch is never fully loaded in memory) and handed over to the
+     * Mail Sender Queue as soon as the sender threads are idle, or by groups of at most {@link #MAX_PREPARED_MAILS}
+     * messages otherwise. The Mail Sender Queue being bounded, the preparation waits when the senders are lagging
+     * behind.
      *
      * @param item the queue item containing all the data for sending the mail
      * @throws org.xwiki.context.ExecutionContextException when the XWiki Context fails to be set up
@@ -111,6 +124,9 @@ protected void prepareMail(PrepareMailQueueItem item)
         // Count the total number of messages to process
         long messageCounter = 0;
 
+        // The messages which have been persisted but not yet put on the Mail Sender Queue
+        List<ExtendedMimeMessage> preparedMessages = new ArrayList<>();
+
         try {
             boolean shouldStop = false;
             while (!shouldStop) {
@@ -120,16 +136,32 @@ protected void prepareMail(PrepareMailQueueItem item)
                 try {
                     if (messageIterator.hasNext()) {
                         MimeMessage mimeMessage = messageIterator.next();
-                        prepareSingleMail(mimeMessage, item);
+                        ExtendedMimeMessage message = prepareSingleMail(mimeMessage, item);
+                        if (message != null) {
+                            preparedMessages.add(message);
+                        }
                         messageCounter++;
                     } else {
                         shouldStop = true;
                     }
+
+                    if (shouldStop || preparedMessages.size() >= MAX_PREPARED_MAILS
+                        || !this.sendMailQueueManager.hasMessage()) {
+                        queuePreparedMails(preparedMessages, item);
+                    }
                 } finally {
                     removeContext();
                 }
             }
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                // The thread is being stopped, make sure it's still known by the main loop
+                Thread.currentThread().interrupt();
+            } else if (!preparedMessages.isEmpty()) {
+                // Don't lose the messages prepared before the failure
+                queueRemainingPreparedMails(preparedMessages, item);
+            }
+
             if (listener != null) {
                 listener.onPrepareFatalError(e, Collections.emptyMap());
             }
@@ -158,10 +190,8 @@ protected void prepareContext(ExecutionContext executionContext) throws Executio
         }
     }
 
-    private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item)
+    private ExtendedMimeMessage prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item)
     {
-        MailListener listener = item.getListener();
-
         // Step 1: Try to complete message with From and Bcc from configuration if needed
         completeMessage(mimeMessage);
 
@@ -174,22 +204,67 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
             this.mailContentStore.save(item.getBatchId(), message);
         } catch (Exception e) {
             // An error occurred, notify the user if a listener has been provided
+            MailListener listener = item.getListener();
             if (listener != null) {
                 listener.onPrepareMessageError(message, e, Collections.emptyMap());
             }
+            return null;
+        }
+
+        return message;
+    }
+
+    private void queuePreparedMails(List<ExtendedMimeMessage> preparedMessages, PrepareMailQueueItem item)
+        throws InterruptedException
+    {
+        if (preparedMessages.isEmpty()) {
             return;
         }
 
-        // Step 3: Notify the user that the MimeMessage is prepared
+        MailListener listener = item.getListener();
+
+        // Step 3: Notify the user that the MimeMessages are prepared
+        // Note: it needs to be done before the messages are put on the Mail Send Queue since the sender threads
+        // expect the prepared status to be known.
         if (listener != null) {
-            listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+            Runnable notifications = () -> {
+                for (ExtendedMimeMessage message : preparedMessages) {
+                    listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+                }
+            };
+            if (listener instanceof GroupingMailListener) {
+                ((GroupingMailListener) listener).group(notifications);
+            } else {
+                notifications.run();
+            }
         }
 
-        // Step 4: Put the MimeMessage id on the Mail Send Queue for sending
+        // Step 4: Put the MimeMessage ids on the Mail Send Queue for sending (wait if the queue is full)
         // Extract the wiki id from the context
-        this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message.getUniqueMessageId(),
-            item.getSession(), listener, item.getBatchId(), extractWikiId(item)));
+        String wikiId = extractWikiId(item);
+        for (ExtendedMimeMessage message : preparedMessages) {
+            this.sendMailQueueManager.putMessage(
+                new SendMailQueueItem(message.getUniqueMessageId(), item.getSession(), listener, item.getBatchId(),
+                    wikiId));
+        }
+
+        preparedMessages.clear();
+    }
 
+    private void queueRemainingPreparedMails(List<ExtendedMimeMessage> preparedMessages, PrepareMailQueueItem item)
+    {
+        try {
+            prepareContext(item.getContext());
+            try {
+                queuePreparedMails(preparedMessages, item);
+            } finally {
+                removeContext();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            this.logger.error("Failed to queue the prepared mails of batch [{}]", item.getBatchId(), e);
+        }
     }
 
     private String extractWikiId(PrepareMailQueueItem item)
@@ -20,6 +20,7 @@
 package org.xwiki.mail.internal.thread;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -37,11 +38,15 @@
 import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailContentStore;
 import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailSenderConfiguration;
 
 import com.xpn.xwiki.XWikiContext;
 
 /**
  * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * <p>
+ * Several threads can run this runnable at the same time (see {@link MailSenderConfiguration#getSendThreadCount()}),
+ * in which case each of them takes mails from the same Queue and keeps its own connection to the SMTP server.
  *
  * @version $Id$
  * @since 6.4
@@ -51,6 +56,11 @@
 @Singleton
 public class SendMailRunnable extends AbstractMailRunnable
 {
+    /**
+     * How long to wait for a mail before checking again if the thread should stop.
+     */
+    private static final long POLL_TIMEOUT = 1000L;
+
     @Inject
     private MailQueueManager<SendMailQueueItem> sendMailQueueManager;
 
@@ -64,25 +74,33 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
+    /**
+     * The connection to the SMTP server of a sender thread.
+     */
+    private static final class SMTPConnection
+    {
+        private Transport transport;
 
-    private Session currentSession;
+        private Session session;
 
-    private int count;
+        private int count;
+    }
 
     @Override
     public void run()
     {
+        SMTPConnection connection = new SMTPConnection();
+
         try {
             // Make sure we initialize an execution context.
             prepareContext();
 
-            runInternal();
+            runInternal(connection);
         } catch (ExecutionContextException e) {
             // Not much to do but log.
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
-            closeTransport();
+            closeTransport(connection);
         }
     }
 
@@ -101,28 +119,24 @@ private void prepareContextForQueueItem(SendMailQueueItem mailItem)
         xcontext.setWikiId(mailItem.getWikiId());
     }
 
-    private void runInternal()
+    private void runInternal(SMTPConnection connection)
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item from the queue after the mail has been sent as
-                    // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
-                    try {
-                        sendMail(mailItem);
-                    } finally {
-                        this.sendMailQueueManager.removeMessageFromQueue(mailItem);
-                    }
+                // Wait for the next message in the queue (the wait is interrupted when the thread is stopped).
+                // Note: the mail status (and not the queue content) is used to know when a mail has been sent so we
+                // can remove the item from the queue right away, which allows several threads to share the queue.
+                SendMailQueueItem mailItem =
+                    this.sendMailQueueManager.pollMessage(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (mailItem != null) {
+                    sendMail(mailItem, connection);
+
                     // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
+                    // Note: it's important that we wait after the previous item has been sent in order to let users
+                    // know as soon as possible that their mail has been sent (otherwise when sending a synchronous
+                    // mail, the user would have to wait the send wait time!).
                     waitSendWaitTime();
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(50L);
             } catch (InterruptedException e) {
                 // Thread has been stopped, exit
                 this.logger.debug("Mail Sender Thread was forcefully stopped", e);
@@ -138,8 +152,9 @@ private void runInternal()
      * Send the mail.
      *
      * @param item the queue item containing all the data for sending the mail
+     * @param connection the connection to the SMTP server of the current thread
      */
-    protected void sendMail(SendMailQueueItem item)
+    private void sendMail(SendMailQueueItem item, SMTPConnection connection)
     {
         prepareContextForQueueItem(item);
 
@@ -161,26 +176,30 @@ protected void sendMail(SendMailQueueItem item)
             // the current Transport, get a new one and reconnect.
             // Also do that every 100 mails sent.
             // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
-                closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
+            if (item.getSession() != connection.session || (connection.count % 100) == 0) {
+                closeTransport(connection);
+                connection.session = item.getSession();
+                connection.transport = connection.session.getTransport("smtp");
+                connection.transport.connect();
+            } else if (!connection.transport.isConnected()) {
+                connection.transport.connect();
             }
 
             // Step 3: Send the mail
             // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
             // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            connection.transport.sendMessage(message, message.getAllRecipients());
+            connection.count++;
 
             // Step 4: Notify the user of the success if a listener has been provided
             if (listener != null) {
                 listener.onSendMessageSuccess(message, Collections.emptyMap());
             }
         } catch (Exception e) {
+            // The connection might be in a bad state so make sure the next mail uses a new one
+            closeTransport(connection);
+            connection.session = null;
+
             // An error occurred, notify the user if a listener has been provided.
             if (listener != null) {
                 listener.onSendMessageError(message, e, Collections.emptyMap());
@@ -194,15 +213,16 @@ private void waitSendWaitTime() throws InterruptedException
         Thread.sleep(sendWaitTime);
     }
 
-    private void closeTransport()
+    private void closeTransport(SMTPConnection connection)
     {
-        if (this.currentTransport != null) {
+        if (connection.transport != null) {
             try {
-                this.currentTransport.close();
+                connection.transport.close();
             } catch (MessagingException e) {
                 this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
                     ExceptionUtils.getRootCauseMessage(e));
             }
+            connection.transport = null;
         }
     }
 }
@@ -0,0 +1,342 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.integration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.inject.Provider;
+import javax.mail.Message.RecipientType;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.environment.Environment;
+import org.xwiki.environment.internal.EnvironmentConfiguration;
+import org.xwiki.environment.internal.StandardEnvironment;
+import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailSender;
+import org.xwiki.mail.MailSenderConfiguration;
+import org.xwiki.mail.MailState;
+import org.xwiki.mail.MailStatus;
+import org.xwiki.mail.MailStatusResult;
+import org.xwiki.mail.internal.DefaultMailSender;
+import org.xwiki.mail.internal.FileSystemMailContentStore;
+import org.xwiki.mail.internal.MemoryMailListener;
+import org.xwiki.mail.internal.factory.text.TextMimeBodyPartFactory;
+import org.xwiki.mail.internal.thread.MailRunnable;
+import org.xwiki.mail.internal.thread.MailSenderInitializerListener;
+import org.xwiki.mail.internal.thread.PrepareMailQueueManager;
+import org.xwiki.mail.internal.thread.PrepareMailRunnable;
+import org.xwiki.mail.internal.thread.SendMailQueueManager;
+import org.xwiki.mail.internal.thread.SendMailRunnable;
+import org.xwiki.mail.internal.thread.context.Copier;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests to prove that mails are sent exactly once when several Mail Sender Threads share the send queue,
+ * and to measure the sending throughput with one and with several threads.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+// @formatter:off
+@ComponentList({
+    MailSenderInitializerListener.class,
+    TextMimeBodyPartFactory.class,
+    StandardEnvironment.class,
+    DefaultMailSender.class,
+    MemoryMailListener.class,
+    SendMailRunnable.class,
+    PrepareMailRunnable.class,
+    PrepareMailQueueManager.class,
+    SendMailQueueManager.class,
+    FileSystemMailContentStore.class
+})
+// @formatter:on
+public class SendThreadsIntegrationTest extends AbstractMailIntegrationTest
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SendThreadsIntegrationTest.class);
+
+    private static final String PERMDIR = "target/" + SendThreadsIntegrationTest.class.getSimpleName();
+
+    private static final String TMPDIR = String.format("%s/tmp", PERMDIR);
+
+    private static final int SEND_THREAD_COUNT = 4;
+
+    private GreenMail greenMail = new GreenMail(getCustomServerSetup(ServerSetupTest.SMTP));
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private TestMailSenderConfiguration configuration;
+
+    private MailSender sender;
+
+    /**
+     * The Mail Sender Threads started by the test, in addition to the one started by the initializer listener.
+     */
+    private final List<Thread> sendMailThreads = new ArrayList<>();
+
+    @BeforeComponent
+    public void registerConfiguration() throws Exception
+    {
+        this.greenMail.start();
+
+        this.configuration = new TestMailSenderConfiguration(
+            this.greenMail.getSmtp().getPort(), null, null, new Properties());
+        // Start with a single Mail Sender Thread, the tests add the other ones
+        this.configuration.setSendThreadCount(1);
+        this.componentManager.registerComponent(MailSenderConfiguration.class, this.configuration);
+
+        // Set the current wiki in the Context
+        ModelContext modelContext = this.componentManager.registerMockComponent(ModelContext.class);
+        when(modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontext.getWikiId()).thenReturn("wiki");
+
+        Provider<XWikiContext> xwikiContextProvider = this.componentManager.registerMockComponent(
+            XWikiContext.TYPE_PROVIDER);
+        when(xwikiContextProvider.get()).thenReturn(xcontext);
+
+        this.componentManager.registerMockComponent(ExecutionContextManager.class);
+        this.componentManager.registerMockComponent(Execution.class);
+
+        this.componentManager.registerMockComponent(new DefaultParameterizedType(null, Copier.class,
+            ExecutionContext.class));
+
+        EnvironmentConfiguration environmentConfiguration =
+            this.componentManager.registerMockComponent(EnvironmentConfiguration.class);
+        when(environmentConfiguration.getPermanentDirectoryPath()).thenReturn(PERMDIR);
+    }
+
+    @BeforeEach
+    public void initialize() throws Exception
+    {
+        // Make sure files for temporary attachments are saved in the target directory
+        StandardEnvironment environment = this.componentManager.getInstance(Environment.class);
+        environment.setTemporaryDirectory(new File(TMPDIR));
+
+        this.sender = this.componentManager.getInstance(MailSender.class);
+
+        // Set the EC
+        Execution execution = this.componentManager.getInstance(Execution.class);
+        ExecutionContext executionContext = new ExecutionContext();
+        XWikiContext xContext = new XWikiContext();
+        xContext.setWikiId("wiki");
+        executionContext.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, xContext);
+        when(execution.getContext()).thenReturn(executionContext);
+
+        Copier<ExecutionContext> executionContextCloner =
+            this.componentManager.getInstance(new DefaultParameterizedType(null, Copier.class, ExecutionContext.class));
+        // Just return the same execution context
+        when(executionContextCloner.copy(executionContext)).thenReturn(executionContext);
+
+        // Simulate receiving the Application Ready Event to start the mail threads
+        MailSenderInitializerListener listener =
+            this.componentManager.getInstance(EventListener.class, MailSenderInitializerListener.LISTENER_NAME);
+        listener.onEvent(new ApplicationReadyEvent(), null, null);
+    }
+
+    @AfterEach
+    public void cleanUp() throws Exception
+    {
+        // Stop the mail threads started by the listener, which also asks the threads started by the test to stop
+        Disposable listener =
+            this.componentManager.getInstance(EventListener.class, MailSenderInitializerListener.LISTENER_NAME);
+        listener.dispose();
+
+        for (Thread sendMailThread : this.sendMailThreads) {
+            sendMailThread.interrupt();
+        }
+        for (Thread sendMailThread : this.sendMailThreads) {
+            sendMailThread.join();
+        }
+
+        this.greenMail.stop();
+    }
+
+    /**
+     * Start more Mail Sender Threads, sharing the send queue with the one started by the listener.
+     */
+    private void startSendMailThreads(int count) throws Exception
+    {
+        MailRunnable sendMailRunnable = this.componentManager.getInstance(MailRunnable.class, "send");
+        for (int i = 0; i < count; ++i) {
+            Thread sendMailThread = new Thread(sendMailRunnable);
+            sendMailThread.setName("Test Mail Sender Thread " + (i + 1));
+            sendMailThread.setDaemon(true);
+            sendMailThread.start();
+            this.sendMailThreads.add(sendMailThread);
+        }
+    }
+
+    private List<MimeMessage> createMessages(Session session, String prefix, int count) throws Exception
+    {
+        List<MimeMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            MimeMessage message = new MimeMessage(session);
+            message.setSubject(prefix + i);
+            message.setRecipient(RecipientType.TO, new InternetAddress("john@doe.com"));
+            message.setText("some text here");
+            // Make sure each message gets its own identifier
+            message.saveChanges();
+            messages.add(message);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Send the messages and wait for all of them to be processed.
+     *
+     * @return the result of the sending
+     */
+    private MailStatusResult send(List<MimeMessage> messages, Session session) throws Exception
+    {
+        MailListener memoryMailListener = this.componentManager.getInstance(MailListener.class, "memory");
+        this.sender.sendAsynchronously(messages, session, memoryMailListener);
+
+        MailStatusResult statusResult = ((MemoryMailListener) memoryMailListener).getMailStatusResult();
+        statusResult.waitTillProcessed(30000L);
+        assertTrue(statusResult.isProcessed());
+
+        return statusResult;
+    }
+
+    private void assertSentOnce(MailStatusResult statusResult, int count)
+    {
+        // Each mail is processed only once...
+        assertEquals(count, statusResult.getProcessedMailCount());
+
+        // ...and successfully
+        assertFalse(statusResult.getAllErrors().hasNext());
+        Set<String> sentMessageIds = new HashSet<>();
+        for (Iterator<MailStatus> statuses = statusResult.getByState(MailState.SEND_SUCCESS); statuses.hasNext();) {
+            sentMessageIds.add(statuses.next().getMessageId());
+        }
+        assertEquals(count, sentMessageIds.size());
+    }
+
+    private void assertReceivedOnce(String prefix, int count) throws Exception
+    {
+        Map<String, Integer> receivedSubjects = new HashMap<>();
+        for (MimeMessage message : this.greenMail.getReceivedMessages()) {
+            if (message.getSubject().startsWith(prefix)) {
+                receivedSubjects.merge(message.getSubject(), 1, Integer::sum);
+            }
+        }
+
+        assertEquals(count, receivedSubjects.size());
+        for (int i = 0; i < count; ++i) {
+            assertEquals(Integer.valueOf(1), receivedSubjects.get(prefix + i), "Wrong count for mail " + i);
+        }
+    }
+
+    @Test
+    public void sendMailsWithSeveralThreads() throws Exception
+    {
+        startSendMailThreads(SEND_THREAD_COUNT - 1);
+
+        Session session = Session.getInstance(this.configuration.getAllProperties());
+        int count = 40;
+
+        MailStatusResult statusResult = send(createMessages(session, "subject", count), session);
+
+        assertSentOnce(statusResult, count);
+
+        // Verify that each mail has been received exactly once (wait maximum 30 seconds).
+        assertTrue(this.greenMail.waitForIncomingEmail(30000L, count));
+        assertEquals(count, this.greenMail.getReceivedMessages().length);
+        assertReceivedOnce("subject", count);
+    }
+
+    /**
+     * Measure the number of mails sent per second with a single thread and with several threads. The rates are only
+     * logged (they depend too much on the machine running the test to be asserted).
+     */
+    @Test
+    public void measureThroughputWithOneAndSeveralThreads() throws Exception
+    {
+        Session session = Session.getInstance(this.configuration.getAllProperties());
+        int count = 200;
+
+        // Warm up (SMTP connections, mail content store directories, JIT)
+        send(createMessages(session, "warmup", 20), session);
+
+        // A single thread
+        List<MimeMessage> messages = createMessages(session, "single", count);
+        long start = System.nanoTime();
+        MailStatusResult statusResult = send(messages, session);
+        double singleThreadRate = count * 1e9 / (System.nanoTime() - start);
+        assertSentOnce(statusResult, count);
+
+        // Several threads
+        startSendMailThreads(SEND_THREAD_COUNT - 1);
+        messages = createMessages(session, "several", count);
+        start = System.nanoTime();
+        statusResult = send(messages, session);
+        double severalThreadsRate = count * 1e9 / (System.nanoTime() - start);
+        assertSentOnce(statusResult, count);
+
+        LOGGER.info("Mails sent per second: [{}] with 1 thread, [{}] with {} threads",
+            String.format("%.1f", singleThreadRate), String.format("%.1f", severalThreadsRate), SEND_THREAD_COUNT);
+
+        assertTrue(this.greenMail.waitForIncomingEmail(30000L, 20 + 2 * count));
+        assertReceivedOnce("single", count);
+        assertReceivedOnce("several", count);
+    }
+}
@@ -42,6 +42,9 @@ public class TestMailSenderConfiguration extends DefaultMailSenderConfiguration
 
     private List<String> bccAddresses = new ArrayList<>();
 
+    // Send the mails in parallel by default to make sure it's supported
+    private int sendThreadCount = 2;
+
     public TestMailSenderConfiguration(int port, String username, String password, Properties additionalProperties)
     {
         this.port = port;
@@ -116,8 +119,19 @@ public int getSendQueueCapacity()
         return 10;
     }
 
+    @Override
+    public int getSendThreadCount()
+    {
+        return this.sendThreadCount;
+    }
+
     public void setBCCAddresses(List<String> addresses)
     {
         this.bccAddresses = addresses;
     }
+
+    public void setSendThreadCount(int sendThreadCount)
+    {
+        this.sendThreadCount = sendThreadCount;
+    }
 }
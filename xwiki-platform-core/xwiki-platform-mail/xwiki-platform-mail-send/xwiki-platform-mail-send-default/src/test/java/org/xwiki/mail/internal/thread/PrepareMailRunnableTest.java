@@ -31,6 +31,7 @@
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -44,6 +45,7 @@
 import org.xwiki.mail.MailStatus;
 import org.xwiki.mail.MailStatusResult;
 import org.xwiki.mail.MailStoreException;
+import org.xwiki.mail.internal.GroupingMailListener;
 import org.xwiki.mail.internal.MemoryMailListener;
 import org.xwiki.mail.internal.UpdateableMailStatusResult;
 import org.xwiki.test.AllLogRule;
@@ -60,6 +62,11 @@
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -264,7 +271,7 @@ public Object answer(InvocationOnMock invocationOnMock)
                 ((UpdateableMailStatusResult)item.getListener().getMailStatusResult()).incrementCurrentSize();
                 return null;
             }
-        }).when(sendMailQueueManager).addToQueue(any(SendMailQueueItem.class));
+        }).when(sendMailQueueManager).putMessage(any(SendMailQueueItem.class));
 
 
         // Prepare 2 mails. Both will fail but we want to verify that the second one is processed even though the first
@@ -301,4 +308,57 @@ public Object answer(InvocationOnMock invocationOnMock)
 
         assertEquals("Failure during preparation phase of thread [" + batchId1 + "]", logRule.getMessage(0));
     }
+
+    @Test
+    public void prepareMailWhenSendersAreBusy() throws Exception
+    {
+        Session session = Session.getDefaultInstance(new Properties());
+
+        MimeMessage message1 = new MimeMessage(session);
+        message1.setText("Content1");
+        MimeMessage message2 = new MimeMessage(session);
+        message2.setText("Content2");
+        MimeMessage message3 = new MimeMessage(session);
+        message3.setText("Content3");
+
+        ExecutionContext context = new ExecutionContext();
+        XWikiContext xContext = new XWikiContext();
+        xContext.setWikiId("wiki");
+        context.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, xContext);
+
+        GroupingMailListener listener = mock(GroupingMailListener.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(listener).group(any());
+
+        MailQueueManager prepareMailQueueManager = this.mocker.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, PrepareMailQueueItem.class));
+
+        // The send queue is never empty so the prepared mails are grouped
+        MailQueueManager sendMailQueueManager = this.mocker.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        when(sendMailQueueManager.hasMessage()).thenReturn(true);
+
+        prepareMailQueueManager.addToQueue(new PrepareMailQueueItem(Arrays.asList(message1, message2, message3),
+            session, listener, UUID.randomUUID().toString(), context));
+
+        MailRunnable runnable = this.mocker.getComponentUnderTest();
+        Thread thread = new Thread(runnable);
+        thread.start();
+
+        try {
+            verify(listener, timeout(10000L)).onPrepareEnd(any());
+        } finally {
+            runnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        // The listener is notified of the 3 prepared mails at once, before they are put on the send queue
+        InOrder inOrder = inOrder(listener, sendMailQueueManager);
+        inOrder.verify(listener).group(any());
+        inOrder.verify(sendMailQueueManager, times(3)).putMessage(any(SendMailQueueItem.class));
+        verify(listener, times(3)).onPrepareMessageSuccess(any(ExtendedMimeMessage.class), any());
+    }
 }
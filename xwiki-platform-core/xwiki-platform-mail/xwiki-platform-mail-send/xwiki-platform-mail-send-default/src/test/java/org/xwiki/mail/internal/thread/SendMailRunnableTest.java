@@ -51,6 +51,7 @@
 import com.xpn.xwiki.XWikiContext;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -220,4 +221,57 @@ public void sendMailWhenMailRetrievalFails() throws Exception
         }
         assertEquals(2, errorCount);
     }
+
+    @Test
+    public void sendMailWithSeveralThreads() throws Exception
+    {
+        Session session = Session.getDefaultInstance(new Properties());
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(4);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+
+        for (int i = 0; i < 4; ++i) {
+            MimeMessage msg = new MimeMessage(session);
+            msg.setText("Content" + i);
+            ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+            String id = message.getUniqueMessageId();
+            listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+            when(contentStore.load(session, batchId, id)).thenThrow(new MailStoreException("Store failure " + id));
+            mailQueueManager.addToQueue(new SendMailQueueItem(id, session, listener, batchId, "xwiki"));
+        }
+
+        // Both threads take the mails from the same queue
+        Thread thread1 = new Thread(this.sendMailRunnable);
+        Thread thread2 = new Thread(this.sendMailRunnable);
+        thread1.start();
+        thread2.start();
+
+        // Wait for the mails to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread1.interrupt();
+            thread2.interrupt();
+            thread1.join();
+            thread2.join();
+        }
+
+        // Each mail has been handled exactly once
+        assertTrue(listener.getMailStatusResult().isProcessed());
+        Iterator<MailStatus> statuses = listener.getMailStatusResult().getByState(MailState.SEND_FATAL_ERROR);
+        int errorCount = 0;
+        while (statuses.hasNext()) {
+            statuses.next();
+            errorCount++;
+        }
+        assertEquals(4, errorCount);
+        assertFalse(mailQueueManager.hasMessage());
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -50,7 +52,7 @@
 @Component
 @Named("database")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class DatabaseMailListener extends AbstractMailListener implements Initializable
+public class DatabaseMailListener extends AbstractMailListener implements GroupingMailListener, Initializable
 {
     @Inject
     private Execution execution;
@@ -68,12 +70,42 @@ public class DatabaseMailListener extends AbstractMailListener implements Initia
 
     private DatabaseMailStatusResult mailStatusResult;
 
+    /**
+     * The status writes made by the current thread in the current group, to write them again if the group transaction
+     * fails. The listener of a batch is called by the prepare thread and by the send threads at the same time.
+     */
+    private final ThreadLocal<List<Runnable>> groupedWrites = new ThreadLocal<>();
+
     @Override
     public void initialize()
     {
         mailStatusResult = new DatabaseMailStatusResult(this.mailStatusStore);
     }
 
+    @Override
+    public void group(Runnable calls)
+    {
+        if (this.mailStatusStore instanceof DatabaseMailStatusStore && this.groupedWrites.get() == null) {
+            List<Runnable> writes = new ArrayList<>();
+            this.groupedWrites.set(writes);
+            try {
+                // Write all the statuses of the group in a single transaction
+                ((DatabaseMailStatusStore) this.mailStatusStore).executeInTransaction(calls);
+            } catch (MailStoreException e) {
+                logger.error("Failed to save the mail statuses of batch [{}] in a single transaction, saving them "
+                    + "one by one", getBatchId(), e);
+
+                // None of the statuses of the group have been written, write them separately
+                this.groupedWrites.remove();
+                writes.forEach(Runnable::run);
+            } finally {
+                this.groupedWrites.remove();
+            }
+        } else {
+            calls.run();
+        }
+    }
+
     @Override
     public void onPrepareBegin(String batchId, Map<String, Object> parameters)
     {
@@ -214,6 +246,8 @@ public MailStatusResult getMailStatusResult()
 
     private void saveStatus(MailStatus status, Map<String, Object> parameters)
     {
+        recordGroupedWrite(() -> saveStatus(status, parameters));
+
         try {
             mailStatusStore.save(status, parameters);
         } catch (MailStoreException e) {
@@ -224,6 +258,8 @@ private void saveStatus(MailStatus status, Map<String, Object> parameters)
 
     private void deleteStatus(MailStatus status, Map<String, Object> parameters)
     {
+        recordGroupedWrite(() -> deleteStatus(status, parameters));
+
         try {
             mailStatusStore.delete(status.getMessageId(), parameters);
         } catch (MailStoreException e) {
@@ -232,6 +268,14 @@ private void deleteStatus(MailStatus status, Map<String, Object> parameters)
         }
     }
 
+    private void recordGroupedWrite(Runnable write)
+    {
+        List<Runnable> writes = this.groupedWrites.get();
+        if (writes != null) {
+            writes.add(write);
+        }
+    }
+
     private void deleteMailContent(MailStatus currentStatus)
     {
         if (currentStatus != null) {
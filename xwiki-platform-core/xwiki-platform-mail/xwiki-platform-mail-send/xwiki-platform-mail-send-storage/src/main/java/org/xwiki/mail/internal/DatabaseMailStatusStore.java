@@ -29,6 +29,7 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.hibernate.Session;
 import org.hibernate.query.Query;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -74,10 +75,9 @@ public void save(final MailStatus status, final Map<String, Object> parameters)
         xwikiContext.setWikiId(xwikiContext.getMainXWiki());
 
         try {
-            // Delete any previous state of the message
-            delete(status.getMessageId(), parameters);
-
+            // Delete any previous state of the message and save the new one in the same transaction
             store.executeWrite(xwikiContext, session -> {
+                deleteStatus(session, status.getMessageId());
                 session.save(status);
                 return null;
             });
@@ -192,9 +192,7 @@ public void delete(final String uniqueMessageId, Map<String, Object> parameters)
 
         try {
             store.executeWrite(xwikiContext, session -> {
-                // Delete the message
-                String queryString = String.format("delete from %s where mail_id=:id", MailStatus.class.getName());
-                session.createQuery(queryString).setParameter(ID_PARAMETER_NAME, uniqueMessageId).executeUpdate();
+                deleteStatus(session, uniqueMessageId);
                 return null;
             });
         } catch (Exception e) {
@@ -205,6 +203,52 @@ public void delete(final String uniqueMessageId, Map<String, Object> parameters)
         }
     }
 
+    private void deleteStatus(Session session, String uniqueMessageId)
+    {
+        String queryString = String.format("delete from %s where mail_id=:id", MailStatus.class.getName());
+        session.createQuery(queryString).setParameter(ID_PARAMETER_NAME, uniqueMessageId).executeUpdate();
+    }
+
+    /**
+     * Execute the passed operations in a single database transaction. The statuses saved and deleted by the
+     * operations are written in this transaction instead of one transaction per status.
+     * <p>
+     * Contrary to {@code XWikiHibernateBaseStore#executeWrite()}, which only logs commit failures, a failure to commit
+     * the transaction is reported to the caller, in which case none of the statuses have been written.
+     *
+     * @param operations the operations to execute
+     * @throws MailStoreException when failing to execute the operations or to commit the transaction
+     * @since 12.10
+     */
+    public void executeInTransaction(Runnable operations) throws MailStoreException
+    {
+        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
+
+        XWikiContext xwikiContext = this.contextProvider.get();
+        // Write in the main wiki
+        String currentWiki = xwikiContext.getWikiId();
+        xwikiContext.setWikiId(xwikiContext.getMainXWiki());
+
+        try {
+            store.checkHibernate(xwikiContext);
+            boolean bTransaction = store.beginTransaction(xwikiContext);
+            boolean commit = false;
+            try {
+                operations.run();
+                commit = true;
+            } finally {
+                if (bTransaction) {
+                    // Throws an exception when failing to commit
+                    store.endTransaction(xwikiContext, commit);
+                }
+            }
+        } catch (Exception e) {
+            throw new MailStoreException("Failed to write the mail statuses to the database.", e);
+        } finally {
+            xwikiContext.setWikiId(currentWiki);
+        }
+    }
+
     protected String computeQueryString(String prefix, Map<String, Object> filterMap, String sortField,
         boolean sortAscending)
     {
@@ -29,7 +29,9 @@
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.xwiki.component.util.ReflectionUtils;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.mail.ExtendedMimeMessage;
@@ -50,7 +52,10 @@
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -113,6 +118,54 @@ void onPrepareSuccess() throws Exception
         verify(this.mailStatusStore).save(argThat(new isSameMailStatus(MailState.PREPARE_SUCCESS, "mywiki")), anyMap());
     }
 
+    @Test
+    void groupInTransaction() throws Exception
+    {
+        DatabaseMailStatusStore databaseStore = Mockito.mock(DatabaseMailStatusStore.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(databaseStore).executeInTransaction(any(Runnable.class));
+        ReflectionUtils.setFieldValue(this.listener, "mailStatusStore", databaseStore);
+
+        this.listener.onPrepareBegin(this.batchId, Collections.emptyMap());
+        this.listener.group(() -> this.listener.onPrepareMessageSuccess(this.message, Collections.emptyMap()));
+
+        InOrder inOrder = inOrder(databaseStore);
+        inOrder.verify(databaseStore).executeInTransaction(any(Runnable.class));
+        inOrder.verify(databaseStore).save(argThat(new isSameMailStatus(MailState.PREPARE_SUCCESS, "mywiki")),
+            anyMap());
+    }
+
+    @Test
+    void groupWhenTransactionFails() throws Exception
+    {
+        DatabaseMailStatusStore databaseStore = Mockito.mock(DatabaseMailStatusStore.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            // Failing to commit
+            throw new MailStoreException("error");
+        }).when(databaseStore).executeInTransaction(any(Runnable.class));
+        ReflectionUtils.setFieldValue(this.listener, "mailStatusStore", databaseStore);
+
+        this.listener.onPrepareBegin(this.batchId, Collections.emptyMap());
+        this.listener.group(() -> this.listener.onPrepareMessageSuccess(this.message, Collections.emptyMap()));
+
+        // The status is saved again, in its own transaction
+        InOrder inOrder = inOrder(databaseStore);
+        inOrder.verify(databaseStore).executeInTransaction(any(Runnable.class));
+        inOrder.verify(databaseStore, times(2))
+            .save(argThat(new isSameMailStatus(MailState.PREPARE_SUCCESS, "mywiki")), anyMap());
+
+        assertEquals("Failed to save the mail statuses of batch [" + this.batchId + "] in a single transaction, "
+            + "saving them one by one", this.logCapture.getMessage(0));
+
+        // The next statuses are not grouped anymore
+        this.listener.onPrepareMessageSuccess(this.message, Collections.emptyMap());
+        verify(databaseStore, times(3)).save(any(MailStatus.class), anyMap());
+        verify(databaseStore).executeInTransaction(any(Runnable.class));
+    }
+
     @Test
     void onPrepareError() throws Exception
     {
@@ -112,25 +112,22 @@ public WatchedLocationState isLocationWatched(Collection<NotificationFilterPrefe
             return state;
         }
 
-        Iterator<ScopeNotificationFilterPreference> it = preferences.getInclusiveFiltersThatHasNoParents();
-        if (!checkInclusiveFilters || !it.hasNext()) {
+        if (!checkInclusiveFilters || !preferences.hasInclusiveFiltersThatHasNoParents()) {
             // No inclusive filters ==  we get everything, so the location is watched
             return new WatchedLocationState(true);
         }
 
         boolean match = false;
         Date startingDate = null;
+        Iterator<ScopeNotificationFilterPreference> it = preferences.getInclusiveFiltersThatHasNoParents(location);
         while (it.hasNext()) {
             ScopeNotificationFilterPreference pref = it.next();
 
-            // If the inclusive filter match the event location...
-            if (match(pref, location)) {
-                // Then it means we watch this location
-                match = true;
-                if (startingDate == null
-                        || (pref.getStartingDate() != null && startingDate.after(pref.getStartingDate()))) {
-                    startingDate = pref.getStartingDate();
-                }
+            // The inclusive filter match the event location, so it means we watch this location
+            match = true;
+            if (startingDate == null
+                    || (pref.getStartingDate() != null && startingDate.after(pref.getStartingDate()))) {
+                startingDate = pref.getStartingDate();
             }
         }
 
@@ -146,14 +143,15 @@ private WatchedLocationState handleExclusiveFilters(EntityReference location,
         int deepestLevel = 0;
         Date startingDate = null;
 
-        Iterator<ScopeNotificationFilterPreference> it = preferences.getExclusiveFiltersThatHasNoParents();
+        // Only get the exclusive filters which match the event location
+        Iterator<ScopeNotificationFilterPreference> it = preferences.getExclusiveFiltersThatHasNoParents(location);
         while (it.hasNext()) {
             ScopeNotificationFilterPreference pref = it.next();
 
             int deepLevel = pref.getScopeReference().size();
 
-            // If the exclusive filter match the event location...
-            if (match(pref, location) && deepLevel > deepestLevel) {
+            // If the exclusive filter is deeper than the previous matching ones...
+            if (deepLevel > deepestLevel) {
                 state = WatchedState.NOT_WATCHED;
                 deepestLevel = deepLevel;
 
@@ -19,11 +19,16 @@
  */
 package org.xwiki.notifications.filters.internal.scope;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.notifications.filters.NotificationFilterType;
 import org.xwiki.text.XWikiToStringBuilder;
 
@@ -37,6 +42,16 @@
 {
     private List<ScopeNotificationFilterPreference> preferences;
 
+    /**
+     * The positions (in {@link #preferences}) of the top level exclusive filters, indexed by scope reference.
+     */
+    private final Map<EntityReference, List<Integer>> exclusiveFilters = new HashMap<>();
+
+    /**
+     * The positions (in {@link #preferences}) of the top level inclusive filters, indexed by scope reference.
+     */
+    private final Map<EntityReference, List<Integer>> inclusiveFilters = new HashMap<>();
+
     /**
      * Construct a hierarchy of scope notification filter preferences.
      * @param preferences a list of scope notification filter preferences.
@@ -46,19 +61,90 @@ public ScopeNotificationFilterPreferencesHierarchy(
     {
         this.preferences = preferences;
 
-        // Compare preferences 2 by 2 to see if some are children of the other
-        for (ScopeNotificationFilterPreference pref : preferences) {
-            for (ScopeNotificationFilterPreference otherPref : preferences) {
-                if (pref == otherPref) {
-                    continue;
+        // Only an exclusive filter can be the parent of an inclusive one (see
+        // ScopeNotificationFilterPreference#isParentOf()) so, instead of comparing the preferences 2 by 2, we look for
+        // the exclusive filters located on the parents of each inclusive filter
+        Map<EntityReference, List<Integer>> allExclusiveFilters = new HashMap<>();
+        for (int i = 0; i < preferences.size(); ++i) {
+            ScopeNotificationFilterPreference pref = preferences.get(i);
+            if (pref.getFilterType() == NotificationFilterType.EXCLUSIVE) {
+                index(allExclusiveFilters, pref, i);
+            }
+        }
+        if (!allExclusiveFilters.isEmpty()) {
+            for (ScopeNotificationFilterPreference pref : preferences) {
+                if (pref.getFilterType() == NotificationFilterType.INCLUSIVE && pref.getScopeReference() != null) {
+                    for (int position : getPositions(allExclusiveFilters, pref.getScopeReference(), false)) {
+                        preferences.get(position).addChild(pref);
+                    }
                 }
-                if (otherPref.isParentOf(pref)) {
-                    otherPref.addChild(pref);
+            }
+        }
+
+        for (int i = 0; i < preferences.size(); ++i) {
+            ScopeNotificationFilterPreference pref = preferences.get(i);
+            if (!pref.hasParent()) {
+                if (pref.getFilterType() == NotificationFilterType.EXCLUSIVE) {
+                    index(this.exclusiveFilters, pref, i);
+                } else if (pref.getFilterType() == NotificationFilterType.INCLUSIVE) {
+                    index(this.inclusiveFilters, pref, i);
                 }
             }
         }
     }
 
+    private static void index(Map<EntityReference, List<Integer>> index, ScopeNotificationFilterPreference pref,
+        int position)
+    {
+        index.computeIfAbsent(pref.getScopeReference(), k -> new ArrayList<>()).add(position);
+    }
+
+    /**
+     * @param index the filters indexed by scope reference
+     * @param reference the reference for which to find the filters
+     * @param includeReference {@code true} if the filters located on the reference itself should be included, {@code
+     *            false} to only consider the filters located on its parents
+     * @return the positions of the matching filters, in the order of the preferences list
+     */
+    private static List<Integer> getPositions(Map<EntityReference, List<Integer>> index, EntityReference reference,
+        boolean includeReference)
+    {
+        List<Integer> positions = new ArrayList<>();
+
+        if (includeReference) {
+            addPositions(index, reference, positions);
+        }
+
+        EntityReference parent = reference.getParent();
+        if (parent == null) {
+            // EntityReference#hasParent(null) is true for a reference without parent
+            addPositions(index, null, positions);
+        }
+        for (; parent != null; parent = parent.getParent()) {
+            addPositions(index, parent, positions);
+        }
+
+        // The result of the evaluation of the filters may depend on their order
+        Collections.sort(positions);
+
+        return positions;
+    }
+
+    private static void addPositions(Map<EntityReference, List<Integer>> index, EntityReference reference,
+        List<Integer> positions)
+    {
+        List<Integer> referencePositions = index.get(reference);
+        if (referencePositions != null) {
+            positions.addAll(referencePositions);
+        }
+    }
+
+    private Iterator<ScopeNotificationFilterPreference> getFilters(Map<EntityReference, List<Integer>> index,
+        EntityReference location)
+    {
+        return getPositions(index, location, true).stream().map(this.preferences::get).iterator();
+    }
+
     /**
      * @return an iterator to get top level exclusive filters (ie the black list)
      */
@@ -79,6 +165,37 @@ public Iterator<ScopeNotificationFilterPreference> getInclusiveFiltersThatHasNoP
         ).iterator();
     }
 
+    /**
+     * @param location a location
+     * @return an iterator to get the top level exclusive filters (ie the black list) matching the given location or one
+     *         of its parents
+     * @since 12.10
+     */
+    public Iterator<ScopeNotificationFilterPreference> getExclusiveFiltersThatHasNoParents(EntityReference location)
+    {
+        return getFilters(this.exclusiveFilters, location);
+    }
+
+    /**
+     * @param location a location
+     * @return an iterator to get the top level inclusive filters (ie the white list) matching the given location or one
+     *         of its parents
+     * @since 12.10
+     */
+    public Iterator<ScopeNotificationFilterPreference> getInclusiveFiltersThatHasNoParents(EntityReference location)
+    {
+        return getFilters(this.inclusiveFilters, location);
+    }
+
+    /**
+     * @return {@code true} if the hierarchy contains top level inclusive filters
+     * @since 12.10
+     */
+    public boolean hasInclusiveFiltersThatHasNoParents()
+    {
+        return !this.inclusiveFilters.isEmpty();
+    }
+
     /**
      * @return if the hierarchy is empty
      */
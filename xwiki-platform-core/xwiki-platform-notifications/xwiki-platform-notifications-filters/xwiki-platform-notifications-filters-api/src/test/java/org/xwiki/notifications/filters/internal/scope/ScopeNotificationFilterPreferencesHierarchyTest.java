@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.filters.internal.scope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ScopeNotificationFilterPreferencesHierarchy}.
+ *
+ * @version $Id$
+ */
+class ScopeNotificationFilterPreferencesHierarchyTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final SpaceReference SPACE = new SpaceReference("Space", WIKI);
+
+    private static final SpaceReference SUB_SPACE = new SpaceReference("Sub", SPACE);
+
+    private static final DocumentReference DOCUMENT = new DocumentReference("Page", SUB_SPACE);
+
+    private final EntityReferenceResolver<String> resolver = mock(EntityReferenceResolver.class);
+
+    private ScopeNotificationFilterPreference createPreference(String id, NotificationFilterType type,
+        EntityReference scope)
+    {
+        NotificationFilterPreference preference = mock(NotificationFilterPreference.class);
+        when(preference.getId()).thenReturn(id);
+        when(preference.getFilterType()).thenReturn(type);
+        when(preference.getPage()).thenReturn(id);
+        when(this.resolver.resolve(any(String.class), any())).thenReturn(scope);
+
+        return new ScopeNotificationFilterPreference(preference, this.resolver);
+    }
+
+    private static List<ScopeNotificationFilterPreference> toList(Iterator<ScopeNotificationFilterPreference> it)
+    {
+        List<ScopeNotificationFilterPreference> list = new ArrayList<>();
+        it.forEachRemaining(list::add);
+
+        return list;
+    }
+
+    @Test
+    void getFiltersMatchingLocation()
+    {
+        ScopeNotificationFilterPreference inclusiveSubSpace =
+            createPreference("inclusiveSubSpace", NotificationFilterType.INCLUSIVE, SUB_SPACE);
+        ScopeNotificationFilterPreference exclusiveSpace =
+            createPreference("exclusiveSpace", NotificationFilterType.EXCLUSIVE, SPACE);
+        ScopeNotificationFilterPreference inclusiveWiki =
+            createPreference("inclusiveWiki", NotificationFilterType.INCLUSIVE, WIKI);
+        ScopeNotificationFilterPreference inclusiveDocument =
+            createPreference("inclusiveDocument", NotificationFilterType.INCLUSIVE, DOCUMENT);
+        ScopeNotificationFilterPreference inclusiveOther = createPreference("inclusiveOther",
+            NotificationFilterType.INCLUSIVE, new SpaceReference("Other", WIKI));
+
+        ScopeNotificationFilterPreferencesHierarchy hierarchy = new ScopeNotificationFilterPreferencesHierarchy(
+            Arrays.asList(inclusiveSubSpace, exclusiveSpace, inclusiveWiki, inclusiveDocument, inclusiveOther));
+
+        // The inclusive filters located under the exclusive one are its children
+        assertEquals(Arrays.asList(inclusiveSubSpace, inclusiveDocument), exclusiveSpace.getChildren());
+        assertTrue(inclusiveSubSpace.hasParent());
+        assertTrue(inclusiveDocument.hasParent());
+        assertFalse(inclusiveWiki.hasParent());
+        assertFalse(inclusiveOther.hasParent());
+
+        assertEquals(Collections.singletonList(exclusiveSpace),
+            toList(hierarchy.getExclusiveFiltersThatHasNoParents(DOCUMENT)));
+        assertEquals(Collections.emptyList(), toList(hierarchy.getExclusiveFiltersThatHasNoParents(WIKI)));
+        assertEquals(Collections.singletonList(inclusiveWiki),
+            toList(hierarchy.getInclusiveFiltersThatHasNoParents(DOCUMENT)));
+        assertEquals(Arrays.asList(inclusiveWiki, inclusiveOther), toList(
+            hierarchy.getInclusiveFiltersThatHasNoParents(new DocumentReference("wiki", "Other", "Page"))));
+        assertEquals(Collections.emptyList(),
+            toList(hierarchy.getInclusiveFiltersThatHasNoParents(new WikiReference("otherwiki"))));
+        assertTrue(hierarchy.hasInclusiveFiltersThatHasNoParents());
+
+        // Without location, all the top level filters are returned
+        assertEquals(Arrays.asList(exclusiveSpace), toList(hierarchy.getExclusiveFiltersThatHasNoParents()));
+        assertEquals(Arrays.asList(inclusiveWiki, inclusiveOther),
+            toList(hierarchy.getInclusiveFiltersThatHasNoParents()));
+    }
+
+    @Test
+    void getFiltersMatchingLocationForManyUsers()
+    {
+        // A pool of locations shared by the preferences of the users and the events
+        List<EntityReference> locations = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            WikiReference wiki = new WikiReference("wiki" + i);
+            locations.add(wiki);
+            for (int j = 0; j < 5; ++j) {
+                SpaceReference space = new SpaceReference("Space" + j, wiki);
+                locations.add(space);
+                for (int k = 0; k < 3; ++k) {
+                    SpaceReference subSpace = new SpaceReference("Sub" + k, space);
+                    locations.add(subSpace);
+                    locations.add(new DocumentReference("Page", subSpace));
+                }
+                locations.add(new DocumentReference("WebHome", space));
+            }
+        }
+
+        Random random = new Random(42);
+        for (int user = 0; user < 200; ++user) {
+            List<ScopeNotificationFilterPreference> preferences = new ArrayList<>();
+            for (int i = random.nextInt(8); i > 0; --i) {
+                preferences.add(createPreference("user" + user + '-' + i,
+                    random.nextBoolean() ? NotificationFilterType.INCLUSIVE : NotificationFilterType.EXCLUSIVE,
+                    locations.get(random.nextInt(locations.size()))));
+            }
+
+            ScopeNotificationFilterPreferencesHierarchy hierarchy =
+                new ScopeNotificationFilterPreferencesHierarchy(preferences);
+
+            // The filters found through the index are the same (and in the same order) as the ones found by matching
+            // each top level filter against the location
+            for (EntityReference location : locations) {
+                assertEquals(match(hierarchy.getExclusiveFiltersThatHasNoParents(), location),
+                    toList(hierarchy.getExclusiveFiltersThatHasNoParents(location)), location.toString());
+                assertEquals(match(hierarchy.getInclusiveFiltersThatHasNoParents(), location),
+                    toList(hierarchy.getInclusiveFiltersThatHasNoParents(location)), location.toString());
+            }
+        }
+    }
+
+    private static List<ScopeNotificationFilterPreference> match(Iterator<ScopeNotificationFilterPreference> it,
+        EntityReference location)
+    {
+        return toList(it).stream().filter(pref -> location.equals(pref.getScopeReference())
+            || location.hasParent(pref.getScopeReference())).collect(Collectors.toList());
+    }
+}
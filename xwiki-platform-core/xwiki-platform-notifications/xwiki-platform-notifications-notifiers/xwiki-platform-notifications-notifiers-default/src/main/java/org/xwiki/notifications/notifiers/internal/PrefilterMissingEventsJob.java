@@ -28,12 +28,12 @@
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.eventstream.Event;
-import org.xwiki.eventstream.EventSearchResult;
 import org.xwiki.eventstream.EventStore;
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.RecordableEventDescriptor;
 import org.xwiki.eventstream.RecordableEventDescriptorManager;
 import org.xwiki.eventstream.query.SimpleEventQuery;
+import org.xwiki.eventstream.query.SortableEventQuery.SortClause.Order;
 import org.xwiki.job.AbstractJob;
 import org.xwiki.job.Request;
 import org.xwiki.job.event.status.JobStatus;
@@ -80,28 +80,41 @@ protected void runInternal() throws Exception
         Set<String> types =
             descriptorList.stream().map(RecordableEventDescriptor::getEventType).collect(Collectors.toSet());
 
-        // Create a search request for events which haven't been prefiltered yet
-        SimpleEventQuery query = new SimpleEventQuery();
-        query.eq(org.xwiki.eventstream.Event.FIELD_PREFILTERED, false);
-        query.setLimit(BATCH_SIZE);
-
         try {
+            Event after = null;
             do {
-                EventSearchResult result = this.eventStore.search(query);
+                List<Event> events = this.eventStore.search(createQuery(after)).stream().collect(Collectors.toList());
 
-                result.stream().forEach(event -> prefilterEvent(event, types));
+                events.forEach(event -> prefilterEvent(event, types));
 
-                if (result.getSize() < BATCH_SIZE) {
+                if (events.size() < BATCH_SIZE) {
                     break;
                 }
 
-                query.setOffset(result.getOffset() + BATCH_SIZE);
+                // The dispatched events don't match the query anymore so continue after the last event instead of
+                // using an offset which would skip some events
+                after = events.get(events.size() - 1);
             } while (true);
         } catch (EventStreamException e) {
             this.logger.error("Failed to search events for which pre filtering was missed", e);
         }
     }
 
+    private SimpleEventQuery createQuery(Event after)
+    {
+        // Create a search request for events which haven't been prefiltered yet
+        SimpleEventQuery query = new SimpleEventQuery();
+        query.eq(Event.FIELD_PREFILTERED, false);
+        if (after != null) {
+            query.after(after, Order.ASC);
+        }
+        query.addSort(Event.FIELD_DATE, Order.ASC);
+        query.addSort(Event.FIELD_ID, Order.ASC);
+        query.setLimit(BATCH_SIZE);
+
+        return query;
+    }
+
     private void prefilterEvent(Event eventStreamEvent, Set<String> types)
     {
         if (types.contains(eventStreamEvent.getType())) {
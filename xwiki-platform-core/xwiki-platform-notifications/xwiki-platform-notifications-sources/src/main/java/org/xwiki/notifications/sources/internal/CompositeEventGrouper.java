@@ -0,0 +1,375 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.xwiki.eventstream.Event;
+import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.internal.SimilarityCalculator;
+
+/**
+ * Group similar events into {@link CompositeEvent}s.
+ * <p>
+ * The events already grouped are indexed by the properties {@link SimilarityCalculator} relies on (document, type and
+ * group id) so that finding the most similar event for a new event only looks at the events which can actually be
+ * similar to it instead of comparing it with every event already grouped.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+public class CompositeEventGrouper
+{
+    /**
+     * The kinds of index in which the events are stored.
+     */
+    private enum IndexType
+    {
+        /**
+         * Events with the same document and type.
+         */
+        DOCUMENT_TYPE,
+
+        /**
+         * Events with the same document and group id.
+         */
+        DOCUMENT_GROUP,
+
+        /**
+         * Events with the same type (whatever their document).
+         */
+        TYPE
+    }
+
+    private final SimilarityCalculator similarityCalculator;
+
+    private final List<CompositeEvent> compositeEvents;
+
+    /**
+     * The events indexed by key, then by composite event and finally by type. For a given composite event and type only
+     * the first event (in the order of {@link CompositeEvent#getEvents()}) is kept since the others would be equally
+     * similar.
+     */
+    private final Map<List<Object>, Map<CompositeEvent, Map<String, Event>>> index = new HashMap<>();
+
+    /**
+     * The position of each composite event in the results.
+     */
+    private final Map<CompositeEvent, Integer> positions = new IdentityHashMap<>();
+
+    /**
+     * The order in which the events have been added to their composite event.
+     */
+    private final Map<Event, Long> sequences = new IdentityHashMap<>();
+
+    private long sequence;
+
+    private class BestSimilarity
+    {
+        public int value;
+
+        public CompositeEvent compositeEvent;
+
+        public Event event;
+
+        public boolean isCompositeEventCompatibleWith(Event event)
+        {
+            // Here we have a composite event made of A and B.
+            // - if A is a "create" or an "update" event
+            // - if A and B have the same groupId (which means A or B is a "create" or an "update" event basically)
+            // - if B has the same type than E
+            // (or vice versa)
+            // It means the "update" event A has been triggered for technical reason, but the interesting event is
+            // B, which we can group with the event E even if it lowers the similarity between the events.
+            return compositeEvent
+                .getSimilarityBetweenEvents() >= SimilarityCalculator.SAME_GROUP_ID_AND_DOCUMENT_BUT_DIFFERENT_TYPES
+                && compositeEvent.getType().equals(event.getType());
+        }
+
+        public boolean isBetter(int similarity, CompositeEvent otherCompositeEvent, Event otherEvent)
+        {
+            if (similarity != this.value) {
+                return similarity > this.value;
+            }
+
+            if (this.compositeEvent == null) {
+                // Events without any similarity are never grouped
+                return false;
+            }
+
+            // Same result as when comparing the events in the order of the composite events and of their events
+            if (otherCompositeEvent != this.compositeEvent) {
+                return positions.get(otherCompositeEvent) < positions.get(this.compositeEvent);
+            }
+
+            return isBefore(otherEvent, this.event);
+        }
+    }
+
+    /**
+     * @param similarityCalculator the component used to compute the similarity between two events
+     * @param compositeEvents the list in which to add the composite events
+     */
+    public CompositeEventGrouper(SimilarityCalculator similarityCalculator, List<CompositeEvent> compositeEvents)
+    {
+        this.similarityCalculator = similarityCalculator;
+        this.compositeEvents = compositeEvents;
+
+        for (int i = 0; i < compositeEvents.size(); ++i) {
+            CompositeEvent compositeEvent = compositeEvents.get(i);
+            this.positions.put(compositeEvent, i);
+            for (Event event : compositeEvent.getEvents()) {
+                index(compositeEvent, event);
+            }
+        }
+    }
+
+    /**
+     * Add the event to the most similar composite event, or to a new composite event if there is none.
+     *
+     * @param event the event to add
+     * @throws NotificationException when failing to add the event
+     */
+    public void add(Event event) throws NotificationException
+    {
+        BestSimilarity bestSimilarity = getBestSimilarity(event);
+
+        if (bestSimilarity.compositeEvent != null) {
+            if (bestSimilarity.value > bestSimilarity.compositeEvent.getSimilarityBetweenEvents()
+                && bestSimilarity.compositeEvent.getEvents().size() > 1) {
+                // We have found an event A inside a composite event C1 that have a greater similarity with the event E
+                // than the similarity between events (A, B, C) of that composite event (C1).
+                //
+                // It means we must remove the existing event A from that composite event C1 and create a new composite
+                // event C2 made of A and E.
+                remove(bestSimilarity.compositeEvent, bestSimilarity.event);
+
+                // Instead of creating a new composite event with A and E, we first look if an other composite event can
+                // match with A and E.
+                BestSimilarity bestSecondChoice = getBestSimilarity(event);
+                if (bestSecondChoice.compositeEvent != null && bestSecondChoice.isCompositeEventCompatibleWith(event)) {
+                    // We have found a composite event C2 made of events (X, Y) which have a greater similarity between
+                    // themselves than between X and the event E.
+                    // It means we cannot add E in C2.
+                    // But there is actually an exception:
+                    // - if X is a "create" or an "update" event
+                    // - if X and Y have the same groupId
+                    // - if Y has the same type than E
+                    // (or vice versa)
+                    // It means the "update" event X has been triggered for technical reason, but the interesting event
+                    // is Y, which we can group with the event E.
+                    add(bestSecondChoice.compositeEvent, bestSimilarity.event,
+                        bestSecondChoice.compositeEvent.getSimilarityBetweenEvents());
+                    add(bestSecondChoice.compositeEvent, event,
+                        bestSecondChoice.compositeEvent.getSimilarityBetweenEvents());
+                } else {
+                    CompositeEvent newCompositeEvent = create(event);
+                    add(newCompositeEvent, bestSimilarity.event, bestSimilarity.value);
+                }
+
+                return;
+            } else if (bestSimilarity.value >= bestSimilarity.compositeEvent.getSimilarityBetweenEvents()) {
+                // We have found a composite event C1 made of events (A, B, C) which have the same similarity between
+                // themselves than between A end E.
+                // All we need to do it to add E to C1.
+                add(bestSimilarity.compositeEvent, event, bestSimilarity.value);
+                return;
+            } else if (bestSimilarity.isCompositeEventCompatibleWith(event)) {
+                // We have found a composite event C1 made of events (A, B) which have a greater similarity between
+                // themselves than between A and the event E.
+                // It means we cannot add E in C1.
+                // But there is actually an exception:
+                // - if A is a "create" or an "update" event
+                // - if A and B have the same groupId
+                // - if B has the same type than E
+                // (or vice versa)
+                // It means the "update" event A has been triggered for technical reason, but the interesting event is
+                // B, which we can group with the event E.
+                add(bestSimilarity.compositeEvent, event, bestSimilarity.compositeEvent.getSimilarityBetweenEvents());
+                return;
+            }
+        }
+        // We haven't found an event that is similar to the current one, so we create a new composite event
+        create(event);
+    }
+
+    private CompositeEvent create(Event event)
+    {
+        CompositeEvent compositeEvent = new CompositeEvent(event);
+
+        this.positions.put(compositeEvent, this.compositeEvents.size());
+        this.compositeEvents.add(compositeEvent);
+        index(compositeEvent, event);
+
+        return compositeEvent;
+    }
+
+    private void add(CompositeEvent compositeEvent, Event event, int similarity) throws NotificationException
+    {
+        compositeEvent.add(event, similarity);
+        index(compositeEvent, event);
+    }
+
+    private void remove(CompositeEvent compositeEvent, Event event)
+    {
+        compositeEvent.remove(event);
+        unindex(compositeEvent, event);
+    }
+
+    private BestSimilarity getBestSimilarity(Event event)
+    {
+        BestSimilarity bestSimilarity = new BestSimilarity();
+
+        // Looking for the most similar event inside the existing composite events which have a chance to be similar
+        for (List<Object> key : getSearchKeys(event)) {
+            Map<CompositeEvent, Map<String, Event>> candidates = this.index.get(key);
+            if (candidates != null) {
+                for (Map.Entry<CompositeEvent, Map<String, Event>> entry : candidates.entrySet()) {
+                    CompositeEvent existingCompositeEvent = entry.getKey();
+                    for (Event existingEvent : entry.getValue().values()) {
+                        int similarity = this.similarityCalculator.computeSimilarity(event, existingEvent);
+                        if (similarity < existingCompositeEvent.getSimilarityBetweenEvents()) {
+                            // Penality
+                            similarity -= 5;
+                        }
+                        if (bestSimilarity.isBetter(similarity, existingCompositeEvent, existingEvent)) {
+                            bestSimilarity.value = similarity;
+                            bestSimilarity.event = existingEvent;
+                            bestSimilarity.compositeEvent = existingCompositeEvent;
+                        }
+                    }
+                }
+            }
+        }
+
+        return bestSimilarity;
+    }
+
+    /**
+     * @return the keys of the indexes containing the events which might be similar to the passed event (see
+     *         {@link SimilarityCalculator#computeSimilarity(Event, Event)})
+     */
+    private List<List<Object>> getSearchKeys(Event event)
+    {
+        List<List<Object>> keys = new ArrayList<>(2);
+
+        if (event.getDocument() != null) {
+            if (event.getType() != null) {
+                keys.add(Arrays.asList(IndexType.DOCUMENT_TYPE, event.getDocument(), event.getType()));
+            }
+            if (event.getGroupId() != null) {
+                keys.add(Arrays.asList(IndexType.DOCUMENT_GROUP, event.getDocument(), event.getGroupId()));
+            }
+        } else if (event.getType() != null) {
+            keys.add(Arrays.asList(IndexType.TYPE, event.getType()));
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return the keys of the indexes in which to store the passed event
+     */
+    private List<List<Object>> getIndexKeys(Event event)
+    {
+        List<List<Object>> keys = new ArrayList<>(3);
+
+        if (event.getDocument() != null) {
+            if (event.getType() != null) {
+                keys.add(Arrays.asList(IndexType.DOCUMENT_TYPE, event.getDocument(), event.getType()));
+            }
+            if (event.getGroupId() != null) {
+                keys.add(Arrays.asList(IndexType.DOCUMENT_GROUP, event.getDocument(), event.getGroupId()));
+            }
+        }
+        if (event.getType() != null) {
+            keys.add(Arrays.asList(IndexType.TYPE, event.getType()));
+        }
+
+        return keys;
+    }
+
+    private void index(CompositeEvent compositeEvent, Event event)
+    {
+        this.sequences.put(event, this.sequence++);
+
+        for (List<Object> key : getIndexKeys(event)) {
+            Map<String, Event> events = this.index.computeIfAbsent(key, k -> new IdentityHashMap<>())
+                .computeIfAbsent(compositeEvent, c -> new HashMap<>());
+
+            Event currentEvent = events.get(event.getType());
+            if (currentEvent == null || isBefore(event, currentEvent)) {
+                events.put(event.getType(), event);
+            }
+        }
+    }
+
+    private void unindex(CompositeEvent compositeEvent, Event event)
+    {
+        this.sequences.remove(event);
+
+        for (List<Object> key : getIndexKeys(event)) {
+            Map<CompositeEvent, Map<String, Event>> candidates = this.index.get(key);
+            Map<String, Event> events = candidates.get(compositeEvent);
+
+            if (events.get(event.getType()) == event) {
+                // Find the next event of the composite event to put in the index
+                Event replacement = null;
+                for (Event otherEvent : compositeEvent.getEvents()) {
+                    if (Objects.equals(otherEvent.getType(), event.getType())
+                        && getIndexKeys(otherEvent).contains(key)) {
+                        replacement = otherEvent;
+                        break;
+                    }
+                }
+
+                if (replacement != null) {
+                    events.put(event.getType(), replacement);
+                } else {
+                    events.remove(event.getType());
+                    if (events.isEmpty()) {
+                        candidates.remove(compositeEvent);
+                        if (candidates.isEmpty()) {
+                            this.index.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the first event is located before the second one in their composite event (which sorts
+     *         the events by descending date, keeping the addition order for events with the same date)
+     */
+    private boolean isBefore(Event event1, Event event2)
+    {
+        int result = event2.getDate().compareTo(event1.getDate());
+
+        return result != 0 ? result < 0 : this.sequences.get(event1) < this.sequences.get(event2);
+    }
+}
@@ -117,22 +117,24 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
         // Because the user might not be able to see all notifications because of the rights, we take from the database
         // more events than expected and we will filter afterwards.
         int batchSize = parameters.expectedCount * 2;
-        int offset = 0;
+        // Continue after the last event of the previous batch instead of using an offset which is costly to skip
+        Event after = null;
+        CompositeEventGrouper grouper = new CompositeEventGrouper(this.similarityCalculator, results);
         try {
 
             boolean done = false;
             while (!done) {
                 // Get a batch of events
-                List<Event> batch = this.eventSearcher.searchEvents(offset, batchSize, parameters);
+                List<Event> batch = this.eventSearcher.searchEvents(after, batchSize, parameters);
 
-                done = addMatchingEventsToResults(batch, parameters, results);
+                done = addMatchingEventsToResults(batch, parameters, results, grouper);
                 if (!done) {
-                    if (batch.size() < batchSize) {
+                    if (batch.isEmpty() || batch.size() < batchSize) {
                         // there are no more results to expect. stop.
                         done = true;
                     } else {
                         // grab a larger batch size next time to get more possible results
-                        offset += batchSize;
+                        after = batch.get(batch.size() - 1);
                         if (batchSize < MAX_BATCH_SIZE) {
                             batchSize <<= 1;
                         }
@@ -147,7 +149,7 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
     }
 
     private boolean addMatchingEventsToResults(List<Event> batch, NotificationParameters parameters,
-        List<CompositeEvent> results) throws EventStreamException, NotificationException
+        List<CompositeEvent> results, CompositeEventGrouper grouper) throws EventStreamException, NotificationException
     {
         boolean done = false;
         // Add to the results the events the user has the right to see
@@ -165,7 +167,7 @@ private boolean addMatchingEventsToResults(List<Event> batch, NotificationParame
             }
 
             // Record this event
-            recordEvent(results, event);
+            grouper.add(event);
             // If the expected count is reached, stop now
             if (results.size() >= parameters.expectedCount) {
                 done = true;
@@ -258,114 +260,4 @@ private List<String> getEventsIds(List<Event> events)
     {
         return events.stream().map(Event::getId).collect(Collectors.toList());
     }
-
-    private class BestSimilarity
-    {
-        public int value;
-
-        public CompositeEvent compositeEvent;
-
-        public Event event;
-
-        public boolean isCompositeEventCompatibleWith(Event event)
-        {
-            // Here we have a composite event made of A and B.
-            // - if A is a "create" or an "update" event
-            // - if A and B have the same groupId (which means A or B is a "create" or an "update" event basically)
-            // - if B has the same type than E
-            // (or vice versa)
-            // It means the "update" event A has been triggered for technical reason, but the interesting event is
-            // B, which we can group with the event E even if it lowers the similarity between the events.
-            return compositeEvent
-                .getSimilarityBetweenEvents() >= SimilarityCalculator.SAME_GROUP_ID_AND_DOCUMENT_BUT_DIFFERENT_TYPES
-                && compositeEvent.getType().equals(event.getType());
-        }
-    }
-
-    private void recordEvent(List<CompositeEvent> results, Event event) throws NotificationException
-    {
-        BestSimilarity bestSimilarity = getBestSimilarity(results, event);
-
-        if (bestSimilarity.compositeEvent != null) {
-            if (bestSimilarity.value > bestSimilarity.compositeEvent.getSimilarityBetweenEvents()
-                && bestSimilarity.compositeEvent.getEvents().size() > 1) {
-                // We have found an event A inside a composite event C1 that have a greater similarity with the event E
-                // than the similarity between events (A, B, C) of that composite event (C1).
-                //
-                // It means we must remove the existing event A from that composite event C1 and create a new composite
-                // event C2 made of A and E.
-                bestSimilarity.compositeEvent.remove(bestSimilarity.event);
-
-                // Instead of creating a new composite event with A and E, we first look if an other composite event can
-                // match with A and E.
-                BestSimilarity bestSecondChoice = getBestSimilarity(results, event);
-                if (bestSecondChoice.compositeEvent != null && bestSecondChoice.isCompositeEventCompatibleWith(event)) {
-                    // We have found a composite event C2 made of events (X, Y) which have a greater similarity between
-                    // themselves than between X and the event E.
-                    // It means we cannot add E in C2.
-                    // But there is actually an exception:
-                    // - if X is a "create" or an "update" event
-                    // - if X and Y have the same groupId
-                    // - if Y has the same type than E
-                    // (or vice versa)
-                    // It means the "update" event X has been triggered for technical reason, but the interesting event
-                    // is Y, which we can group with the event E.
-                    bestSecondChoice.compositeEvent.add(bestSimilarity.event,
-                        bestSecondChoice.compositeEvent.getSimilarityBetweenEvents());
-                    bestSecondChoice.compositeEvent.add(event,
-                        bestSecondChoice.compositeEvent.getSimilarityBetweenEvents());
-                } else {
-                    CompositeEvent newCompositeEvent = new CompositeEvent(event);
-                    newCompositeEvent.add(bestSimilarity.event, bestSimilarity.value);
-                    results.add(newCompositeEvent);
-                }
-
-                return;
-            } else if (bestSimilarity.value >= bestSimilarity.compositeEvent.getSimilarityBetweenEvents()) {
-                // We have found a composite event C1 made of events (A, B, C) which have the same similarity between
-                // themselves than between A end E.
-                // All we need to do it to add E to C1.
-                bestSimilarity.compositeEvent.add(event, bestSimilarity.value);
-                return;
-            } else if (bestSimilarity.isCompositeEventCompatibleWith(event)) {
-                // We have found a composite event C1 made of events (A, B) which have a greater similarity between
-                // themselves than between A and the event E.
-                // It means we cannot add E in C1.
-                // But there is actually an exception:
-                // - if A is a "create" or an "update" event
-                // - if A and B have the same groupId
-                // - if B has the same type than E
-                // (or vice versa)
-                // It means the "update" event A has been triggered for technical reason, but the interesting event is
-                // B, which we can group with the event E.
-                bestSimilarity.compositeEvent.add(event, bestSimilarity.compositeEvent.getSimilarityBetweenEvents());
-                return;
-            }
-        }
-        // We haven't found an event that is similar to the current one, so we create a new composite event
-        results.add(new CompositeEvent(event));
-    }
-
-    private BestSimilarity getBestSimilarity(List<CompositeEvent> results, Event event)
-    {
-        BestSimilarity bestSimilarity = new BestSimilarity();
-
-        // Looking for the most similar event inside the existing composite events
-        for (CompositeEvent existingCompositeEvent : results) {
-            for (Event existingEvent : existingCompositeEvent.getEvents()) {
-                int similarity = similarityCalculator.computeSimilarity(event, existingEvent);
-                if (similarity < existingCompositeEvent.getSimilarityBetweenEvents()) {
-                    // Penality
-                    similarity -= 5;
-                }
-                if (similarity > bestSimilarity.value) {
-                    bestSimilarity.value = similarity;
-                    bestSimilarity.event = existingEvent;
-                    bestSimilarity.compositeEvent = existingCompositeEvent;
-                }
-            }
-        }
-
-        return bestSimilarity;
-    }
 }
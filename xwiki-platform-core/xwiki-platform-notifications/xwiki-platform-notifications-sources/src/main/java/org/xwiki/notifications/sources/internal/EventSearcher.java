@@ -35,6 +35,7 @@
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.query.SimpleEventQuery;
+import org.xwiki.eventstream.query.SortableEventQuery.SortClause.Order;
 import org.xwiki.notifications.sources.NotificationParameters;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
@@ -68,44 +69,54 @@
     private Logger logger;
 
     /**
-     * @param offset the index where to start returning events
+     * Search the events sorted by descending date and id, starting after the passed event. Continuing after the last
+     * event of the previous page (instead of using an offset) keeps the search cheap whatever the page.
+     *
+     * @param after the last event of the previous page, {@code null} to start from the beginning
      * @param limit the maximum number of events to return
      * @param parameters parameters to use
      * @return the found events
      * @throws QueryException when to search the events
      * @throws EventStreamException when to search the events
+     * @since 12.10
      */
-    public List<Event> searchEvents(int offset, int limit, NotificationParameters parameters)
+    public List<Event> searchEvents(Event after, int limit, NotificationParameters parameters)
         throws QueryException, EventStreamException
     {
         // Try event store if enabled
         if (this.configuration.isEventStoreEnabled()) {
             try {
-                return searchStoreEvents(offset, limit, parameters);
+                return searchStoreEvents(after, limit, parameters);
             } catch (EventStreamException e) {
                 this.logger.debug("Failed to get events from the EventStore. Trying on the legacy store", e);
             }
         }
 
         // Fallback on legacy event stream
-        return searchStreamEvents(offset, limit, parameters);
+        return searchStreamEvents(after, limit, parameters);
     }
 
     /**
-     * @param offset the index where to start returning events
+     * @param after the last event of the previous page, {@code null} to start from the beginning
      * @param limit the maximum number of events to return
      * @param parameters parameters to use
      * @return the found events
-     * @throws QueryException when to search the events
      * @throws EventStreamException when to search the events
+     * @since 12.10
      */
-    public List<Event> searchStoreEvents(int offset, int limit, NotificationParameters parameters)
+    public List<Event> searchStoreEvents(Event after, int limit, NotificationParameters parameters)
         throws EventStreamException
     {
         // Create the query
         SimpleEventQuery query = this.eventQueryGenerator.generateQuery(parameters);
 
-        query.setLimit(limit).setOffset(offset);
+        // Make the order stable for events with the same date
+        query.addSort(Event.FIELD_ID, Order.DESC);
+        if (after != null) {
+            query.after(after, Order.DESC);
+        }
+
+        query.setLimit(limit);
 
         // Get a batch of events
         EventSearchResult result = this.eventStore.search(query);
@@ -114,22 +125,23 @@ public List<Event> searchStoreEvents(int offset, int limit, NotificationParamete
     }
 
     /**
-     * @param offset the index where to start returning events
+     * @param after the last event of the previous page, {@code null} to start from the beginning
      * @param limit the maximum number of events to return
      * @param parameters parameters to use
      * @return the found events
      * @throws QueryException when to search the events
      * @throws EventStreamException when to search the events
+     * @since 12.10
      */
-    public List<Event> searchStreamEvents(int offset, int limit, NotificationParameters parameters)
+    public List<Event> searchStreamEvents(Event after, int limit, NotificationParameters parameters)
         throws QueryException, EventStreamException
     {
         // Create the query
-        Query query = this.queryGenerator.generateQuery(parameters);
+        Query query = this.queryGenerator.generateQuery(parameters, after);
         if (query == null) {
             return Collections.emptyList();
         }
-        query.setLimit(limit).setOffset(offset);
+        query.setLimit(limit);
 
         // Get a batch of events
         return this.eventStream.searchEvents(query);
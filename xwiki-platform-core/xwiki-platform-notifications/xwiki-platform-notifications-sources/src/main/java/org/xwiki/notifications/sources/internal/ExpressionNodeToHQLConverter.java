@@ -290,7 +290,9 @@ private String parseOtherOperation(AbstractOperatorNode operator, HQLQuery resul
             result.getQueryParameters().putAll(inSubQueryOperator.getParameters());
         } else if (operator instanceof OrderByNode) {
             OrderByNode orderByNode = (OrderByNode) operator;
-            returnValue = String.format("%s ORDER BY %s %s", parseBlock(orderByNode.getQuery(), result),
+            // A nested ORDER BY adds a secondary sort
+            String format = orderByNode.getQuery() instanceof OrderByNode ? "%s, %s %s" : "%s ORDER BY %s %s";
+            returnValue = String.format(format, parseBlock(orderByNode.getQuery(), result),
                     parseBlock(orderByNode.getProperty(), result), orderByNode.getOrder().name());
         } else if (operator instanceof ForUserNode) {
             ForUserNode forUser = (ForUserNode) operator;
@@ -51,6 +51,7 @@
 import org.xwiki.notifications.filters.expression.StringValueNode;
 import org.xwiki.notifications.filters.expression.generics.AbstractOperatorNode;
 import org.xwiki.notifications.filters.expression.generics.AbstractValueNode;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
 import org.xwiki.notifications.preferences.NotificationPreference;
 import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
 import org.xwiki.notifications.sources.NotificationParameters;
@@ -113,6 +114,45 @@ public ExpressionNode generateQueryExpression(NotificationParameters parameters)
                 new GreaterThanNode(new PropertyValueNode(EventProperty.DATE), new DateValueNode(parameters.fromDate));
         }
 
+        AbstractOperatorNode preferencesNode;
+        if (isInbox(parameters)) {
+            // The events of the user inbox have already been matched against the user preferences when they were
+            // dispatched so the inbox lookup (produced by the exclusive filters) is enough
+            preferencesNode = handleExclusiveGlobalFilters(parameters);
+        } else {
+            preferencesNode = handlePreferences(parameters);
+        }
+
+        // Mix all these conditions
+        if (preferencesNode != null) {
+            if (topNode != null) {
+                topNode = topNode.and(preferencesNode);
+            } else {
+                topNode = preferencesNode;
+            }
+        }
+
+        // Other basic filters
+        topNode = handleBlackList(parameters, topNode);
+        topNode = handleEndDate(parameters, topNode);
+        topNode = handleHiddenEvents(parameters, topNode);
+        topNode = handleWiki(parameters, topNode);
+        topNode = handleOrder(topNode);
+
+        return topNode;
+    }
+
+    /**
+     * @return {@code true} if the events should be searched in the inbox of the user (the events associated to the user
+     *         when they were dispatched, see {@link ForUserEventFilter})
+     */
+    private boolean isInbox(NotificationParameters parameters)
+    {
+        return parameters.user != null && parameters.filters.stream().anyMatch(ForUserEventFilter.class::isInstance);
+    }
+
+    private AbstractOperatorNode handlePreferences(NotificationParameters parameters) throws EventStreamException
+    {
         // Condition 2: handle other preferences
         AbstractOperatorNode preferencesNode = handleEventPreferences(parameters);
 
@@ -134,23 +174,7 @@ public ExpressionNode generateQueryExpression(NotificationParameters parameters)
             }
         }
 
-        // Mix all these conditions
-        if (preferencesNode != null) {
-            if (topNode != null) {
-                topNode = topNode.and(preferencesNode);
-            } else {
-                topNode = preferencesNode;
-            }
-        }
-
-        // Other basic filters
-        topNode = handleBlackList(parameters, topNode);
-        topNode = handleEndDate(parameters, topNode);
-        topNode = handleHiddenEvents(parameters, topNode);
-        topNode = handleWiki(parameters, topNode);
-        topNode = handleOrder(topNode);
-
-        return topNode;
+        return preferencesNode;
     }
 
     /**
@@ -26,15 +26,25 @@
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.Event;
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.filters.expression.EqualsNode;
+import org.xwiki.notifications.filters.expression.EventProperty;
 import org.xwiki.notifications.filters.expression.ExpressionNode;
+import org.xwiki.notifications.filters.expression.GreaterThanNode;
+import org.xwiki.notifications.filters.expression.LesserThanNode;
+import org.xwiki.notifications.filters.expression.PropertyValueNode;
+import org.xwiki.notifications.filters.expression.generics.AbstractOperatorNode;
+import org.xwiki.notifications.filters.expression.generics.AbstractValueNode;
 import org.xwiki.notifications.sources.NotificationParameters;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
 import org.xwiki.user.UserReferenceResolver;
 
+import static org.xwiki.notifications.filters.expression.generics.ExpressionBuilder.value;
+
 /**
  * Generate a query to retrieve notifications events according to the preferences of the user.
  *
@@ -68,8 +78,61 @@
      */
     public Query generateQuery(NotificationParameters parameters) throws QueryException, EventStreamException
     {
-        ExpressionNodeToHQLConverter.HQLQuery result =
-            hqlConverter.parse(this.expressionGenerator.generateQueryExpression(parameters));
+        return createQuery(this.expressionGenerator.generateQueryExpression(parameters));
+    }
+
+    /**
+     * Generate a query returning the events sorted by date and id, starting after the passed event.
+     *
+     * @param parameters parameters to use
+     * @param after the last event of the previous page, {@code null} to start from the beginning
+     * @return the query to execute
+     * @throws QueryException if error happens
+     * @throws EventStreamException if error happens
+     * @since 12.10
+     */
+    public Query generateQuery(NotificationParameters parameters, Event after)
+        throws QueryException, EventStreamException
+    {
+        ExpressionNode expression = this.expressionGenerator.generateQueryExpression(parameters);
+
+        if (expression instanceof OrderByNode) {
+            OrderByNode orderBy = (OrderByNode) expression;
+
+            AbstractOperatorNode condition = orderBy.getQuery();
+            if (after != null) {
+                condition = condition.and(getAfterNode(after, orderBy.getOrder()));
+            }
+
+            // Sort on the id too to make the order stable for events with the same date
+            expression = new OrderByNode(new OrderByNode(condition, orderBy.getProperty(), orderBy.getOrder()),
+                new PropertyValueNode(EventProperty.ID), orderBy.getOrder());
+        }
+
+        return createQuery(expression);
+    }
+
+    private AbstractOperatorNode getAfterNode(Event after, OrderByNode.Order order)
+    {
+        AbstractValueNode date = value(after.getDate());
+        AbstractValueNode id = value(after.getId());
+
+        AbstractOperatorNode dateNode;
+        AbstractOperatorNode idNode;
+        if (order == OrderByNode.Order.ASC) {
+            dateNode = new GreaterThanNode(value(EventProperty.DATE), date);
+            idNode = new GreaterThanNode(value(EventProperty.ID), id);
+        } else {
+            dateNode = new LesserThanNode(value(EventProperty.DATE), date);
+            idNode = new LesserThanNode(value(EventProperty.ID), id);
+        }
+
+        return dateNode.or(new EqualsNode(value(EventProperty.DATE), date).and(idNode));
+    }
+
+    private Query createQuery(ExpressionNode expression) throws QueryException
+    {
+        ExpressionNodeToHQLConverter.HQLQuery result = hqlConverter.parse(expression);
         if (result.getQuery().isEmpty()) {
             return null;
         }
@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.internal.SimilarityCalculator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link CompositeEventGrouper}.
+ *
+ * @version $Id$
+ */
+class CompositeEventGrouperTest
+{
+    private final List<CompositeEvent> results = new ArrayList<>();
+
+    private final CompositeEventGrouper grouper = new CompositeEventGrouper(new SimilarityCalculator(), this.results);
+
+    private Event createEvent(String type, DocumentReference document, String groupId, long date)
+    {
+        Event event = mock(Event.class);
+        when(event.getType()).thenReturn(type);
+        when(event.getDocument()).thenReturn(document);
+        when(event.getGroupId()).thenReturn(groupId);
+        when(event.getDate()).thenReturn(new Date(date));
+
+        return event;
+    }
+
+    @Test
+    void addWithSameDocument() throws Exception
+    {
+        DocumentReference document = new DocumentReference("wiki", "Space", "Page");
+        DocumentReference otherDocument = new DocumentReference("wiki", "Space", "Other");
+
+        Event update1 = createEvent("update", document, "g1", 4);
+        Event comment = createEvent("addComment", document, "g1", 3);
+        Event update2 = createEvent("update", document, "g2", 2);
+        Event update3 = createEvent("update", otherDocument, "g3", 1);
+
+        this.grouper.add(update1);
+        this.grouper.add(comment);
+        this.grouper.add(update2);
+        this.grouper.add(update3);
+
+        assertEquals(3, this.results.size());
+        assertEquals(Arrays.asList(update1, comment), this.results.get(0).getEvents());
+        assertEquals(SimilarityCalculator.SAME_GROUP_ID_AND_DOCUMENT_BUT_DIFFERENT_TYPES,
+            this.results.get(0).getSimilarityBetweenEvents());
+        assertEquals(Arrays.asList(update2), this.results.get(1).getEvents());
+        assertEquals(Arrays.asList(update3), this.results.get(2).getEvents());
+    }
+
+    @Test
+    void addMovesTheMostSimilarEvent() throws Exception
+    {
+        DocumentReference document = new DocumentReference("wiki", "Space", "Page");
+
+        Event update1 = createEvent("update", document, "g1", 5);
+        Event update2 = createEvent("update", document, "g2", 4);
+        Event comment = createEvent("addComment", document, "g2", 3);
+
+        this.grouper.add(update1);
+        this.grouper.add(update2);
+        this.grouper.add(comment);
+
+        // The comment is more similar to the second update than the updates are between themselves
+        assertEquals(2, this.results.size());
+        assertEquals(Arrays.asList(update1), this.results.get(0).getEvents());
+        assertEquals(Arrays.asList(update2, comment), this.results.get(1).getEvents());
+    }
+
+    @Test
+    void addWithoutDocument() throws Exception
+    {
+        Event event1 = createEvent("type", null, null, 3);
+        Event event2 = createEvent("type", new DocumentReference("wiki", "Space", "Page"), null, 2);
+        Event event3 = createEvent("type", null, null, 1);
+        Event event4 = createEvent("other", null, null, 0);
+
+        this.grouper.add(event1);
+        this.grouper.add(event2);
+        this.grouper.add(event3);
+        this.grouper.add(event4);
+
+        assertEquals(3, this.results.size());
+        assertEquals(Arrays.asList(event1, event3), this.results.get(0).getEvents());
+        assertEquals(Arrays.asList(event2), this.results.get(1).getEvents());
+        assertEquals(Arrays.asList(event4), this.results.get(2).getEvents());
+    }
+}
@@ -118,7 +118,7 @@ public void setUp() throws Exception
     {
         query = mock(Query.class);
         when(query.setLimit(anyInt())).thenReturn(query);
-        when(queryGenerator.generateQuery(any(NotificationParameters.class))).thenReturn(query);
+        when(queryGenerator.generateQuery(any(NotificationParameters.class), any())).thenReturn(query);
 
         NotificationPreference pref1 = mock(NotificationPreference.class);
         when(pref1.getProperties())
@@ -203,7 +203,7 @@ public void getEventsWhenException() throws Exception
     {
         // Mocks
         QueryException exception = new QueryException("Error", null, null);
-        when(queryGenerator.generateQuery(any(NotificationParameters.class))).thenThrow(exception);
+        when(queryGenerator.generateQuery(any(NotificationParameters.class), any())).thenThrow(exception);
 
         // Test
         NotificationException caughtException = null;
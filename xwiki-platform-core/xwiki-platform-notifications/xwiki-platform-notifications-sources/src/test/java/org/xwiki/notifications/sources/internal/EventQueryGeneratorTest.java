@@ -46,6 +46,7 @@
 import org.xwiki.notifications.filters.expression.EmptyNode;
 import org.xwiki.notifications.filters.expression.EventProperty;
 import org.xwiki.notifications.filters.expression.NotNode;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
 import org.xwiki.notifications.filters.internal.status.ForUserNode;
 import org.xwiki.notifications.preferences.NotificationPreference;
 import org.xwiki.notifications.sources.NotificationParameters;
@@ -55,6 +56,7 @@
 import org.xwiki.user.UserReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.mock;
@@ -535,4 +537,26 @@ public void generateQueryWithPreFilteringEmailReadFilter() throws Exception
 
         assertEquals(new SortClause(Event.FIELD_DATE, Order.DESC), sortClause.get(0));
     }
+
+    @Test
+    void generateQueryExpressionForInbox() throws Exception
+    {
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = USER_REFERENCE;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.fromDate = this.startDate;
+        parameters.filters = Arrays.asList(new ForUserEventFilter(NotificationFormat.ALERT, null));
+        parameters.preferences = Arrays.asList(this.pref1);
+
+        SimpleEventQuery query = this.generator.generateQuery(parameters);
+
+        // The preferences are not checked again for the events associated to the user
+        Iterator<QueryCondition> conditions = query.getConditions().iterator();
+
+        assertEquals(new CompareQueryCondition(Event.FIELD_DATE, this.startDate, CompareType.GREATER_OR_EQUALS, false),
+            conditions.next());
+        assertEquals(new StatusQueryCondition(SERIALIZED_USER_REFERENCE, null, false), conditions.next());
+        assertEquals(new CompareQueryCondition(Event.FIELD_HIDDEN, true, CompareType.EQUALS, true), conditions.next());
+        assertFalse(conditions.hasNext());
+    }
 }
@@ -264,6 +264,28 @@ public void parseWithOrderBy()
 
     }
 
+    @Test
+    public void parseWithNestedOrderBy()
+    {
+        AbstractNode testAST = new OrderByNode(
+                new OrderByNode(
+                        new EqualsNode(
+                                new PropertyValueNode(EventProperty.SPACE),
+                                new PropertyValueNode(EventProperty.PAGE)
+                        ),
+                        new PropertyValueNode(EventProperty.DATE),
+                        OrderByNode.Order.DESC
+                ),
+                new PropertyValueNode(EventProperty.ID),
+                OrderByNode.Order.DESC
+        );
+
+        ExpressionNodeToHQLConverter.HQLQuery result = parser.parse(testAST);
+
+        assertEquals("event.space = event.page ORDER BY event.date DESC, event.id DESC",
+                result.getQuery());
+    }
+
     @Test
     public void parseWithInListOfReadEventsNode()
     {
@@ -79,8 +79,22 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
+        Object object = msg.getObject();
 
+        if (object instanceof RemoteEventDataBatch) {
+            // Several events sent together
+            for (RemoteEventData remoteEvent : ((RemoteEventDataBatch) object).getEvents()) {
+                receiveEvent(remoteEvent);
+            }
+        } else if (object instanceof RemoteEventData) {
+            receiveEvent((RemoteEventData) object);
+        } else {
+            this.logger.warn("Ignoring unknown JGroups message content [{}] from [{}]", object, msg.getSrc());
+        }
+    }
+
+    private void receiveEvent(RemoteEventData remoteEvent)
+    {
         this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
 
         getRemoteObservationManager().notify(remoteEvent);
@@ -23,8 +23,14 @@
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,6 +48,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.environment.Environment;
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
@@ -50,6 +57,9 @@
 
 /**
  * JGroups based implementation of {@link NetworkAdapter}.
+ * <p>
+ * The events sent during a short window are grouped in a single JGroups message (serialized in a single stream) to
+ * not flood the cluster with small messages during bulk operations.
  *
  * @version $Id$
  * @since 2.0RC1
@@ -57,13 +67,23 @@
 @Component
 @Named("jgroups")
 @Singleton
-public class JGroupsNetworkAdapter implements NetworkAdapter
+public class JGroupsNetworkAdapter implements NetworkAdapter, Disposable
 {
     /**
      * Relative path where to find jgroups channels configurations.
      */
     public static final String CONFIGURATION_PATH = "observation/remote/jgroups/";
 
+    /**
+     * The maximum number of events sent in a single message.
+     */
+    private static final int BATCH_MAX_SIZE = 100;
+
+    /**
+     * How long (in milliseconds) to wait for more events before sending a message.
+     */
+    private static final long BATCH_WINDOW = 5;
+
     /**
      * Used to lookup the receiver corresponding to the channel identifier.
      */
@@ -81,21 +101,85 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<String, JChannel>();
 
+    /**
+     * The events waiting to be sent.
+     */
+    private final List<RemoteEventData> batch = new ArrayList<>();
+
+    /**
+     * Used to send the waiting events at the end of the batch window.
+     */
+    private final ScheduledExecutorService batchExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "XWiki JGroups remote events sender");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * The pending send of the waiting events at the end of the batch window.
+     */
+    private ScheduledFuture<?> scheduledFlush;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [" + remoteEvent + "]");
 
-        // Send the message to the whole group
-        Message message = new Message(null, remoteEvent);
+        synchronized (this.batch) {
+            this.batch.add(remoteEvent);
 
-        // Send message to JGroups channels
-        for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
-            try {
-                entry.getValue().send(message);
-            } catch (Exception e) {
-                this.logger
-                    .error("Failed to send message [" + remoteEvent + "] to the channel [" + entry.getKey() + "]", e);
+            if (this.batch.size() >= BATCH_MAX_SIZE) {
+                flush();
+            } else if (this.batch.size() == 1) {
+                this.scheduledFlush = this.batchExecutor.schedule(this::flush, BATCH_WINDOW, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Send the waiting events to the whole group.
+     */
+    private void flush()
+    {
+        // The events are sent while holding the lock to make sure they are received in the order they were sent
+        synchronized (this.batch) {
+            // The waiting events are sent now
+            cancelScheduledFlush();
+
+            if (this.batch.isEmpty()) {
+                return;
+            }
+
+            // Send a single event as is (the way it was always sent)
+            Message message;
+            if (this.batch.size() == 1) {
+                message = new Message(null, this.batch.get(0));
+            } else {
+                message = new Message(null, new RemoteEventDataBatch(this.batch));
+            }
+
+            // Send message to JGroups channels
+            for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
+                try {
+                    entry.getValue().send(message);
+                } catch (Exception e) {
+                    this.logger.error("Failed to send messages [" + this.batch + "] to the channel [" + entry.getKey()
+                        + "]", e);
+                }
+            }
+
+            this.batch.clear();
+        }
+    }
+
+    private void cancelScheduledFlush()
+    {
+        synchronized (this.batch) {
+            if (this.scheduledFlush != null) {
+                // Don't interrupt the flush if it's the one calling
+                this.scheduledFlush.cancel(false);
+                this.scheduledFlush = null;
             }
         }
     }
@@ -137,6 +221,9 @@ public void stopChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException(MessageFormat.format("Channel [{0}] is not started", channelId));
         }
 
+        // Make sure the waiting events are sent before closing the channel
+        flush();
+
         channel.close();
 
         this.channels.remove(channelId);
@@ -218,6 +305,9 @@ private ProtocolStackConfigurator loadChannelConfiguration(String channelId) thr
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        // Make sure the waiting events are sent before closing the channels
+        flush();
+
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
         }
@@ -226,4 +316,12 @@ public void stopAllChannels() throws RemoteEventException
 
         this.logger.info("All channels stopped");
     }
+
+    @Override
+    public void dispose()
+    {
+        cancelScheduledFlush();
+
+        this.batchExecutor.shutdownNow();
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Several remote events sent in a single JGroups message.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+public class RemoteEventDataBatch implements Serializable
+{
+    /**
+     * Serialization identifier.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<RemoteEventData> events;
+
+    /**
+     * @param events the events to send, in the order they should be received
+     */
+    public RemoteEventDataBatch(Collection<RemoteEventData> events)
+    {
+        this.events = new ArrayList<>(events);
+    }
+
+    /**
+     * @return the events, in the order they were sent
+     */
+    public List<RemoteEventData> getEvents()
+    {
+        return Collections.unmodifiableList(this.events);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.events.toString();
+    }
+}
@@ -19,19 +19,30 @@
  */
 package org.xwiki.observation.remote;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import org.jgroups.JChannel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xwiki.component.util.ReflectionUtils;
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.remote.test.AbstractROMTestCase;
 import org.xwiki.observation.remote.test.TestEvent;
 import org.xwiki.test.annotation.AllComponents;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -92,4 +103,44 @@ public void testSerializableEvent() throws InterruptedException
         verify(localListener).onEvent(same(event), same(unserializable), same(unserializable));
         verify(remoteListener).onEvent(eq(event), eq("some source"), eq("some data"));
     }
+
+    /**
+     * Validate that many events sent in a short time are grouped in a few network messages.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchedEvents() throws Exception
+    {
+        EventListener remoteListener = mock(EventListener.class, "remote");
+
+        TestEvent event = new TestEvent();
+
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        when(remoteListener.getName()).thenReturn("mylistener");
+        when(remoteListener.getEvents()).thenReturn(Arrays.asList(event));
+        doAnswer(invocation -> received.add(invocation.getArgument(2))).when(remoteListener).onEvent(any(), any(),
+            any());
+
+        getObservationManager2().addListener(remoteListener);
+
+        NetworkAdapter networkAdapter = getComponentManager1().getInstance(NetworkAdapter.class, "jgroups");
+        Map<String, JChannel> channels = (Map<String, JChannel>) ReflectionUtils.getFieldValue(networkAdapter,
+            "channels");
+        JChannel channel = channels.get("tcp");
+        long sentMessages = channel.getSentMessages();
+
+        List<Integer> sent = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) {
+            sent.add(i);
+            getObservationManager1().notify(event, "some source", i);
+        }
+
+        verify(remoteListener, timeout(10000).times(10000)).onEvent(eq(event), eq("some source"), any());
+
+        // The events are received in the order they were sent
+        assertEquals(sent, received);
+
+        // The events are grouped in much less messages
+        assertTrue(channel.getSentMessages() - sentMessages <= 10000 / 10);
+    }
 }
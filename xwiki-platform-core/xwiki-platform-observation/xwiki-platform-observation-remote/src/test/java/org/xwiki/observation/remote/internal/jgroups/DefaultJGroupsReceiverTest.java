@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.util.Arrays;
+
+import org.jgroups.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Validate {@link DefaultJGroupsReceiver}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultJGroupsReceiverTest
+{
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectMockComponents
+    private DefaultJGroupsReceiver receiver;
+
+    @MockComponent
+    private RemoteObservationManager remoteObservationManager;
+
+    @Test
+    void receiveEvent()
+    {
+        this.receiver.receive(new Message(null, new RemoteEventData("event", "source", "data")));
+
+        ArgumentCaptor<RemoteEventData> captor = ArgumentCaptor.forClass(RemoteEventData.class);
+        verify(this.remoteObservationManager).notify(captor.capture());
+        assertEquals("event", captor.getValue().getEvent());
+    }
+
+    @Test
+    void receiveBatch()
+    {
+        this.receiver.receive(new Message(null, new RemoteEventDataBatch(Arrays.asList(
+            new RemoteEventData("event1", null, null), new RemoteEventData("event2", null, null),
+            new RemoteEventData("event3", null, null)))));
+
+        // The events are notified in the order they were sent
+        ArgumentCaptor<RemoteEventData> captor = ArgumentCaptor.forClass(RemoteEventData.class);
+        verify(this.remoteObservationManager, times(3)).notify(captor.capture());
+        assertEquals("event1", captor.getAllValues().get(0).getEvent());
+        assertEquals("event2", captor.getAllValues().get(1).getEvent());
+        assertEquals("event3", captor.getAllValues().get(2).getEvent());
+    }
+
+    @Test
+    void receiveUnknownContent()
+    {
+        this.receiver.receive(new Message(null, Arrays.asList("event1", "event2")));
+
+        verify(this.remoteObservationManager, never()).notify(any());
+        assertEquals("Ignoring unknown JGroups message content [[event1, event2]] from [null]",
+            this.logCapture.getMessage(0));
+    }
+}
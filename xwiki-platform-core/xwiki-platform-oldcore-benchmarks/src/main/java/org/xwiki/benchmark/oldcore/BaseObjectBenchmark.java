@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmark.oldcore;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Benchmark the access to the properties of objects.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaseObjectBenchmark
+{
+    private XWikiDocument document;
+
+    private BaseObject xobject;
+
+    /**
+     * @param oldcore the started XWiki instance
+     * @throws Exception when failing to load the document
+     */
+    @Setup
+    public void setUp(OldcoreState oldcore) throws Exception
+    {
+        this.document = oldcore.getDocument();
+        // Work on a copy to not modify the cached document
+        this.xobject = this.document.getXObject(OldcoreState.CLASS_REFERENCE).clone();
+    }
+
+    /**
+     * @param blackhole used to consume the values
+     */
+    @Benchmark
+    public void getValues(Blackhole blackhole)
+    {
+        List<BaseObject> xobjects = this.document.getXObjects(OldcoreState.CLASS_REFERENCE);
+        for (BaseObject element : xobjects) {
+            blackhole.consume(element.getStringValue("title"));
+            blackhole.consume(element.getLargeStringValue("description"));
+            blackhole.consume(element.getIntValue("count"));
+            blackhole.consume(element.getIntValue("enabled"));
+            blackhole.consume(element.getStringValue("category"));
+            blackhole.consume(element.getDateValue("date"));
+        }
+    }
+
+    /**
+     * @return the object
+     */
+    @Benchmark
+    public BaseObject getXObject()
+    {
+        return this.document.getXObject(OldcoreState.CLASS_REFERENCE, OldcoreState.OBJECT_COUNT / 2);
+    }
+
+    /**
+     * @return the modified object
+     */
+    @Benchmark
+    public BaseObject setValues()
+    {
+        this.xobject.setStringValue("title", "Modified title");
+        this.xobject.setIntValue("count", 42);
+
+        return this.xobject;
+    }
+
+    /**
+     * @return the clone
+     */
+    @Benchmark
+    public BaseObject cloneXObject()
+    {
+        return this.xobject.clone();
+    }
+}
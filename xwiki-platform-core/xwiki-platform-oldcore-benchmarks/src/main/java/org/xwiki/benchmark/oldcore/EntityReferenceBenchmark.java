@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmark.oldcore;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+/**
+ * Benchmark the resolution and serialization of entity references.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityReferenceBenchmark
+{
+    private static final String REFERENCE = "wiki:Space1.Space2.Space3.Page";
+
+    private DocumentReferenceResolver<String> resolver;
+
+    private DocumentReferenceResolver<String> currentResolver;
+
+    private EntityReferenceSerializer<String> serializer;
+
+    private EntityReferenceSerializer<String> localSerializer;
+
+    private DocumentReference reference;
+
+    /**
+     * @param oldcore the started XWiki instance
+     * @throws Exception when failing to lookup the components
+     */
+    @Setup
+    public void setUp(OldcoreState oldcore) throws Exception
+    {
+        this.resolver = oldcore.getComponentManager().getInstance(DocumentReferenceResolver.TYPE_STRING);
+        this.currentResolver =
+            oldcore.getComponentManager().getInstance(DocumentReferenceResolver.TYPE_STRING, "current");
+        this.serializer = oldcore.getComponentManager().getInstance(EntityReferenceSerializer.TYPE_STRING);
+        this.localSerializer = oldcore.getComponentManager().getInstance(EntityReferenceSerializer.TYPE_STRING, "local");
+
+        this.reference = this.resolver.resolve(REFERENCE);
+    }
+
+    /**
+     * @return the resolved reference
+     */
+    @Benchmark
+    public DocumentReference resolve()
+    {
+        return this.resolver.resolve(REFERENCE);
+    }
+
+    /**
+     * @return the resolved reference
+     */
+    @Benchmark
+    public DocumentReference resolveCurrent()
+    {
+        return this.currentResolver.resolve("Space1.Space2.Page");
+    }
+
+    /**
+     * @return the serialized reference
+     */
+    @Benchmark
+    public String serialize()
+    {
+        return this.serializer.serialize(this.reference);
+    }
+
+    /**
+     * @return the serialized reference
+     */
+    @Benchmark
+    public String serializeLocal()
+    {
+        return this.localSerializer.serialize(this.reference);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmark.oldcore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.NullInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Serialize and parse the XML of a document with a 500 MB attachment in a JVM with a heap much smaller than the
+ * attachment: the benchmark fails with an {@link OutOfMemoryError} as soon as one of the steps keep the whole attachment
+ * in memory. Run it with {@code -prof gc} to also get the allocation rate.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+@State(Scope.Benchmark)
+public class LargeAttachmentXMLBenchmark
+{
+    private static final long ATTACHMENT_SIZE = 500L * 1024 * 1024;
+
+    private XWikiContext xcontext;
+
+    private XWikiDocument document;
+
+    private File xmlFile;
+
+    /**
+     * @param oldcore the started XWiki instance
+     * @throws Exception when failing to create the document
+     */
+    @Setup(Level.Trial)
+    public void setUp(OldcoreState oldcore) throws Exception
+    {
+        this.xcontext = oldcore.getXWikiContext();
+
+        this.document = new XWikiDocument(new DocumentReference(OldcoreState.WIKI, "Benchmark", "LargeAttachment"));
+        XWikiAttachment attachment = new XWikiAttachment(this.document, "large.bin");
+        try (InputStream content = new NullInputStream(ATTACHMENT_SIZE)) {
+            attachment.setContent(content);
+        }
+        this.document.setAttachment(attachment);
+
+        this.xmlFile = File.createTempFile("large-attachment", ".xml");
+        try (OutputStream stream = new FileOutputStream(this.xmlFile)) {
+            this.document.toXML(stream, true, false, true, false, this.xcontext);
+        }
+    }
+
+    /**
+     * @throws Exception when failing to delete the XML file
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        Files.deleteIfExists(this.xmlFile.toPath());
+    }
+
+    /**
+     * @throws Exception when failing to serialize the document
+     */
+    @Benchmark
+    public void toXML() throws Exception
+    {
+        this.document.toXML(NullOutputStream.NULL_OUTPUT_STREAM, true, false, true, false, this.xcontext);
+    }
+
+    /**
+     * @return the parsed document
+     * @throws Exception when failing to parse the document
+     */
+    @Benchmark
+    public XWikiDocument fromXML() throws Exception
+    {
+        XWikiDocument parsedDocument = new XWikiDocument(this.document.getDocumentReference());
+        try (InputStream stream = new FileInputStream(this.xmlFile)) {
+            parsedDocument.fromXML(stream);
+        }
+
+        return parsedDocument;
+    }
+}
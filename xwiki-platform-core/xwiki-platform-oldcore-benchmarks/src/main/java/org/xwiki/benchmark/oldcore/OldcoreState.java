@@ -0,0 +1,215 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmark.oldcore;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Date;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiConfig;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.store.hibernate.HibernateConfiguration;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiServletRequestStub;
+import com.xpn.xwiki.web.XWikiServletResponseStub;
+import com.xpn.xwiki.web.XWikiServletURLFactory;
+
+/**
+ * Start an XWiki instance on top of an in-memory HSQLDB database and create the documents manipulated by the
+ * benchmarks.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+public class OldcoreState
+{
+    /**
+     * The identifier of the main wiki.
+     */
+    public static final String WIKI = "xwiki";
+
+    /**
+     * The reference of the class of the objects attached to the benchmarked document.
+     */
+    public static final LocalDocumentReference CLASS_REFERENCE = new LocalDocumentReference("Benchmark", "Class");
+
+    /**
+     * The number of objects attached to the benchmarked document.
+     */
+    public static final int OBJECT_COUNT = 20;
+
+    private static final String HIBERNATE_CONFIG = "hibernate.cfg.xml";
+
+    private EmbeddableComponentManager componentManager;
+
+    private XWikiContext xcontext;
+
+    private DocumentReference documentReference;
+
+    /**
+     * Start XWiki and create the benchmark data.
+     *
+     * @throws Exception when failing to start XWiki
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        this.componentManager = (EmbeddableComponentManager) org.xwiki.environment.System.initialize();
+
+        ExecutionContextManager ecm = this.componentManager.getInstance(ExecutionContextManager.class);
+        ecm.initialize(new ExecutionContext());
+
+        // Set the Hibernate configuration before the initialization of the store
+        this.componentManager.<HibernateConfiguration>getInstance(HibernateConfiguration.class)
+            .setPath(HIBERNATE_CONFIG);
+
+        // Give a chance to various listeners to register Hibernate mapping and other pre XWiki instance init actions
+        this.componentManager.<ObservationManager>getInstance(ObservationManager.class)
+            .notify(new ApplicationStartedEvent(), null);
+
+        Utils.setComponentManager(this.componentManager);
+
+        this.xcontext = new XWikiContext();
+        this.xcontext.put(ComponentManager.class.getName(), this.componentManager);
+
+        ExecutionContext econtext = new ExecutionContext();
+        this.xcontext.declareInExecutionContext(econtext);
+        ecm.initialize(econtext);
+
+        this.xcontext.setWikiId(WIKI);
+        this.xcontext.setMainXWiki(WIKI);
+        this.xcontext.setURL(new URL("http://localhost:8080/xwiki/bin/view/Main/WebHome"));
+        this.xcontext.setRequest(new XWikiServletRequestStub(this.xcontext.getURL(), "xwiki", Collections.emptyMap()));
+        this.xcontext.setResponse(new XWikiServletResponseStub());
+        this.xcontext.setDoc(new XWikiDocument(new DocumentReference(WIKI, "Main", "WebHome")));
+
+        XWiki xwiki = new XWiki(new XWikiConfig(), this.xcontext, null, true);
+
+        this.xcontext.setUserReference(new DocumentReference(WIKI, "XWiki", "superadmin"));
+        this.xcontext.setURLFactory(new XWikiServletURLFactory(new URL("http://localhost:8080"), "xwiki/", "bin/"));
+
+        xwiki.initializeWiki(WIKI, true, this.xcontext);
+
+        createData(xwiki);
+    }
+
+    private void createData(XWiki xwiki) throws Exception
+    {
+        // The class
+        XWikiDocument classDocument =
+            xwiki.getDocument(new DocumentReference(CLASS_REFERENCE, this.xcontext.getWikiReference()), this.xcontext)
+                .clone();
+        BaseClass xclass = classDocument.getXClass();
+        xclass.addTextField("title", "Title", 30);
+        xclass.addTextAreaField("description", "Description", 40, 5);
+        xclass.addNumberField("count", "Count", 10, "integer");
+        xclass.addBooleanField("enabled", "Enabled", "yesno");
+        xclass.addStaticListField("category", "Category", "first|second|third");
+        xclass.addDateField("date", "Date");
+        xwiki.saveDocument(classDocument, this.xcontext);
+
+        // The document
+        this.documentReference = new DocumentReference(WIKI, "Benchmark", "Document");
+        XWikiDocument document = xwiki.getDocument(this.documentReference, this.xcontext).clone();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            content.append("= Section ").append(i).append(" =\n\nSome **content** with a [[link>>Main.WebHome]].\n\n");
+        }
+        document.setContent(content.toString());
+        document.setTitle("Benchmark document");
+        for (int i = 0; i < OBJECT_COUNT; ++i) {
+            BaseObject xobject = document.newXObject(CLASS_REFERENCE, this.xcontext);
+            xobject.setStringValue("title", "Title " + i);
+            xobject.setLargeStringValue("description", "Description of the object number " + i);
+            xobject.setIntValue("count", i);
+            xobject.setIntValue("enabled", i % 2);
+            xobject.setStringValue("category", "second");
+            xobject.setDateValue("date", new Date());
+        }
+        xwiki.saveDocument(document, this.xcontext);
+    }
+
+    /**
+     * Stop XWiki.
+     *
+     * @throws Exception when failing to stop XWiki
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        Utils.setComponentManager(null);
+
+        this.componentManager.<Execution>getInstance(Execution.class).removeContext();
+
+        org.xwiki.environment.System.dispose(this.componentManager);
+    }
+
+    /**
+     * @return the component manager
+     */
+    public ComponentManager getComponentManager()
+    {
+        return this.componentManager;
+    }
+
+    /**
+     * @return the XWiki context
+     */
+    public XWikiContext getXWikiContext()
+    {
+        return this.xcontext;
+    }
+
+    /**
+     * @return the reference of the benchmarked document (with {@link #OBJECT_COUNT} objects)
+     */
+    public DocumentReference getDocumentReference()
+    {
+        return this.documentReference;
+    }
+
+    /**
+     * @return the benchmarked document, as stored in the document cache
+     * @throws Exception when failing to load the document
+     */
+    public XWikiDocument getDocument() throws Exception
+    {
+        return this.xcontext.getWiki().getDocument(this.documentReference, this.xcontext);
+    }
+}
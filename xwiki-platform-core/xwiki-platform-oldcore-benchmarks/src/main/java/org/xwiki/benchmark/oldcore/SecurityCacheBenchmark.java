@@ -0,0 +1,244 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmark.oldcore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.security.authorization.cache.SecurityCache;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Benchmark the contention of the security cache ({@link SecurityCache}): access checks served by the cache, alone
+ * and while another thread keeps invalidating parts of it (as a wiki does when rights or groups are modified).
+ * <p>
+ * The annotations only define a small default number of threads. Use {@link #main(String[])} to measure the
+ * throughput for several numbers of threads (including the 64+ threads of a busy wiki):
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.xwiki.benchmark.oldcore.SecurityCacheBenchmark 1,4,16,64,128
+ * </pre>
+ *
+ * or the JMH command line options {@code -t} (threads) and {@code -tg} (reading and invalidating threads of the
+ * {@code invalidation} group):
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SecurityCacheBenchmark -t 64 -tg 63,1
+ * </pre>
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityCacheBenchmark
+{
+    private static final int SPACE_COUNT = 10;
+
+    private static final int DOCUMENT_COUNT = 10;
+
+    private static final String DEFAULT_THREAD_COUNTS = "1,4,16,64,128";
+
+    private AuthorizationManager authorizationManager;
+
+    private SecurityCache securityCache;
+
+    private DocumentReference userReference;
+
+    private final List<DocumentReference> documentReferences = new ArrayList<>();
+
+    private final List<SecurityReference> spaceReferences = new ArrayList<>();
+
+    /**
+     * The execution context of a benchmark thread (the security checks need an XWiki context).
+     */
+    @State(Scope.Thread)
+    public static class ThreadState
+    {
+        private ExecutionContextManager executionContextManager;
+
+        private Execution execution;
+
+        private int index;
+
+        /**
+         * @param oldcore the started XWiki instance
+         * @throws Exception when failing to initialize the execution context
+         */
+        @Setup(Level.Trial)
+        public void setUp(OldcoreState oldcore) throws Exception
+        {
+            this.executionContextManager = oldcore.getComponentManager().getInstance(ExecutionContextManager.class);
+            this.execution = oldcore.getComponentManager().getInstance(Execution.class);
+
+            XWikiContext xcontext = oldcore.getXWikiContext().clone();
+            ExecutionContext econtext = new ExecutionContext();
+            xcontext.declareInExecutionContext(econtext);
+            this.executionContextManager.initialize(econtext);
+        }
+
+        /**
+         * Remove the execution context of the thread.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            this.execution.removeContext();
+        }
+
+        private int next(int size)
+        {
+            this.index = (this.index + 1) % size;
+
+            return this.index;
+        }
+    }
+
+    /**
+     * @param oldcore the started XWiki instance
+     * @throws Exception when failing to fill the security cache
+     */
+    @Setup
+    public void setUp(OldcoreState oldcore) throws Exception
+    {
+        this.authorizationManager = oldcore.getComponentManager().getInstance(AuthorizationManager.class);
+        this.securityCache = oldcore.getComponentManager().getInstance(SecurityCache.class);
+        SecurityReferenceFactory securityReferenceFactory =
+            oldcore.getComponentManager().getInstance(SecurityReferenceFactory.class);
+
+        // Not a superadmin, which would not need the cache
+        this.userReference = new DocumentReference(OldcoreState.WIKI, "XWiki", "BenchmarkUser");
+
+        for (int i = 0; i < SPACE_COUNT; ++i) {
+            SpaceReference spaceReference = new SpaceReference(OldcoreState.WIKI, "Security" + i);
+            this.spaceReferences.add(securityReferenceFactory.newEntityReference(spaceReference));
+            for (int j = 0; j < DOCUMENT_COUNT; ++j) {
+                DocumentReference documentReference = new DocumentReference("Document" + j, spaceReference);
+                this.documentReferences.add(documentReference);
+
+                // Fill the cache
+                this.authorizationManager.hasAccess(Right.VIEW, this.userReference, documentReference);
+            }
+        }
+    }
+
+    private boolean hasAccess(ThreadState thread)
+    {
+        return this.authorizationManager.hasAccess(Right.VIEW, this.userReference,
+            this.documentReferences.get(thread.next(this.documentReferences.size())));
+    }
+
+    /**
+     * @param thread the state of the current thread
+     * @return true if the user has view right on the next document
+     */
+    @Benchmark
+    @Threads(4)
+    public boolean hasAccessWithoutInvalidation(ThreadState thread)
+    {
+        return hasAccess(thread);
+    }
+
+    /**
+     * @param thread the state of the current thread
+     * @return true if the user has view right on the next document
+     */
+    @Benchmark
+    @Group("invalidation")
+    @GroupThreads(3)
+    public boolean hasAccessWithInvalidation(ThreadState thread)
+    {
+        return hasAccess(thread);
+    }
+
+    /**
+     * Invalidate the next space, which makes the next checks on its documents reload the rights.
+     *
+     * @param thread the state of the current thread
+     */
+    @Benchmark
+    @Group("invalidation")
+    @GroupThreads(1)
+    public void invalidate(ThreadState thread)
+    {
+        this.securityCache.remove(this.spaceReferences.get(thread.next(this.spaceReferences.size())));
+    }
+
+    /**
+     * Run the benchmarks for each of the passed number of threads. In the {@code invalidation} group, one of the
+     * threads keeps invalidating the cache and the other ones check access rights. The results of each run are saved
+     * in {@code target/security-cache-<threads>.json}.
+     *
+     * @param args the comma separated numbers of threads to measure (1, 4, 16, 64 and 128 by default)
+     * @throws RunnerException when failing to run the benchmarks
+     */
+    public static void main(String[] args) throws RunnerException
+    {
+        String threadCounts = args.length > 0 ? args[0] : DEFAULT_THREAD_COUNTS;
+
+        for (String threadCount : threadCounts.split(",")) {
+            int threads = Integer.parseInt(threadCount.trim());
+
+            Options options = new OptionsBuilder()
+                .include(SecurityCacheBenchmark.class.getName())
+                .threads(threads)
+                .threadGroups(Math.max(1, threads - 1), 1)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/security-cache-" + threads + ".json")
+                .build();
+
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmark.oldcore;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Benchmark the lookups served by the document cache ({@link com.xpn.xwiki.store.XWikiCacheStore}).
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XWikiCacheStoreBenchmark
+{
+    private XWiki xwiki;
+
+    private XWikiContext xcontext;
+
+    private DocumentReference documentReference;
+
+    private DocumentReference missingDocumentReference;
+
+    /**
+     * @param oldcore the started XWiki instance
+     * @throws Exception when failing to load the documents
+     */
+    @Setup
+    public void setUp(OldcoreState oldcore) throws Exception
+    {
+        this.xcontext = oldcore.getXWikiContext();
+        this.xwiki = this.xcontext.getWiki();
+        this.documentReference = oldcore.getDocumentReference();
+        this.missingDocumentReference = new DocumentReference(OldcoreState.WIKI, "Benchmark", "Missing");
+
+        // Make sure everything is in the cache
+        this.xwiki.getDocument(this.documentReference, this.xcontext);
+        this.xwiki.exists(this.missingDocumentReference, this.xcontext);
+    }
+
+    /**
+     * @return the document
+     * @throws Exception when failing to load the document
+     */
+    @Benchmark
+    public XWikiDocument getDocument() throws Exception
+    {
+        return this.xwiki.getDocument(this.documentReference, this.xcontext);
+    }
+
+    /**
+     * @return the document
+     * @throws Exception when failing to load the document
+     */
+    @Benchmark
+    public XWikiDocument loadXWikiDoc() throws Exception
+    {
+        return this.xwiki.getStore().loadXWikiDoc(new XWikiDocument(this.documentReference), this.xcontext);
+    }
+
+    /**
+     * @return true if the document exists
+     */
+    @Benchmark
+    public boolean exists()
+    {
+        return this.xwiki.exists(this.documentReference, this.xcontext);
+    }
+
+    /**
+     * @return true if the document exists
+     */
+    @Benchmark
+    public boolean existsMissing()
+    {
+        return this.xwiki.exists(this.missingDocumentReference, this.xcontext);
+    }
+}
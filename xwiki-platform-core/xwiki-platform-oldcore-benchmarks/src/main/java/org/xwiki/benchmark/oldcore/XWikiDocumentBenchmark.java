@@ -0,0 +1,109 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmark.oldcore;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Benchmark the manipulation of a complete {@link XWikiDocument}.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XWikiDocumentBenchmark
+{
+    private XWikiContext xcontext;
+
+    private XWikiDocument document;
+
+    private String xml;
+
+    /**
+     * @param oldcore the started XWiki instance
+     * @throws Exception when failing to load the document
+     */
+    @Setup
+    public void setUp(OldcoreState oldcore) throws Exception
+    {
+        this.xcontext = oldcore.getXWikiContext();
+        this.document = oldcore.getDocument();
+        this.xml = this.document.toXML(true, false, true, false, this.xcontext);
+    }
+
+    /**
+     * @return the clone
+     */
+    @Benchmark
+    public XWikiDocument cloneDocument()
+    {
+        return this.document.clone();
+    }
+
+    /**
+     * @return the duplicate
+     */
+    @Benchmark
+    public XWikiDocument duplicateDocument()
+    {
+        return this.document.duplicate(this.document.getDocumentReference());
+    }
+
+    /**
+     * @return the XML
+     * @throws Exception when failing to serialize the document
+     */
+    @Benchmark
+    public String toXML() throws Exception
+    {
+        return this.document.toXML(true, false, true, false, this.xcontext);
+    }
+
+    /**
+     * @return the parsed document
+     * @throws Exception when failing to parse the document
+     */
+    @Benchmark
+    public XWikiDocument fromXML() throws Exception
+    {
+        XWikiDocument parsedDocument = new XWikiDocument(this.document.getDocumentReference());
+        parsedDocument.fromXML(this.xml);
+
+        return parsedDocument;
+    }
+}
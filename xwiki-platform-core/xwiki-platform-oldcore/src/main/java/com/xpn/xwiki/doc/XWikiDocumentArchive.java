@@ -32,6 +32,7 @@
 
 import org.suigeneris.jrcs.rcs.Version;
 import org.suigeneris.jrcs.util.ToString;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -69,6 +70,9 @@
     /** Set of {@link XWikiRCSNodeContent} which need to update. */
     private Set<XWikiRCSNodeContent> updatedNodeContents = new TreeSet<XWikiRCSNodeContent>();
 
+    /** Number of stored nodes which are not loaded in this archive. */
+    private int unloadedNodeCount;
+
     /** @param id = {@link XWikiDocument#getId()} */
     public XWikiDocumentArchive(long id)
     {
@@ -128,7 +132,7 @@ protected XWikiRCSNodeContent makePatch(XWikiRCSNodeInfo newnode, XWikiDocument
         newnode.setContent(result);
         XWikiRCSNodeInfo latestNode = getLatestNode();
         if (latestNode != null) {
-            int nodesCount = getNodes().size();
+            int nodesCount = getNodeCount();
             int nodesPerFull =
                 context.getWiki() == null ? 5 : Integer.parseInt(context.getWiki().getConfig()
                     .getProperty("xwiki.store.rcs.nodesPerFull", "5"));
@@ -188,6 +192,32 @@ public void setNodes(Collection<XWikiRCSNodeInfo> versions)
         }
     }
 
+    /**
+     * Initialize a partial archive containing only the most recent nodes of the stored history. It's enough to add a
+     * new version to the history (see {@link #updateArchive(XWikiDocument, String, Date, String, Version,
+     * XWikiContext)}) without loading all the nodes.
+     *
+     * @param latestNodes - the most recent nodes of the history
+     * @param nodeCount - the total number of nodes in the stored history
+     * @since 12.10
+     */
+    @Unstable
+    public void setLatestNodes(Collection<XWikiRCSNodeInfo> latestNodes, int nodeCount)
+    {
+        setNodes(latestNodes);
+        this.unloadedNodeCount = Math.max(nodeCount - this.versionToNode.size(), 0);
+    }
+
+    /**
+     * @return the total number of nodes in the history, including the ones which are not loaded in this archive
+     * @since 12.10
+     */
+    @Unstable
+    public int getNodeCount()
+    {
+        return this.versionToNode.size() + this.unloadedNodeCount;
+    }
+
     /**
      * @param context - used for load nodes content
      * @return serialization of class used in {@link com.xpn.xwiki.plugin.packaging.PackagePlugin}.
@@ -451,6 +481,7 @@ private List<XWikiRCSNodeContent> loadRCSNodeContents(Version vfrom, Version vto
     /** reset history. history becomes empty. */
     public void resetArchive()
     {
+        this.unloadedNodeCount = 0;
         this.versionToNode.clear();
         this.fullVersions.clear();
         this.deletedNodes.addAll(this.updatedNodeInfos);
@@ -0,0 +1,236 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.xpn.xwiki.XWikiException;
+
+/**
+ * Coalesce concurrent loads of the same key: the first caller executes the actual load and the other callers asking
+ * for the same key while it's running wait for its result instead of hitting the storage again.
+ * <p>
+ * A caller never waits for a load which is itself (directly or through other threads) waiting for the caller: it
+ * executes the load itself instead, so that recursive loads (a document needing the document of its class, for
+ * example) cannot block each other forever.
+ * <p>
+ * A load which has been {@link #invalidate(String) invalidated} while running is still returned to the callers which
+ * were waiting for it but is not published (i.e. not put in the cache) and new callers trigger a new load.
+ *
+ * @param <V> the type of the loaded values
+ * @version $Id$
+ * @since 12.10
+ */
+public class SingleFlightLoader<V>
+{
+    /**
+     * The actual (expensive) load.
+     *
+     * @param <V> the type of the loaded value
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface Loader<V>
+    {
+        /**
+         * @return the loaded value
+         * @throws XWikiException when failing to load the value
+         */
+        V load() throws XWikiException;
+    }
+
+    private static final class Flight<V>
+    {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private final Thread owner = Thread.currentThread();
+    }
+
+    /**
+     * The load each thread is currently waiting for (shared by all the loaders since a load can trigger loads of other
+     * types).
+     */
+    private static final ConcurrentMap<Thread, Flight<?>> WAITING = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * @param key the key of the value to load
+     * @param loader the actual load, only executed if no other thread is already loading the same key
+     * @param publisher called with the loaded value when the load was not invalidated while running (generally used to
+     *            put the value in a cache)
+     * @return the loaded value, possibly loaded by another thread
+     * @throws XWikiException when failing to load the value
+     */
+    public V load(String key, Loader<V> loader, Consumer<V> publisher) throws XWikiException
+    {
+        Flight<V> flight = new Flight<>();
+        Flight<V> currentFlight = this.flights.putIfAbsent(key, flight);
+
+        if (currentFlight != null) {
+            Thread currentThread = Thread.currentThread();
+
+            // Register the wait before looking for a cycle so that, when two threads start waiting for each other at
+            // the same time, at least one of them sees the other one
+            WAITING.put(currentThread, currentFlight);
+
+            // Don't wait for a load which is (directly or indirectly) waiting for the current thread: the same key
+            // might be asked again while loading it or two documents might need each other (e.g. their classes)
+            if (!isWaitingFor(currentFlight.owner, currentThread)) {
+                this.coalescedCount.incrementAndGet();
+
+                try {
+                    return waitFor(currentFlight);
+                } finally {
+                    WAITING.remove(currentThread);
+                }
+            }
+
+            WAITING.remove(currentThread);
+
+            this.loadCount.incrementAndGet();
+
+            return loader.load();
+        }
+
+        this.loadCount.incrementAndGet();
+
+        try {
+            V value = loader.load();
+
+            // Only publish the value if nothing invalidated it in the meantime
+            if (this.flights.remove(key, flight)) {
+                publisher.accept(value);
+            }
+
+            flight.future.complete(value);
+
+            return value;
+        } catch (Throwable e) {
+            this.flights.remove(key, flight);
+
+            flight.future.completeExceptionally(e);
+
+            throw e;
+        }
+    }
+
+    /**
+     * @param thread the thread to check
+     * @param target the thread which would wait
+     * @return {@code true} if the passed thread is the target or is waiting (directly or through other threads) for a
+     *         load executed by the target
+     */
+    private static boolean isWaitingFor(Thread thread, Thread target)
+    {
+        Set<Thread> visited = new HashSet<>();
+        for (Thread current = thread; current != null; current = getWaitedOwner(current)) {
+            if (current == target) {
+                return true;
+            }
+
+            if (!visited.add(current)) {
+                // A cycle which does not involve the target
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    private static Thread getWaitedOwner(Thread thread)
+    {
+        Flight<?> flight = WAITING.get(thread);
+
+        return flight != null ? flight.owner : null;
+    }
+
+    private V waitFor(Flight<V> flight) throws XWikiException
+    {
+        try {
+            return flight.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Interrupted while waiting for a concurrent load to finish", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof XWikiException) {
+                throw (XWikiException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Concurrent load failed", cause);
+        }
+    }
+
+    /**
+     * Make sure the value of the passed key currently being loaded (if any) is not published and that the next call
+     * to {@link #load(String, Loader, Consumer)} trigger a new load.
+     *
+     * @param key the key to invalidate
+     */
+    public void invalidate(String key)
+    {
+        this.flights.remove(key);
+    }
+
+    /**
+     * Invalidate all the currently running loads.
+     */
+    public void invalidateAll()
+    {
+        this.flights.clear();
+    }
+
+    /**
+     * @return the number of loads actually executed
+     */
+    public long getLoadCount()
+    {
+        return this.loadCount.get();
+    }
+
+    /**
+     * @return the number of loads which were served by waiting for a concurrent load of the same key
+     */
+    public long getCoalescedCount()
+    {
+        return this.coalescedCount.get();
+    }
+}
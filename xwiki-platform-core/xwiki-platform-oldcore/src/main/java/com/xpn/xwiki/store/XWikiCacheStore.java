@@ -57,6 +57,7 @@
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
+import com.xpn.xwiki.internal.store.SingleFlightLoader;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
 
@@ -104,6 +105,16 @@ public class XWikiCacheStore extends AbstractXWikiStore
 
     private Cache<Boolean> pageExistCache;
 
+    /**
+     * Make sure concurrent cache misses for the same document only trigger one load from the underlying store.
+     */
+    private final SingleFlightLoader<XWikiDocument> documentLoader = new SingleFlightLoader<>();
+
+    /**
+     * Make sure concurrent cache misses for the same document existence only trigger one check on the underlying store.
+     */
+    private final SingleFlightLoader<Boolean> existLoader = new SingleFlightLoader<>();
+
     /**
      * Used to cache the values asked by {@link #getLimitSize(XWikiContext, Class, String)}.
      */
@@ -229,8 +240,7 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
         } finally {
             // Flushing the cache for old document
             String key = getKey(doc, context);
-            getCache().remove(key);
-            getPageExistCache().remove(key);
+            removeFromCache(key);
 
             WikiReference originalWikiReference = doc.getDocumentReference().getWikiReference();
             // Flushing the cache for new document
@@ -239,8 +249,7 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
             }
             XWikiDocument newDoc = new XWikiDocument(newReference);
             key = getKey(newDoc, context);
-            getCache().remove(key);
-            getPageExistCache().remove(key);
+            removeFromCache(key);
             context.setWikiReference(originalWikiReference);
 
             // Restore the previous XWikiContext
@@ -261,8 +270,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
         } finally {
             // Flushing the cache
             String key = getKey(doc, context);
-            getCache().remove(key);
-            getPageExistCache().remove(key);
+            removeFromCache(key);
 
             /*
              * We do not want to save the document in the cache at this time. If we did, this would introduce the
@@ -277,11 +285,24 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
     @Override
     public void flushCache()
     {
+        this.documentLoader.invalidateAll();
+        this.existLoader.invalidateAll();
+
         getCache().removeAll();
         getPageExistCache().removeAll();
         getLimitSizePropertyCache().removeAll();
     }
 
+    private void removeFromCache(String key)
+    {
+        // Make sure a load currently running won't put back an outdated version of the document in the cache
+        this.documentLoader.invalidate(key);
+        this.existLoader.invalidate(key);
+
+        getCache().remove(key);
+        getPageExistCache().remove(key);
+    }
+
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
@@ -294,6 +315,9 @@ public void onEvent(Event event, Object source, Object data)
 
                 String key = doc.getKey();
 
+                this.documentLoader.invalidate(key);
+                this.existLoader.invalidate(key);
+
                 if (getCache() != null) {
                     getCache().remove(key);
                 }
@@ -381,30 +405,31 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                 if (result == Boolean.FALSE) {
                     LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
 
-                    cachedoc = doc;
-                    cachedoc.setNew(true);
-
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    cachedoc
-                        .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
+                    cachedoc = toNewDocument(doc);
                 } else {
                     LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
 
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+                    cachedoc = this.documentLoader.load(key, () -> this.store.loadXWikiDoc(doc, context), loadedDoc -> {
+                        if (loadedDoc.isNew()) {
+                            getPageExistCache().set(key, Boolean.FALSE);
+                        } else {
+                            getCache().set(key, loadedDoc);
 
-                    LOGGER.debug("Cache: Got doc {} from storage", key);
+                            // Also update exist cache
+                            getPageExistCache().set(key, Boolean.TRUE);
+                        }
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
-                    } else {
-                        getCache().set(key, cachedoc);
+                        LOGGER.debug("Cache: put doc {} in cache", key);
+                    });
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
-                    }
+                    LOGGER.debug("Cache: Got doc {} from storage", key);
 
-                    LOGGER.debug("Cache: put doc {} in cache", key);
+                    // Note: a document loaded by another thread is shared as is, with the fromCache flag set by
+                    // the loader (it might not have been put in the cache if it was invalidated while loading)
+                    if (cachedoc != doc && cachedoc.isNew()) {
+                        // The document was loaded by another thread but we don't want to share a new document
+                        cachedoc = toNewDocument(doc);
+                    }
                 }
             }
 
@@ -417,6 +442,17 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
         }
     }
 
+    private XWikiDocument toNewDocument(XWikiDocument doc)
+    {
+        doc.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+
+        return doc;
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -429,8 +465,7 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
 
             this.store.deleteXWikiDoc(doc, context);
 
-            getCache().remove(key);
-            getPageExistCache().remove(key);
+            removeFromCache(key);
             getPageExistCache().set(key, Boolean.FALSE);
         } finally {
             restoreExecutionXContext();
@@ -754,10 +789,8 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
             } catch (Exception e) {
             }
 
-            boolean result = this.store.exists(doc, context);
-            getPageExistCache().set(key, Boolean.valueOf(result));
-
-            return result;
+            return this.existLoader.load(key, () -> this.store.exists(doc, context),
+                result -> getPageExistCache().set(key, result));
         } finally {
             restoreExecutionXContext();
         }
@@ -793,6 +826,47 @@ public Cache<Integer> getLimitSizePropertyCache()
         return this.limitSizePropertyCache;
     }
 
+    /**
+     * @return the number of documents actually loaded from the underlying store
+     * @since 12.10
+     */
+    @Unstable
+    public long getDocumentLoadCount()
+    {
+        return this.documentLoader.getLoadCount();
+    }
+
+    /**
+     * @return the number of document loads which were served by waiting for a concurrent load of the same document
+     * @since 12.10
+     */
+    @Unstable
+    public long getCoalescedDocumentLoadCount()
+    {
+        return this.documentLoader.getCoalescedCount();
+    }
+
+    /**
+     * @return the number of document existence checks actually executed on the underlying store
+     * @since 12.10
+     */
+    @Unstable
+    public long getExistLoadCount()
+    {
+        return this.existLoader.getLoadCount();
+    }
+
+    /**
+     * @return the number of document existence checks which were served by waiting for a concurrent check of the same
+     *         document
+     * @since 12.10
+     */
+    @Unstable
+    public long getCoalescedExistLoadCount()
+    {
+        return this.existLoader.getCoalescedCount();
+    }
+
     @Override
     public List<String> getCustomMappingPropertyList(BaseClass bclass)
     {
@@ -31,6 +31,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -66,10 +67,8 @@
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
-import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
-import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.model.reference.WikiReference;
@@ -96,6 +95,7 @@
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.BaseStringProperty;
+import com.xpn.xwiki.objects.DBStringListProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.ListProperty;
 import com.xpn.xwiki.objects.PropertyInterface;
@@ -1021,12 +1021,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
                     Iterator<BaseObject> it = query.list().iterator();
 
-                    EntityReference localGroupEntityReference = new EntityReference("XWikiGroups", EntityType.DOCUMENT,
-                        new EntityReference("XWiki", EntityType.SPACE));
-                    DocumentReference groupsDocumentReference = new DocumentReference(context.getWikiId(),
-                        localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
-
-                    boolean hasGroups = false;
+                    List<BaseObject> objects = new ArrayList<>();
                     while (it.hasNext()) {
                         BaseObject object = it.next();
                         DocumentReference classReference = object.getXClassReference();
@@ -1056,40 +1051,12 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                             object = newobject;
                         }
 
-                        if (classReference.equals(groupsDocumentReference)) {
-                            // Groups objects are handled differently.
-                            hasGroups = true;
-                        } else {
-                            loadXWikiCollectionInternal(object, doc, context, false, true);
-                        }
+                        objects.add(object);
                         doc.setXObject(object.getNumber(), object);
                     }
 
-                    // AFAICT this was added as an emergency patch because loading of objects has proven
-                    // too slow and the objects which cause the most overhead are the XWikiGroups objects
-                    // as each group object (each group member) would otherwise cost 2 database queries.
-                    // This will do every group member in a single query.
-                    if (hasGroups) {
-                        Query<Object[]> query2 = session.createQuery(
-                            "select bobject.number, prop.value from StringProperty as prop,"
-                                + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
-                                + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number",
-                            Object[].class);
-                        query2.setParameter("name", doc.getFullName());
-
-                        Iterator<Object[]> it2 = query2.list().iterator();
-                        while (it2.hasNext()) {
-                            Object[] result = it2.next();
-                            Integer number = (Integer) result[0];
-                            String member = (String) result[1];
-                            BaseObject obj = BaseClass.newCustomClassInstance(groupsDocumentReference, true, context);
-                            obj.setDocumentReference(doc.getDocumentReference());
-                            obj.setXClassReference(localGroupEntityReference);
-                            obj.setNumber(number.intValue());
-                            obj.setStringValue("member", member);
-                            doc.setXObject(obj.getNumber(), obj);
-                        }
-                    }
+                    // Load the properties of all the objects at once instead of (at least) one query per object
+                    loadXWikiObjectsInternal(objects, doc, session, context);
                 }
 
                 doc.setContentDirty(false);
@@ -1420,6 +1387,169 @@ public void loadXWikiCollection(BaseCollection object, XWikiContext context, boo
         loadXWikiCollectionInternal(object, context, bTransaction, false);
     }
 
+    /**
+     * Load the properties of all the passed objects (which are all located in the passed document) in a bounded number
+     * of queries: one to list the properties, one per property type and one per class with a custom mapping. Objects
+     * for which the bulk loading could not find all the properties (for example when the stored property type does not
+     * match the table in which the value is actually stored) fallback on the per object loading.
+     *
+     * @param objects the objects for which to load the properties
+     * @param doc the document containing the objects
+     * @param session the current session
+     * @param context the XWiki context
+     * @throws XWikiException when failing to load the objects properties
+     */
+    private void loadXWikiObjectsInternal(List<BaseObject> objects, XWikiDocument doc, Session session,
+        XWikiContext context) throws XWikiException
+    {
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        Map<Long, BaseObject> objectsById = new HashMap<>(objects.size());
+        Map<Long, Set<String>> handledPropertiesById = new HashMap<>(objects.size());
+        Map<String, List<BaseObject>> customMappedObjects = new LinkedHashMap<>();
+        Map<String, BaseClass> customMappedClasses = new HashMap<>();
+        for (BaseObject object : objects) {
+            objectsById.put(object.getId(), object);
+            handledPropertiesById.put(object.getId(), new HashSet<>());
+
+            BaseClass bclass = getXClass(object, doc, context);
+            if (bclass != null && bclass.hasCustomMapping() && context.getWiki().hasCustomMappings()) {
+                String className = this.localEntityReferenceSerializer.serialize(bclass.getDocumentReference());
+                customMappedObjects.computeIfAbsent(className, k -> new ArrayList<>()).add(object);
+                customMappedClasses.put(className, bclass);
+            }
+        }
+
+        // Load the custom mapped properties, one query per class
+        for (Map.Entry<String, List<BaseObject>> entry : customMappedObjects.entrySet()) {
+            BaseClass bclass = customMappedClasses.get(entry.getKey());
+            List<BaseObject> classObjects = entry.getValue();
+            try {
+                List<Long> ids = new ArrayList<>(classObjects.size());
+                for (BaseObject object : classObjects) {
+                    ids.add(object.getId());
+                }
+                List<?> maps = session.byMultipleIds(entry.getKey()).multiLoad(ids);
+                for (int i = 0; i < maps.size(); ++i) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, ?> map = (Map<String, ?>) maps.get(i);
+                    if (map != null) {
+                        BaseObject object = classObjects.get(i);
+                        // Let's make sure to look for null fields in the dynamic mapping
+                        bclass.fromValueMap(map, object);
+                        for (String prop : bclass.getCustomMappingPropertyList(context)) {
+                            if (map.get(prop) != null) {
+                                handledPropertiesById.get(object.getId()).add(prop);
+                            }
+                        }
+                    }
+                }
+            } catch (HibernateException e) {
+                this.logger.error("Failed loading custom mapping for doc [{}], class [{}]", doc.getDocumentReference(),
+                    entry.getKey(), e);
+            }
+        }
+
+        // List all the properties of all the objects of the document
+        Query<Object[]> query = session.createQuery("select prop.id.id, prop.name, prop.classType "
+            + "from BaseProperty as prop where prop.id.id in "
+            + "(select bobject.id from BaseObject as bobject where bobject.name = :name)", Object[].class);
+        query.setParameter("name", doc.getFullName());
+        Map<String, Map<Long, Set<String>>> expectedProperties = new LinkedHashMap<>();
+        for (Object[] result : query.list()) {
+            Long id = (Long) result[0];
+            String name = (String) result[1];
+            String classType = (String) result[2];
+            // Skip properties of objects which don't really belong to this document and properties already loaded
+            // from the custom mapping
+            Set<String> handledProperties = handledPropertiesById.get(id);
+            if (handledProperties != null && !handledProperties.contains(name)) {
+                expectedProperties.computeIfAbsent(classType, k -> new HashMap<>())
+                    .computeIfAbsent(id, k -> new HashSet<>()).add(name);
+            }
+        }
+
+        // Load the properties values, one query per property type
+        Set<BaseObject> incompleteObjects = new LinkedHashSet<>();
+        for (Map.Entry<String, Map<Long, Set<String>>> entry : expectedProperties.entrySet()) {
+            String classType = entry.getKey();
+            Map<Long, Set<String>> expectedByObject = entry.getValue();
+
+            if (isPropertyClassType(classType)) {
+                // The items of the database lists are fetched with the lists instead of one query per list (the
+                // property is returned once per item, which is taken care of by the expected properties check below)
+                String fetch =
+                    DBStringListProperty.class.getName().equals(classType) ? " left join fetch prop.list" : "";
+                Query<BaseProperty> propertyQuery = session.createQuery("select prop from " + classType + " as prop"
+                    + fetch + " where prop.classType = :classType and prop.id.id in "
+                    + "(select bobject.id from BaseObject as bobject where bobject.name = :name)", BaseProperty.class);
+                propertyQuery.setParameter("classType", classType);
+                propertyQuery.setParameter("name", doc.getFullName());
+                for (BaseProperty property : propertyQuery.list()) {
+                    Set<String> expected = expectedByObject.get(property.getId());
+                    if (expected != null && expected.remove(property.getName())) {
+                        BaseObject object = objectsById.get(property.getId());
+                        property.setObject(object);
+                        initializeLoadedProperty(property);
+                        // Make sure lists are not lazy loaded
+                        if (property instanceof ListProperty) {
+                            ((ListProperty) property).getList();
+                        }
+                        object.addField(property.getName(), property);
+                    }
+                }
+            }
+
+            for (Map.Entry<Long, Set<String>> expectedEntry : expectedByObject.entrySet()) {
+                if (!expectedEntry.getValue().isEmpty()) {
+                    incompleteObjects.add(objectsById.get(expectedEntry.getKey()));
+                }
+            }
+        }
+
+        // Fallback on the standard (and slower) loading for objects with unexpected data
+        for (BaseObject object : incompleteObjects) {
+            loadXWikiCollectionInternal(object, doc, context, false, true);
+        }
+    }
+
+    private BaseClass getXClass(BaseCollection object, XWikiDocument doc, XWikiContext context)
+    {
+        BaseClass bclass = null;
+        if (!object.getXClassReference().equals(object.getDocumentReference())) {
+            bclass = object.getXClass(context);
+        } else if (doc != null) {
+            // We need to get it from the document otherwise we will go in an endless loop
+            bclass = doc.getXClass();
+        }
+
+        return bclass;
+    }
+
+    private boolean isPropertyClassType(String classType)
+    {
+        try {
+            return BaseProperty.class.isAssignableFrom(Class.forName(classType));
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private void initializeLoadedProperty(PropertyInterface property)
+    {
+        // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
+        // safe to assume that a retrieved NULL value should actually be an empty string.
+        if (property instanceof BaseStringProperty) {
+            BaseStringProperty stringProperty = (BaseStringProperty) property;
+            if (stringProperty.getValue() == null) {
+                stringProperty.setValue("");
+            }
+        }
+        ((BaseProperty) property).setValueDirty(false);
+    }
+
     private void loadXWikiCollectionInternal(BaseCollection object, XWikiContext context, boolean bTransaction,
         boolean alreadyLoaded) throws XWikiException
     {
@@ -1454,17 +1584,7 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
             // If the class reference is null in the loaded object then skip loading properties
             if (classReference != null) {
 
-                BaseClass bclass = null;
-                if (!classReference.equals(object.getDocumentReference())) {
-                    // Let's check if the class has a custom mapping
-                    bclass = object.getXClass(context);
-                } else {
-                    // We need to get it from the document otherwise
-                    // we will go in an endless loop
-                    if (doc != null) {
-                        bclass = doc.getXClass();
-                    }
-                }
+                BaseClass bclass = getXClass(object, doc, context);
 
                 List<String> handledProps = new ArrayList<>();
                 try {
@@ -1673,15 +1793,7 @@ private void loadXWikiProperty(PropertyInterface property, XWikiContext context,
 
             try {
                 session.load(property, (Serializable) property);
-                // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
-                // safe to assume that a retrieved NULL value should actually be an empty string.
-                if (property instanceof BaseStringProperty) {
-                    BaseStringProperty stringProperty = (BaseStringProperty) property;
-                    if (stringProperty.getValue() == null) {
-                        stringProperty.setValue("");
-                    }
-                }
-                ((BaseProperty) property).setValueDirty(false);
+                initializeLoadedProperty(property);
             } catch (ObjectNotFoundException e) {
                 // Let's accept that there is no data in property tables but log it
                 this.logger.error("No data for property [{}] of object id [{}]", property.getName(), property.getId());
@@ -19,10 +19,13 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -31,6 +34,8 @@
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.suigeneris.jrcs.rcs.Version;
@@ -61,6 +66,26 @@ public class XWikiHibernateVersioningStore extends XWikiHibernateBaseStore imple
 
     private static final String FIELD_DOCID = "docId";
 
+    private static final String FIELD_VERSION1 = "version1";
+
+    private static final String FIELD_VERSION2 = "version2";
+
+    private static final String FIELD_UPPERVERSION1 = "upperVersion1";
+
+    private static final String FIELD_UPPERVERSION2 = "upperVersion2";
+
+    private static final String WHERE_DOCID = " where node.id.docId = :docId and node.diff is not null";
+
+    private static final String WHERE_FROM_VERSION =
+        " and (node.id.version1 > :version1 or (node.id.version1 = :version1 and node.id.version2 >= :version2))";
+
+    private static final String ORDER_BY_VERSION_ASC = " order by node.id.version1 asc, node.id.version2 asc";
+
+    /**
+     * The number of nodes loaded at once when searching the nearest full version of a revision.
+     */
+    private static final int NODES_BATCH_SIZE = 20;
+
     /**
      * This allows to initialize our storage engine. The hibernate config file path is taken from xwiki.cfg or directly
      * in the WEB-INF directory.
@@ -109,9 +134,10 @@ public XWikiHibernateVersioningStore()
     public Version[] getXWikiDocVersions(XWikiDocument doc, XWikiContext context) throws XWikiException
     {
         try {
-            XWikiDocumentArchive archive = getXWikiDocumentArchive(doc, context);
+            XWikiDocumentArchive archive = doc.getDocumentArchive();
             if (archive == null) {
-                return new Version[0];
+                // Only load the versions instead of the complete archive
+                return loadXWikiDocVersions(doc, context);
             }
             Collection<XWikiRCSNodeInfo> nodes = archive.getNodes();
             Version[] versions = new Version[nodes.size()];
@@ -129,6 +155,38 @@ public Version[] getXWikiDocVersions(XWikiDocument doc, XWikiContext context) th
         }
     }
 
+    private Version[] loadXWikiDocVersions(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String currentWiki = context.getWikiId();
+        try {
+            if (doc.getDatabase() != null) {
+                context.setWikiId(doc.getDatabase());
+            }
+
+            return executeRead(context, session -> {
+                List<Object[]> results = session
+                    .createQuery("select node.id.version1, node.id.version2 from "
+                        + XWikiRCSNodeInfo.class.getName() + " as node" + WHERE_DOCID + ORDER_BY_VERSION_ASC,
+                        Object[].class)
+                    .setParameter(FIELD_DOCID, doc.getId()).getResultList();
+
+                Version[] versions = new Version[results.size()];
+                for (int i = 0; i < versions.length; i++) {
+                    Object[] result = results.get(i);
+                    versions[i] = new Version((Integer) result[0], (Integer) result[1]);
+                }
+
+                return versions;
+            });
+        } finally {
+            context.setWikiId(currentWiki);
+
+            restoreExecutionXContext();
+        }
+    }
+
     @Override
     public XWikiDocumentArchive getXWikiDocumentArchive(XWikiDocument doc, XWikiContext inputxcontext)
         throws XWikiException
@@ -203,10 +261,22 @@ public XWikiDocument loadXWikiDoc(XWikiDocument basedoc, String sversion, XWikiC
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
         try {
-            XWikiDocumentArchive archive = getXWikiDocumentArchive(basedoc, context);
             Version version = new Version(sversion);
 
-            XWikiDocument doc = archive.loadDocument(version, context);
+            XWikiDocument doc;
+            XWikiDocumentArchive archive = basedoc.getDocumentArchive();
+            if (archive != null) {
+                doc = archive.loadDocument(version, context);
+            } else {
+                // Only load the nodes needed to rebuild the version instead of the complete archive
+                archive = loadVersionXWikiDocArchive(basedoc, version, context);
+                doc = archive.loadDocument(version, context);
+                if (doc != null) {
+                    // The partial archive does not know if it contains the most recent version
+                    doc.setMostRecent(version.equals(basedoc.getRCSVersion()));
+                }
+            }
+
             if (doc == null) {
                 Object[] args = { basedoc.getDocumentReferenceWithLocale(), version.toString() };
                 throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
@@ -265,7 +335,11 @@ public void updateXWikiDocArchive(XWikiDocument doc, boolean bTransaction, XWiki
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
         try {
-            XWikiDocumentArchive archiveDoc = getXWikiDocumentArchive(doc, context);
+            XWikiDocumentArchive archiveDoc = doc.getDocumentArchive();
+            if (archiveDoc == null) {
+                // Only load what's needed to add the new version instead of the complete archive
+                archiveDoc = loadLatestXWikiDocArchive(doc, context);
+            }
             archiveDoc.updateArchive(doc, doc.getAuthor(), doc.getDate(), doc.getComment(), doc.getRCSVersion(),
                 context);
             doc.setRCSVersion(archiveDoc.getLatestVersion());
@@ -280,6 +354,125 @@ public void updateXWikiDocArchive(XWikiDocument doc, boolean bTransaction, XWiki
         }
     }
 
+    private XWikiDocumentArchive loadLatestXWikiDocArchive(XWikiDocument doc, XWikiContext context)
+        throws XWikiException
+    {
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+
+        executeRead(context, session -> {
+            List<XWikiRCSNodeInfo> latestNodes = session
+                .createQuery("from " + XWikiRCSNodeInfo.class.getName() + " as node" + WHERE_DOCID
+                    + " order by node.id.version1 desc, node.id.version2 desc", XWikiRCSNodeInfo.class)
+                .setParameter(FIELD_DOCID, doc.getId()).setMaxResults(1).getResultList();
+
+            Long nodeCount = session
+                .createQuery("select count(*) from " + XWikiRCSNodeInfo.class.getName() + " as node" + WHERE_DOCID,
+                    Long.class)
+                .setParameter(FIELD_DOCID, doc.getId()).uniqueResult();
+
+            archive.setLatestNodes(latestNodes, nodeCount.intValue());
+
+            return null;
+        });
+
+        return archive;
+    }
+
+    /**
+     * Load the nodes between the passed version and the nearest more recent full version (i.e. the nodes needed to
+     * rebuild the passed version) and their content.
+     */
+    private XWikiDocumentArchive loadVersionXWikiDocArchive(XWikiDocument doc, Version version,
+        XWikiContext inputxcontext) throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String currentWiki = context.getWikiId();
+        try {
+            if (doc.getDatabase() != null) {
+                context.setWikiId(doc.getDatabase());
+            }
+
+            List<XWikiRCSNodeInfo> nodes = executeRead(context, session -> loadNodes(session, doc.getId(), version));
+
+            if (!nodes.isEmpty()) {
+                executeRead(context, session -> loadNodeContents(session, doc.getId(), nodes));
+            }
+
+            XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+            archive.setNodes(nodes);
+
+            return archive;
+        } finally {
+            context.setWikiId(currentWiki);
+
+            restoreExecutionXContext();
+        }
+    }
+
+    private List<XWikiRCSNodeInfo> loadNodes(Session session, long docId, Version version)
+    {
+        Query<XWikiRCSNodeInfo> query = session.createQuery(
+            "from " + XWikiRCSNodeInfo.class.getName() + " as node" + WHERE_DOCID + WHERE_FROM_VERSION
+                + ORDER_BY_VERSION_ASC,
+            XWikiRCSNodeInfo.class);
+        query.setParameter(FIELD_DOCID, docId);
+        query.setParameter(FIELD_VERSION1, version.at(0));
+        query.setParameter(FIELD_VERSION2, version.at(1));
+        query.setMaxResults(NODES_BATCH_SIZE);
+
+        List<XWikiRCSNodeInfo> nodes = new ArrayList<>();
+        for (int offset = 0;; offset += NODES_BATCH_SIZE) {
+            List<XWikiRCSNodeInfo> batch = query.setFirstResult(offset).getResultList();
+
+            for (XWikiRCSNodeInfo node : batch) {
+                nodes.add(node);
+
+                // Stop at the first full version
+                if (!node.isDiff()) {
+                    return nodes;
+                }
+            }
+
+            if (batch.size() < NODES_BATCH_SIZE) {
+                // The most recent version is always a full version
+                return nodes;
+            }
+        }
+    }
+
+    private Void loadNodeContents(Session session, long docId, List<XWikiRCSNodeInfo> nodes)
+    {
+        Version lowerVersion = nodes.get(0).getVersion();
+        Version upperVersion = nodes.get(nodes.size() - 1).getVersion();
+
+        Query<XWikiRCSNodeContent> query = session.createQuery("from " + XWikiRCSNodeContent.class.getName()
+            + " as node where node.id.docId = :docId" + WHERE_FROM_VERSION
+            + " and (node.id.version1 < :upperVersion1"
+            + " or (node.id.version1 = :upperVersion1 and node.id.version2 <= :upperVersion2))",
+            XWikiRCSNodeContent.class);
+        query.setParameter(FIELD_DOCID, docId);
+        query.setParameter(FIELD_VERSION1, lowerVersion.at(0));
+        query.setParameter(FIELD_VERSION2, lowerVersion.at(1));
+        query.setParameter(FIELD_UPPERVERSION1, upperVersion.at(0));
+        query.setParameter(FIELD_UPPERVERSION2, upperVersion.at(1));
+
+        Map<Version, XWikiRCSNodeContent> contents = new HashMap<>();
+        for (XWikiRCSNodeContent content : query.getResultList()) {
+            contents.put(content.getId().getVersion(), content);
+        }
+
+        for (XWikiRCSNodeInfo node : nodes) {
+            XWikiRCSNodeContent content = contents.get(node.getVersion());
+            // Nodes without content are loaded on demand (and fail) as before
+            if (content != null) {
+                node.setContent(content);
+            }
+        }
+
+        return null;
+    }
+
     /**
      * @param context the XWiki context
      * @param id {@link XWikiRCSNodeContent#getId()}
@@ -0,0 +1,197 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.xpn.xwiki.XWikiException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link SingleFlightLoader}.
+ *
+ * @version $Id$
+ */
+class SingleFlightLoaderTest
+{
+    private final SingleFlightLoader<String> loader = new SingleFlightLoader<>();
+
+    @Test
+    void loadAndPublish() throws XWikiException
+    {
+        List<String> published = new ArrayList<>();
+
+        assertEquals("value", this.loader.load("key", () -> "value", published::add));
+        assertEquals("value", this.loader.load("key", () -> "value", published::add));
+
+        assertEquals(2, published.size());
+        assertEquals(2, this.loader.getLoadCount());
+        assertEquals(0, this.loader.getCoalescedCount());
+    }
+
+    @Test
+    void concurrentLoads() throws Exception
+    {
+        int threads = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<String> published = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> this.loader.load("key", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new XWikiException("Interrupted", e);
+                }
+                return "value";
+            }, published::add)));
+
+            started.await();
+
+            for (int i = 1; i < threads; ++i) {
+                results.add(executor.submit(() -> this.loader.load("key", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                }, published::add)));
+            }
+
+            // Give the waiting threads a chance to join the running load
+            while (this.loader.getCoalescedCount() < threads - 1) {
+                Thread.sleep(1);
+            }
+
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, published.size());
+        assertEquals(1, this.loader.getLoadCount());
+        assertEquals(threads - 1, this.loader.getCoalescedCount());
+    }
+
+    @Test
+    void invalidateWhileLoading() throws XWikiException
+    {
+        List<String> published = new ArrayList<>();
+
+        assertEquals("value", this.loader.load("key", () -> {
+            this.loader.invalidate("key");
+            return "value";
+        }, published::add));
+
+        assertEquals(0, published.size());
+    }
+
+    @Test
+    void reentrantLoad() throws XWikiException
+    {
+        assertEquals("outer", this.loader.load("key", () -> {
+            assertEquals("inner", this.loader.load("key", () -> "inner", value -> {
+            }));
+            return "outer";
+        }, value -> {
+        }));
+
+        assertEquals(2, this.loader.getLoadCount());
+    }
+
+    @Test
+    void crossedLoads() throws Exception
+    {
+        // Each load needs the value of the other key (like two documents whose classes are each other's)
+        CountDownLatch started = new CountDownLatch(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> resultA = executor.submit(() -> loadCrossed("A", "B", started));
+            Future<String> resultB = executor.submit(() -> loadCrossed("B", "A", started));
+
+            assertEquals("A", resultA.get(10, TimeUnit.SECONDS));
+            assertEquals("B", resultB.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // At least one of the threads loaded the other key itself instead of waiting for a load waiting for it
+        assertTrue(this.loader.getLoadCount() >= 3);
+    }
+
+    private String loadCrossed(String key, String otherKey, CountDownLatch started) throws XWikiException
+    {
+        return this.loader.load(key, () -> {
+            // Make sure both loads are running before asking for the other key
+            started.countDown();
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                throw new XWikiException("Interrupted", e);
+            }
+
+            assertEquals(otherKey, this.loader.load(otherKey, () -> otherKey, value -> {
+            }));
+
+            return key;
+        }, value -> {
+        });
+    }
+
+    @Test
+    void loadFailing()
+    {
+        XWikiException exception = new XWikiException();
+
+        assertSame(exception, assertThrows(XWikiException.class, () -> this.loader.load("key", () -> {
+            throw exception;
+        }, value -> {
+        })));
+
+        // A failed load should not prevent the next one
+        assertThrows(XWikiException.class, () -> this.loader.load("key", () -> {
+            throw new XWikiException();
+        }, value -> {
+        }));
+        assertEquals(2, this.loader.getLoadCount());
+    }
+}
@@ -19,8 +19,15 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.model.internal.reference.UidStringEntityReferenceSerializer;
@@ -29,6 +36,7 @@
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
 import org.xwiki.test.annotation.ComponentList;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.test.MockitoOldcore;
@@ -36,13 +44,17 @@
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -121,6 +133,114 @@ void loadXWikiDoc() throws Exception
         verifyNoMoreInteractions(this.existCache);
     }
 
+    @Test
+    void loadXWikiDocConcurrentlyWhileInvalidated() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        xcontext.setWikiId("wiki");
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+        XWikiDocument storedDocument = new XWikiDocument(reference);
+        storedDocument.setNew(false);
+
+        // Block the load until the document is invalidated
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loading.countDown();
+            invalidated.await();
+
+            return storedDocument;
+        }).when(this.oldcore.getMockStore()).loadXWikiDoc(any(XWikiDocument.class), any(XWikiContext.class));
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), xcontext);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<XWikiDocument> loader =
+                executor.submit(() -> store.loadXWikiDoc(new XWikiDocument(reference), xcontext));
+            loading.await();
+            Future<XWikiDocument> waiter =
+                executor.submit(() -> store.loadXWikiDoc(new XWikiDocument(reference), xcontext));
+
+            // Wait for the second load to wait for the first one
+            while (store.getCoalescedDocumentLoadCount() == 0) {
+                Thread.sleep(10);
+            }
+
+            // Modify the document on another cluster member
+            RemoteObservationManagerContext remoteObservationManagerContext =
+                this.oldcore.getMocker().getInstance(RemoteObservationManagerContext.class);
+            when(remoteObservationManagerContext.isRemoteState()).thenReturn(true);
+            store.onEvent(new DocumentUpdatedEvent(), new XWikiDocument(reference), null);
+
+            invalidated.countDown();
+
+            assertSame(storedDocument, loader.get());
+            assertSame(storedDocument, waiter.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The invalidated document was not put in the cache so it must not be flagged as coming from the cache
+        verify(this.cache, never()).set(any(), any());
+        assertFalse(storedDocument.isFromCache());
+        assertEquals(1, store.getDocumentLoadCount());
+    }
+
+    @Test
+    void loadXWikiDocWithCyclicClasses() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        xcontext.setWikiId("wiki");
+
+        DocumentReference referenceA = new DocumentReference("wiki", "space", "ClassA");
+        DocumentReference referenceB = new DocumentReference("wiki", "space", "ClassB");
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), xcontext);
+
+        // Each document has a property referencing the class of the other one, which is loaded while loading the
+        // document (like XWikiDocument#getXClass() does through XWiki#getDocument())
+        CountDownLatch started = new CountDownLatch(2);
+        ThreadLocal<Boolean> loadingClass = ThreadLocal.withInitial(() -> Boolean.FALSE);
+        doAnswer(invocation -> {
+            XWikiDocument document = invocation.getArgument(0);
+
+            // Only the first level needs the other class (the class itself is not loaded again)
+            if (!loadingClass.get()) {
+                started.countDown();
+                started.await();
+
+                DocumentReference otherReference =
+                    document.getDocumentReference().equals(referenceA) ? referenceB : referenceA;
+                loadingClass.set(Boolean.TRUE);
+                try {
+                    assertFalse(store.loadXWikiDoc(new XWikiDocument(otherReference), xcontext).isNew());
+                } finally {
+                    loadingClass.set(Boolean.FALSE);
+                }
+            }
+
+            document.setNew(false);
+
+            return document;
+        }).when(this.oldcore.getMockStore()).loadXWikiDoc(any(XWikiDocument.class), any(XWikiContext.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<XWikiDocument> documentA =
+                executor.submit(() -> store.loadXWikiDoc(new XWikiDocument(referenceA), xcontext));
+            Future<XWikiDocument> documentB =
+                executor.submit(() -> store.loadXWikiDoc(new XWikiDocument(referenceB), xcontext));
+
+            // The loads should not wait for each other forever
+            assertEquals(referenceA, documentA.get(10, TimeUnit.SECONDS).getDocumentReference());
+            assertEquals(referenceB, documentB.get(10, TimeUnit.SECONDS).getDocumentReference());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void saveXWikiDocumentFailing() throws XWikiException
     {
@@ -0,0 +1,347 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.hibernate.MultiIdentifierLoadAccess;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.DBStringListProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
+import com.xpn.xwiki.objects.LargeStringProperty;
+import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the loading of the objects properties in {@link XWikiHibernateStore#loadXWikiDoc(XWikiDocument,
+ * XWikiContext)}. The database is simulated by mocked Hibernate queries working on the properties "stored" by the
+ * test.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+class XWikiHibernateStoreLoadObjectsTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("xwiki", "Space", "Page");
+
+    private static final DocumentReference CLASS1_REFERENCE = new DocumentReference("xwiki", "Space", "Class1");
+
+    private static final DocumentReference CLASS2_REFERENCE = new DocumentReference("xwiki", "Space", "Class2");
+
+    private static final DocumentReference MAPPED_CLASS_REFERENCE =
+        new DocumentReference("xwiki", "Space", "MappedClass");
+
+    private static final DocumentReference GROUPS_CLASS_REFERENCE =
+        new DocumentReference("xwiki", "XWiki", "XWikiGroups");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @MockComponent
+    private HibernateStore hibernateStore;
+
+    @InjectMockComponents
+    private XWikiHibernateStore store;
+
+    private final Session session = mock(Session.class);
+
+    /**
+     * The stored objects.
+     */
+    private final List<BaseObject> storedObjects = new ArrayList<>();
+
+    /**
+     * The stored properties (object id, name, type and value).
+     */
+    private final List<Object[]> storedProperties = new ArrayList<>();
+
+    /**
+     * The values stored in the custom mapped table, by object id.
+     */
+    private final Map<Long, Map<String, Object>> storedCustomMappedValues = new HashMap<>();
+
+    private XWikiContext xcontext;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.xcontext = this.oldcore.getXWikiContext();
+
+        doReturn(true).when(this.oldcore.getSpyXWiki()).hasCustomMappings();
+        doReturn(false).when(this.oldcore.getSpyXWiki()).hasDynamicCustomMappings();
+
+        when(this.hibernateStore.getSessionFactory()).thenReturn(mock(SessionFactory.class));
+        when(this.hibernateStore.getCurrentSession()).thenReturn(this.session);
+
+        // The document itself
+        doAnswer(invocation -> {
+            XWikiDocument document = invocation.getArgument(0);
+            document.setElement(XWikiDocument.HAS_OBJECTS, true);
+            return null;
+        }).when(this.session).load(any(XWikiDocument.class), any(Serializable.class));
+
+        // The objects
+        when(this.session.createQuery(anyString(), same(BaseObject.class))).then(invocation -> {
+            List<BaseObject> objects = new ArrayList<>();
+            for (BaseObject storedObject : this.storedObjects) {
+                BaseObject object = new BaseObject();
+                object.setDocumentReference(storedObject.getDocumentReference());
+                object.setXClassReference(storedObject.getRelativeXClassReference());
+                object.setNumber(storedObject.getNumber());
+                objects.add(object);
+            }
+            return mockQuery(objects);
+        });
+
+        // The list of properties
+        when(this.session.createQuery(anyString(), same(Object[].class))).then(invocation -> mockQuery(
+            this.storedProperties.stream().map(row -> new Object[] { row[0], row[1], ((Class<?>) row[2]).getName() })
+                .collect(Collectors.toList())));
+
+        // The properties, by type
+        when(this.session.createQuery(anyString(), same(BaseProperty.class))).then(invocation -> {
+            String statement = invocation.getArgument(0);
+            List<BaseProperty> properties = new ArrayList<>();
+            for (Object[] row : this.storedProperties) {
+                Class<?> type = (Class<?>) row[2];
+                if (statement.startsWith("select prop from " + type.getName() + " as prop")) {
+                    BaseProperty property = (BaseProperty) type.newInstance();
+                    property.setId((Long) row[0]);
+                    property.setName((String) row[1]);
+                    property.setValue(row[3]);
+                    properties.add(property);
+                }
+            }
+            return mockQuery(properties);
+        });
+
+        // The custom mapped properties
+        MultiIdentifierLoadAccess multiLoadAccess = mock(MultiIdentifierLoadAccess.class);
+        doReturn(multiLoadAccess).when(this.session).byMultipleIds("Space.MappedClass");
+        when(multiLoadAccess.multiLoad(anyList())).then(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> this.storedCustomMappedValues.get(id) != null
+                ? new HashMap<>(this.storedCustomMappedValues.get(id)) : null).collect(Collectors.toList());
+        });
+        when(this.oldcore.getMockStore().getCustomMappingPropertyList(any()))
+            .thenReturn(Collections.singletonList("mapped"));
+
+        XWikiDocument mappedClassDocument = new XWikiDocument(MAPPED_CLASS_REFERENCE);
+        mappedClassDocument.getXClass().addTextField("mapped", "Mapped", 30);
+        mappedClassDocument.getXClass().addTextField("notmapped", "Not mapped", 30);
+        mappedClassDocument.getXClass().setCustomMapping("internal");
+        this.oldcore.getSpyXWiki().saveDocument(mappedClassDocument, this.xcontext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Query<T> mockQuery(List<T> results)
+    {
+        Query<T> query = mock(Query.class);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.list()).thenReturn(results);
+
+        return query;
+    }
+
+    private BaseObject storeObject(DocumentReference classReference, int number)
+    {
+        BaseObject object = new BaseObject();
+        object.setDocumentReference(DOCUMENT_REFERENCE);
+        object.setXClassReference(classReference);
+        object.setNumber(number);
+        this.storedObjects.add(object);
+
+        return object;
+    }
+
+    private void storeProperty(BaseObject object, String name, Class<? extends BaseProperty> type, Object value)
+    {
+        this.storedProperties.add(new Object[] { object.getId(), name, type, value });
+    }
+
+    private XWikiDocument load() throws Exception
+    {
+        XWikiDocument document = this.store.loadXWikiDoc(new XWikiDocument(DOCUMENT_REFERENCE), this.xcontext);
+
+        assertFalse(document.isNew());
+
+        // None of the objects should have needed the (slower) per object loading
+        verify(this.session, never()).load(any(BaseProperty.class), any(Serializable.class));
+
+        return document;
+    }
+
+    @Test
+    void loadObjectsOfSeveralClasses() throws Exception
+    {
+        BaseObject object1 = storeObject(CLASS1_REFERENCE, 0);
+        storeProperty(object1, "string", StringProperty.class, "value1");
+        storeProperty(object1, "number", IntegerProperty.class, 1);
+        storeProperty(object1, "text", LargeStringProperty.class, "text1");
+        BaseObject object2 = storeObject(CLASS1_REFERENCE, 1);
+        storeProperty(object2, "string", StringProperty.class, "value2");
+        storeProperty(object2, "number", IntegerProperty.class, 2);
+        BaseObject object3 = storeObject(CLASS2_REFERENCE, 0);
+        storeProperty(object3, "string", StringProperty.class, null);
+        storeProperty(object3, "text", LargeStringProperty.class, "text3");
+
+        XWikiDocument document = load();
+
+        BaseObject loaded1 = document.getXObject(CLASS1_REFERENCE, 0);
+        assertEquals("value1", loaded1.getStringValue("string"));
+        assertEquals(1, loaded1.getIntValue("number"));
+        assertEquals("text1", loaded1.getLargeStringValue("text"));
+        assertEquals(3, loaded1.getPropertyList().size());
+
+        BaseObject loaded2 = document.getXObject(CLASS1_REFERENCE, 1);
+        assertEquals("value2", loaded2.getStringValue("string"));
+        assertEquals(2, loaded2.getIntValue("number"));
+        assertNull(loaded2.getField("text"));
+
+        BaseObject loaded3 = document.getXObject(CLASS2_REFERENCE, 0);
+        // Null strings are loaded as empty strings (Oracle)
+        assertEquals("", ((BaseProperty) loaded3.getField("string")).getValue());
+        assertEquals("text3", loaded3.getLargeStringValue("text"));
+        assertNull(loaded3.getField("number"));
+
+        // The properties are linked to their object and not dirty
+        assertSame(loaded1, ((BaseProperty) loaded1.getField("string")).getObject());
+        assertFalse(((BaseProperty) loaded1.getField("string")).isValueDirty());
+
+        // One query per property type
+        verify(this.session, times(3)).createQuery(anyString(), same(BaseProperty.class));
+        verify(this.session, never()).byMultipleIds(anyString());
+    }
+
+    @Test
+    void loadCustomMappedObjects() throws Exception
+    {
+        BaseObject mapped1 = storeObject(MAPPED_CLASS_REFERENCE, 0);
+        this.storedCustomMappedValues.put(mapped1.getId(), Collections.singletonMap("mapped", "mapped1"));
+        // Custom mapped properties are also listed with the other properties
+        storeProperty(mapped1, "mapped", StringProperty.class, "wrong");
+        storeProperty(mapped1, "notmapped", StringProperty.class, "notmapped1");
+        BaseObject mapped2 = storeObject(MAPPED_CLASS_REFERENCE, 1);
+        this.storedCustomMappedValues.put(mapped2.getId(), Collections.singletonMap("mapped", "mapped2"));
+        BaseObject object = storeObject(CLASS1_REFERENCE, 0);
+        storeProperty(object, "string", StringProperty.class, "value");
+
+        XWikiDocument document = load();
+
+        BaseObject loadedMapped1 = document.getXObject(MAPPED_CLASS_REFERENCE, 0);
+        assertEquals("mapped1", loadedMapped1.getStringValue("mapped"));
+        assertEquals("notmapped1", loadedMapped1.getStringValue("notmapped"));
+        BaseObject loadedMapped2 = document.getXObject(MAPPED_CLASS_REFERENCE, 1);
+        assertEquals("mapped2", loadedMapped2.getStringValue("mapped"));
+        assertNull(loadedMapped2.getField("notmapped"));
+        assertEquals("value", document.getXObject(CLASS1_REFERENCE, 0).getStringValue("string"));
+
+        // One query for all the objects of the custom mapped class
+        verify(this.session).byMultipleIds("Space.MappedClass");
+        verify(this.session).createQuery(anyString(), same(BaseProperty.class));
+    }
+
+    @Test
+    void loadGroupObjects() throws Exception
+    {
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            BaseObject group = storeObject(GROUPS_CLASS_REFERENCE, i);
+            String member = "XWiki.User" + i;
+            storeProperty(group, "member", StringProperty.class, member);
+            members.add(member);
+        }
+        // An empty member (as created with the group)
+        storeObject(GROUPS_CLASS_REFERENCE, 50);
+
+        XWikiDocument document = load();
+
+        List<BaseObject> groups = document.getXObjects(GROUPS_CLASS_REFERENCE);
+        assertEquals(51, groups.size());
+        assertEquals(members,
+            groups.subList(0, 50).stream().map(group -> group.getStringValue("member")).collect(Collectors.toList()));
+        assertEquals(GROUPS_CLASS_REFERENCE, groups.get(0).getXClassReference());
+        assertEquals(DOCUMENT_REFERENCE, groups.get(0).getDocumentReference());
+        assertTrue(groups.get(50).getPropertyList().isEmpty());
+
+        // All the members are loaded with a single query, as with the previous special case for the groups
+        verify(this.session).createQuery(anyString(), same(BaseProperty.class));
+        verify(this.session).createQuery(anyString(), same(Object[].class));
+    }
+
+    @Test
+    void loadDatabaseListProperties() throws Exception
+    {
+        BaseObject object1 = storeObject(CLASS1_REFERENCE, 0);
+        storeProperty(object1, "list", DBStringListProperty.class, Arrays.asList("a", "b"));
+        BaseObject object2 = storeObject(CLASS1_REFERENCE, 1);
+        storeProperty(object2, "list", DBStringListProperty.class, Arrays.asList("c"));
+
+        XWikiDocument document = load();
+
+        assertEquals(Arrays.asList("a", "b"), document.getXObject(CLASS1_REFERENCE, 0).getListValue("list"));
+        assertEquals(Arrays.asList("c"), document.getXObject(CLASS1_REFERENCE, 1).getListValue("list"));
+
+        // The list items are fetched with the properties
+        verify(this.session).createQuery(contains(" left join fetch prop.list "), same(BaseProperty.class));
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiPatch;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.component.XWikiDocumentFilterUtilsComponentList;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the loading of partial archives in {@link XWikiHibernateVersioningStore}. The database is simulated by
+ * mocked Hibernate queries working on the nodes "stored" by the test.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+@XWikiDocumentFilterUtilsComponentList
+class XWikiHibernateVersioningStoreTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("xwiki", "Space", "Page");
+
+    private static final String AUTHOR = "XWiki.Author";
+
+    private static final String FIRST_RESULT = "firstResult";
+
+    private static final String MAX_RESULTS = "maxResults";
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @MockComponent
+    private HibernateStore hibernateStore;
+
+    @InjectMockComponents
+    private XWikiHibernateVersioningStore store;
+
+    private final Session session = mock(Session.class);
+
+    /**
+     * The stored nodes, by version.
+     */
+    private final Map<Version, XWikiRCSNodeInfo> storedNodes = new TreeMap<>();
+
+    /**
+     * The stored node contents, by version.
+     */
+    private final Map<Version, XWikiRCSNodeContent> storedContents = new TreeMap<>();
+
+    private final Set<Version> savedNodes = new HashSet<>();
+
+    private XWikiContext xcontext;
+
+    private XWikiDocument document;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.xcontext = this.oldcore.getXWikiContext();
+
+        when(this.hibernateStore.getSessionFactory()).thenReturn(mock(SessionFactory.class));
+        when(this.hibernateStore.getCurrentSession()).thenReturn(this.session);
+
+        when(this.session.createQuery(anyString(), same(XWikiRCSNodeInfo.class))).then(invocation -> {
+            String statement = invocation.getArgument(0);
+            if (statement.contains(" desc")) {
+                // The latest nodes
+                return mockQuery(parameters -> {
+                    List<XWikiRCSNodeInfo> nodes = copyNodes(this.storedNodes.keySet());
+                    Collections.reverse(nodes);
+                    return limit(nodes, parameters);
+                });
+            }
+
+            // The nodes starting from a version
+            return mockQuery(parameters -> {
+                Version from = getVersion(parameters, "version1", "version2");
+
+                return limit(copyNodes(this.storedNodes.keySet().stream()
+                    .filter(version -> version.compareVersions(from) >= 0).collect(Collectors.toList())), parameters);
+            });
+        });
+        when(this.session.createQuery(anyString(), same(Long.class)))
+            .then(invocation -> mockQuery(parameters -> Collections.singletonList((long) this.storedNodes.size())));
+        when(this.session.createQuery(anyString(), same(XWikiRCSNodeContent.class)))
+            .then(invocation -> mockQuery(parameters -> {
+                Version lower = getVersion(parameters, "version1", "version2");
+                Version upper = getVersion(parameters, "upperVersion1", "upperVersion2");
+
+                return this.storedContents.keySet().stream()
+                    .filter(version -> version.compareVersions(lower) >= 0 && version.compareVersions(upper) <= 0)
+                    .map(version -> copy(this.storedContents.get(version))).collect(Collectors.toList());
+            }));
+
+        // Saving
+        doAnswer(invocation -> {
+            XWikiRCSNodeInfo node = invocation.getArgument(0);
+            this.storedNodes.put(node.getVersion(), copy(node));
+            this.savedNodes.add(node.getVersion());
+            return null;
+        }).when(this.session).saveOrUpdate(any(XWikiRCSNodeInfo.class));
+        doAnswer(invocation -> {
+            XWikiRCSNodeContent content = invocation.getArgument(0);
+            this.storedContents.put(content.getId().getVersion(), copy(content));
+            return null;
+        }).when(this.session).update(any(XWikiRCSNodeContent.class));
+
+        // Lazy loading of a node content
+        when(this.oldcore.getMockVersioningStore().loadRCSNodeContent(any(), anyBoolean(), any())).then(invocation -> {
+            XWikiRCSNodeId id = invocation.getArgument(0);
+            return copy(this.storedContents.get(id.getVersion()));
+        });
+
+        this.document = new XWikiDocument(DOCUMENT_REFERENCE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Query<T> mockQuery(Function<Map<String, Object>, List<T>> results)
+    {
+        Map<String, Object> parameters = new HashMap<>();
+
+        Query<T> query = mock(Query.class);
+        when(query.setParameter(anyString(), any())).then(invocation -> {
+            parameters.put(invocation.getArgument(0), invocation.getArgument(1));
+            return query;
+        });
+        when(query.setFirstResult(anyInt())).then(invocation -> {
+            parameters.put(FIRST_RESULT, invocation.getArgument(0));
+            return query;
+        });
+        when(query.setMaxResults(anyInt())).then(invocation -> {
+            parameters.put(MAX_RESULTS, invocation.getArgument(0));
+            return query;
+        });
+        when(query.getResultList()).then(invocation -> results.apply(parameters));
+        when(query.uniqueResult()).then(invocation -> results.apply(parameters).get(0));
+
+        return query;
+    }
+
+    private static Version getVersion(Map<String, Object> parameters, String version1, String version2)
+    {
+        return new Version((Integer) parameters.get(version1), (Integer) parameters.get(version2));
+    }
+
+    private static <T> List<T> limit(List<T> list, Map<String, Object> parameters)
+    {
+        int from = Math.min((Integer) parameters.getOrDefault(FIRST_RESULT, 0), list.size());
+        int to = Math.min(from + (Integer) parameters.getOrDefault(MAX_RESULTS, Integer.MAX_VALUE), list.size());
+
+        return new ArrayList<>(list.subList(from, to));
+    }
+
+    private List<XWikiRCSNodeInfo> copyNodes(Iterable<Version> versions)
+    {
+        List<XWikiRCSNodeInfo> nodes = new ArrayList<>();
+        for (Version version : versions) {
+            nodes.add(copy(this.storedNodes.get(version)));
+        }
+
+        return nodes;
+    }
+
+    private static XWikiRCSNodeInfo copy(XWikiRCSNodeInfo node)
+    {
+        XWikiRCSNodeInfo copy = new XWikiRCSNodeInfo((XWikiRCSNodeId) node.getId().clone());
+        copy.setAuthor(node.getAuthor());
+        copy.setComment(node.getComment());
+        copy.setDate(node.getDate());
+        copy.setDiff(node.isDiff());
+
+        return copy;
+    }
+
+    private static XWikiRCSNodeContent copy(XWikiRCSNodeContent content)
+    {
+        XWikiRCSNodeContent copy = new XWikiRCSNodeContent((XWikiRCSNodeId) content.getId().clone());
+        copy.setPatch(new XWikiPatch(content.getPatch().getContent(), content.getPatch().isDiff()));
+
+        return copy;
+    }
+
+    private void setContent(int version)
+    {
+        this.document.setContent("first line\ncontent " + version + ".1\nlast line");
+        this.document.setComment("comment " + version + ".1");
+        this.document.setAuthor(AUTHOR);
+        this.document.setDate(new Date(version * 1000L));
+    }
+
+    /**
+     * Create a complete archive and store its nodes.
+     */
+    private XWikiDocumentArchive createStoredArchive(int versionCount) throws XWikiException
+    {
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(this.document.getId());
+
+        for (int i = 1; i <= versionCount; ++i) {
+            setContent(i);
+            archive.updateArchive(this.document, this.document.getAuthor(), this.document.getDate(),
+                this.document.getComment(), null, this.xcontext);
+        }
+
+        for (XWikiRCSNodeInfo node : archive.getNodes()) {
+            this.storedNodes.put(node.getVersion(), copy(node));
+            this.storedContents.put(node.getVersion(), copy(node.getContent(null)));
+        }
+
+        this.document.setRCSVersion(archive.getLatestVersion());
+
+        return archive;
+    }
+
+    /**
+     * Make sure that each version loaded from the stored nodes (without the complete archive) is the same as the one
+     * loaded from the complete archive.
+     */
+    private void assertVersions(XWikiDocumentArchive archive) throws XWikiException
+    {
+        for (XWikiRCSNodeInfo node : archive.getNodes()) {
+            XWikiDocument expected = archive.loadDocument(node.getVersion(), this.xcontext);
+            XWikiDocument actual =
+                this.store.loadXWikiDoc(this.document, node.getVersion().toString(), this.xcontext);
+
+            assertEquals(expected.getContent(), actual.getContent());
+            assertEquals(expected.getComment(), actual.getComment());
+            assertEquals(expected.getAuthor(), actual.getAuthor());
+            assertEquals(expected.getRCSVersion(), actual.getRCSVersion());
+            assertEquals(expected.isMostRecent(), actual.isMostRecent());
+        }
+
+        // The complete archive is never loaded
+        verify(this.session, never()).getCriteriaBuilder();
+        assertNull(this.document.getDocumentArchive());
+    }
+
+    @Test
+    void loadXWikiDocWithoutLoadedArchive() throws Exception
+    {
+        // A full version is kept every 5 versions
+        assertVersions(createStoredArchive(12));
+    }
+
+    @Test
+    void loadXWikiDocWithoutLoadedArchiveAndOnlyDiffs() throws Exception
+    {
+        // Only the latest version is a full version so the nodes are loaded in several batches
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.store.rcs.nodesPerFull", "0");
+
+        assertVersions(createStoredArchive(25));
+    }
+
+    @Test
+    void updateXWikiDocArchiveWithoutLoadedArchive() throws Exception
+    {
+        XWikiDocumentArchive archive = createStoredArchive(3);
+
+        setContent(4);
+        archive.updateArchive(this.document, this.document.getAuthor(), this.document.getDate(),
+            this.document.getComment(), this.document.getRCSVersion(), this.xcontext);
+
+        this.store.updateXWikiDocArchive(this.document, false, this.xcontext);
+
+        assertEquals(new Version(4, 1), this.document.getRCSVersion());
+
+        // Only the previous latest version (which became a diff) and the new one are saved
+        assertEquals(new HashSet<>(Arrays.asList(new Version(3, 1), new Version(4, 1))), this.savedNodes);
+        assertTrue(this.storedNodes.get(new Version(3, 1)).isDiff());
+        assertFalse(this.storedNodes.get(new Version(4, 1)).isDiff());
+
+        // The stored history is the same as the one updated with the complete archive
+        assertVersions(archive);
+    }
+
+    @Test
+    void updateXWikiDocArchiveWithoutLoadedArchiveKeepsFullVersions() throws Exception
+    {
+        XWikiDocumentArchive archive = createStoredArchive(5);
+
+        setContent(6);
+        archive.updateArchive(this.document, this.document.getAuthor(), this.document.getDate(),
+            this.document.getComment(), this.document.getRCSVersion(), this.xcontext);
+
+        this.store.updateXWikiDocArchive(this.document, false, this.xcontext);
+
+        assertEquals(new Version(6, 1), this.document.getRCSVersion());
+
+        // The number of stored nodes is taken into account to keep the 5th version as a full version
+        assertEquals(Collections.singleton(new Version(6, 1)), this.savedNodes);
+        assertFalse(this.storedNodes.get(new Version(5, 1)).isDiff());
+
+        assertVersions(archive);
+    }
+}
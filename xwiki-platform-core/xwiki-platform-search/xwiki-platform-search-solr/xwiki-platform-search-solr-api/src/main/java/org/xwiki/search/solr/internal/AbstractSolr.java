@@ -23,10 +23,14 @@
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.solr.client.solrj.SolrClient;
 import org.slf4j.Logger;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -35,6 +39,8 @@
 import org.xwiki.search.solr.Solr;
 import org.xwiki.search.solr.SolrCoreInitializer;
 import org.xwiki.search.solr.SolrException;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrConfiguration.CommitMode;
 
 /**
  * The entry point of access Solr cores.
@@ -52,10 +58,24 @@ public abstract class AbstractSolr implements Solr, Disposable
 
     protected final Map<String, SolrClient> clients = new ConcurrentHashMap<>();
 
+    @Inject
+    private SolrConfiguration commitConfiguration;
+
+    private ScheduledExecutorService hardCommitExecutor;
+
     @Override
     public void dispose()
     {
+        synchronized (this) {
+            if (this.hardCommitExecutor != null) {
+                this.hardCommitExecutor.shutdownNow();
+            }
+        }
+
         for (SolrClient client : this.clients.values()) {
+            // Make sure all the changes are flushed to the storage
+            hardCommit(client);
+
             try {
                 client.close();
             } catch (IOException e) {
@@ -96,7 +116,7 @@ private synchronized SolrClient getSynchronizedClient(String coreName)
                 initializer.initialize(solrClient);
             }
 
-            return solrClient;
+            return wrap(solrClient);
         } catch (SolrException e) {
             this.logger.error("Failed to create the Solr client for core with name [{}]", coreName, e);
 
@@ -112,4 +132,47 @@ private synchronized SolrClient getSynchronizedClient(String coreName)
     protected abstract SolrClient getInternalSolrClient(String coreName) throws SolrException;
 
     protected abstract SolrClient createCore(String coreName, Map<String, String> parameters) throws SolrException;
+
+    /**
+     * Apply the configured {@link CommitMode} to the passed client.
+     * 
+     * @param client the client to wrap
+     * @return the client to use
+     * @since 12.10
+     */
+    protected SolrClient wrap(SolrClient client)
+    {
+        CommitMode mode = this.commitConfiguration.getCommitMode();
+
+        if (client == null || mode == null || mode == CommitMode.HARD) {
+            return client;
+        }
+
+        startHardCommits();
+
+        return new CommitPolicySolrClient(client, mode, this.commitConfiguration.getCommitWithin());
+    }
+
+    private synchronized void startHardCommits()
+    {
+        if (this.hardCommitExecutor == null) {
+            this.hardCommitExecutor = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("XWiki Solr hard commit thread").daemon(true).build());
+
+            long interval = Math.max(this.commitConfiguration.getHardCommitInterval(), 1);
+            this.hardCommitExecutor.scheduleWithFixedDelay(() -> this.clients.values().forEach(this::hardCommit),
+                interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void hardCommit(SolrClient client)
+    {
+        if (client instanceof CommitPolicySolrClient) {
+            try {
+                ((CommitPolicySolrClient) client).hardCommit();
+            } catch (Exception e) {
+                this.logger.error("Failed to flush the Solr index changes to the storage", e);
+            }
+        }
+    }
 }
@@ -108,6 +108,17 @@ public void commit() throws SolrServerException, IOException
         this.server.commit();
     }
 
+    @Override
+    public void runAfterHardCommit(Runnable action)
+    {
+        if (this.server instanceof CommitPolicySolrClient) {
+            ((CommitPolicySolrClient) this.server).runAfterHardCommit(action);
+        } else {
+            // The explicit commits are hard commits
+            action.run();
+        }
+    }
+
     @Override
     public void rollback() throws SolrServerException, IOException
     {
@@ -0,0 +1,209 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
+import org.xwiki.search.solr.internal.api.SolrConfiguration.CommitMode;
+
+/**
+ * A {@link SolrClient} wrapper which apply the configured {@link CommitMode} to the explicit commits and the updates
+ * sent to Solr.
+ * <ul>
+ * <li>{@link CommitMode#SOFT}: the explicit commits are turned into soft commits</li>
+ * <li>{@link CommitMode#WITHIN}: the explicit commits are ignored and the updates are sent with a commitWithin</li>
+ * </ul>
+ * In both cases {@link #hardCommit()} is expected to be regularly called to flush the changes to the storage, and
+ * {@link #runAfterHardCommit(Runnable)} allows to wait for it.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+public class CommitPolicySolrClient extends SolrClient
+{
+    private static final long serialVersionUID = 1L;
+
+    private final SolrClient client;
+
+    private final CommitMode mode;
+
+    private final int commitWithin;
+
+    /**
+     * Indicate if changes were sent since the last hard commit.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * The number of updates currently being sent.
+     */
+    private final AtomicInteger pendingUpdates = new AtomicInteger();
+
+    /**
+     * The actions to run after the next hard commit.
+     */
+    private final List<Runnable> afterHardCommit = new ArrayList<>();
+
+    /**
+     * @param client the actual client
+     * @param mode the way to make the changes visible
+     * @param commitWithin the maximum time (in milliseconds) after which the changes become visible in
+     *            {@link CommitMode#WITHIN} mode
+     */
+    public CommitPolicySolrClient(SolrClient client, CommitMode mode, int commitWithin)
+    {
+        this.client = client;
+        this.mode = mode;
+        this.commitWithin = commitWithin;
+    }
+
+    /**
+     * @return the actual client
+     */
+    public SolrClient getClient()
+    {
+        return this.client;
+    }
+
+    @Override
+    public NamedList<Object> request(SolrRequest request, String collection) throws SolrServerException, IOException
+    {
+        if (request instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) request;
+
+            boolean update = isUpdate(updateRequest);
+
+            ModifiableSolrParams params = updateRequest.getParams();
+            if (params != null && params.getBool(UpdateParams.COMMIT, false)) {
+                if (this.mode == CommitMode.WITHIN) {
+                    if (!update) {
+                        // Nothing else to send: Solr will make the changes visible by itself
+                        return new NamedList<>();
+                    }
+
+                    params.remove(UpdateParams.COMMIT);
+                    params.remove(UpdateParams.SOFT_COMMIT);
+                } else {
+                    params.set(UpdateParams.SOFT_COMMIT, true);
+                }
+            }
+
+            if (this.mode == CommitMode.WITHIN && update && updateRequest.getCommitWithin() < 0) {
+                updateRequest.setCommitWithin(this.commitWithin);
+            }
+
+            if (update) {
+                return requestUpdate(updateRequest, collection);
+            }
+        }
+
+        return this.client.request(request, collection);
+    }
+
+    private NamedList<Object> requestUpdate(UpdateRequest request, String collection)
+        throws SolrServerException, IOException
+    {
+        this.pendingUpdates.incrementAndGet();
+        this.dirty = true;
+
+        try {
+            return this.client.request(request, collection);
+        } finally {
+            // A hard commit might have been sent while the update was on its way, in which case it's not guaranteed
+            // to contain it
+            this.dirty = true;
+            this.pendingUpdates.decrementAndGet();
+        }
+    }
+
+    private boolean isUpdate(UpdateRequest request)
+    {
+        return CollectionUtils.isNotEmpty(request.getDocuments()) || request.getDocIterator() != null
+            || MapUtils.isNotEmpty(request.getDeleteByIdMap()) || CollectionUtils.isNotEmpty(request.getDeleteQuery());
+    }
+
+    /**
+     * Flush to the storage the changes sent since the last hard commit, without opening a new searcher.
+     *
+     * @throws SolrServerException if problems occur
+     * @throws IOException if problems occur
+     */
+    public synchronized void hardCommit() throws SolrServerException, IOException
+    {
+        if (this.dirty) {
+            // The actions waiting for updates which are still being sent have to wait for the next hard commit
+            boolean complete = this.pendingUpdates.get() == 0;
+
+            this.dirty = false;
+
+            UpdateRequest request = new UpdateRequest();
+            request.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+            request.setParam(UpdateParams.OPEN_SEARCHER, Boolean.FALSE.toString());
+
+            try {
+                this.client.request(request, null);
+            } catch (Exception e) {
+                // Make sure the next hard commit try again
+                this.dirty = true;
+
+                throw e;
+            }
+
+            if (complete) {
+                List<Runnable> actions = new ArrayList<>(this.afterHardCommit);
+                this.afterHardCommit.clear();
+                actions.forEach(Runnable::run);
+            }
+        }
+    }
+
+    /**
+     * Run the passed action once all the changes sent until now have been flushed to the storage.
+     *
+     * @param action the action to run after the next hard commit (or right away if there is nothing to flush)
+     */
+    public synchronized void runAfterHardCommit(Runnable action)
+    {
+        if (this.dirty || this.pendingUpdates.get() > 0) {
+            this.afterHardCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.client.close();
+    }
+}
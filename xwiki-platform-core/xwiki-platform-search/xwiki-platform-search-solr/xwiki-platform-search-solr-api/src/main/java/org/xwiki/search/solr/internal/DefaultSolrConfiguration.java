@@ -124,6 +124,53 @@ public class DefaultSolrConfiguration implements SolrConfiguration
      */
     public static final int SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT = 100000;
 
+    /**
+     * The name of the configuration property containing the number of threads used to extract the entities metadata.
+     *
+     * @since 12.10
+     */
+    public static final String SOLR_INDEXER_EXTRACTOR_THREADS_PROPERTY = "solr.indexer.extractor.threads";
+
+    /**
+     * The default number of threads used to extract the entities metadata.
+     *
+     * @since 12.10
+     */
+    public static final int SOLR_INDEXER_EXTRACTOR_THREADS_DEFAULT = 1;
+
+    /**
+     * The name of the configuration property containing the maximum size (in MB) of the attachment text cache.
+     *
+     * @since 12.10
+     */
+    public static final String SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXSIZE_PROPERTY =
+        "solr.indexer.attachmentTextCache.maxSize";
+
+    /**
+     * The default maximum size (in MB) of the attachment text cache.
+     *
+     * @since 12.10
+     */
+    public static final long SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXSIZE_DEFAULT = 500;
+
+    /**
+     * The name of the configuration property containing the maximum size (in MB) of an entry of the attachment text
+     * cache.
+     *
+     * @since 12.10
+     */
+    public static final String SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXENTRYSIZE_PROPERTY =
+        "solr.indexer.attachmentTextCache.maxEntrySize";
+
+    /**
+     * The default maximum size (in MB) of an entry of the attachment text cache.
+     *
+     * @since 12.10
+     */
+    public static final long SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXENTRYSIZE_DEFAULT = 10;
+
+    private static final long MB = 1024L * 1024L;
+
     /**
      * The name of the configuration property indicating if a synchronization should be run at startup.
      */
@@ -145,6 +192,62 @@ public class DefaultSolrConfiguration implements SolrConfiguration
     public static final SynchronizeAtStartupMode SOLR_SYNCHRONIZE_AT_STARTUP_MODE_DEFAULT =
         SynchronizeAtStartupMode.FARM;
 
+    /**
+     * The name of the configuration property indicating if the synchronization at startup should be incremental.
+     *
+     * @since 12.10
+     */
+    public static final String SOLR_SYNCHRONIZE_AT_STARTUP_INCREMENTAL = "solr.synchronizeAtStartupIncremental";
+
+    /**
+     * Indicate if the synchronization at startup should be incremental by default.
+     *
+     * @since 12.10
+     */
+    public static final boolean SOLR_SYNCHRONIZE_AT_STARTUP_INCREMENTAL_DEFAULT = true;
+
+    /**
+     * The name of the configuration property containing the way to make the index changes visible.
+     *
+     * @since 12.10
+     */
+    public static final String SOLR_COMMIT_MODE_PROPERTY = "solr.commit.mode";
+
+    /**
+     * The default way to make the index changes visible.
+     *
+     * @since 12.10
+     */
+    public static final CommitMode SOLR_COMMIT_MODE_DEFAULT = CommitMode.HARD;
+
+    /**
+     * The name of the configuration property containing the maximum time after which the changes become visible.
+     *
+     * @since 12.10
+     */
+    public static final String SOLR_COMMIT_WITHIN_PROPERTY = "solr.commit.within";
+
+    /**
+     * The default maximum time (in milliseconds) after which the changes become visible.
+     *
+     * @since 12.10
+     */
+    public static final int SOLR_COMMIT_WITHIN_DEFAULT = 1000;
+
+    /**
+     * The name of the configuration property containing the interval between two hard commits.
+     *
+     * @since 12.10
+     */
+    public static final String SOLR_COMMIT_HARDINTERVAL_PROPERTY = "solr.commit.hardInterval";
+
+    /**
+     * The default interval (in seconds) between two hard commits.
+     *
+     * @since 12.10
+     */
+    public static final int SOLR_COMMIT_HARDINTERVAL_DEFAULT = 60;
+
     /**
      * The Solr configuration source.
      */
@@ -200,6 +303,27 @@ public int getIndexerQueueCapacity()
             SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public int getIndexerExtractorThreads()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_EXTRACTOR_THREADS_PROPERTY,
+            SOLR_INDEXER_EXTRACTOR_THREADS_DEFAULT);
+    }
+
+    @Override
+    public long getAttachmentTextCacheMaxSize()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXSIZE_PROPERTY,
+            SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXSIZE_DEFAULT) * MB;
+    }
+
+    @Override
+    public long getAttachmentTextCacheMaxEntrySize()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXENTRYSIZE_PROPERTY,
+            SOLR_INDEXER_ATTACHMENTTEXTCACHE_MAXENTRYSIZE_DEFAULT) * MB;
+    }
+
     @Override
     public boolean synchronizeAtStartup()
     {
@@ -238,4 +362,39 @@ public SynchronizeAtStartupMode synchronizeAtStartupMode()
         }
         return result;
     }
+
+    @Override
+    public boolean synchronizeAtStartupIncremental()
+    {
+        return this.configuration.getProperty(SOLR_SYNCHRONIZE_AT_STARTUP_INCREMENTAL,
+            SOLR_SYNCHRONIZE_AT_STARTUP_INCREMENTAL_DEFAULT);
+    }
+
+    @Override
+    public CommitMode getCommitMode()
+    {
+        String value = this.configuration.getProperty(SOLR_COMMIT_MODE_PROPERTY, SOLR_COMMIT_MODE_DEFAULT.name());
+
+        CommitMode result = SOLR_COMMIT_MODE_DEFAULT;
+        if (value != null) {
+            try {
+                result = CommitMode.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Keep the default mode
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getCommitWithin()
+    {
+        return this.configuration.getProperty(SOLR_COMMIT_WITHIN_PROPERTY, SOLR_COMMIT_WITHIN_DEFAULT);
+    }
+
+    @Override
+    public int getHardCommitInterval()
+    {
+        return this.configuration.getProperty(SOLR_COMMIT_HARDINTERVAL_PROPERTY, SOLR_COMMIT_HARDINTERVAL_DEFAULT);
+    }
 }
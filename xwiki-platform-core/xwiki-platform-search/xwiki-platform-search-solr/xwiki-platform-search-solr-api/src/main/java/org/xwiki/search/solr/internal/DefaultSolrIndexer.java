@@ -19,13 +19,30 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -42,6 +59,7 @@
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
@@ -49,7 +67,9 @@
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
 import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.search.solr.internal.job.IndexerJob;
+import org.xwiki.search.solr.internal.jmx.JMXSolrIndexer;
 import org.xwiki.search.solr.internal.job.IndexerRequest;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints;
 import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
 import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
 import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
@@ -60,8 +80,11 @@
  * Default implementation of {@link SolrIndexer}.
  * <p>
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
- * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
- * processes the queue.
+ * order they were received (the operations targeting an entity which is already waiting in the queue are coalesced).
+ * The {@link Runnable} part of this implementation is the one that sequentially reads and processes the queue. The
+ * extraction of the metadata of the entities to index can be executed in advance by a pool of threads (see
+ * {@link SolrConfiguration#getIndexerExtractorThreads()}) but the changes are always sent to Solr in the order of the
+ * queue.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -140,6 +163,257 @@ public String toString()
         }
     }
 
+    /**
+     * The queue of index operations to perform, which coalesces the operations targeting the same entity while they are
+     * waiting to be processed: a pending index operation absorbs the following index operations on the same entity
+     * (the metadata are extracted when the operation is processed so they will be up to date anyway) and a delete
+     * operation cancels the pending index operations on the same entity.
+     * <p>
+     * A delete query can target any entity so it is never coalesced and the operations queued before it are not
+     * coalesced with the ones queued after it.
+     * 
+     * @version $Id$
+     */
+    private class IndexQueue
+    {
+        private final int capacity;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition notEmpty = this.lock.newCondition();
+
+        private final Condition notFull = this.lock.newCondition();
+
+        /**
+         * The entries in the queue order (entries don't override {@link Object#equals(Object)}).
+         */
+        private final Set<IndexQueueEntry> entries = new LinkedHashSet<>();
+
+        /**
+         * The pending index operations which can absorb the next operations on the same entity, indexed by reference
+         * (which includes the locale).
+         */
+        private final Map<EntityReference, IndexQueueEntry> pendingIndex = new HashMap<>();
+
+        /**
+         * The pending delete operations which can absorb the next delete operations on the same entity.
+         */
+        private final Map<EntityReference, IndexQueueEntry> pendingDelete = new HashMap<>();
+
+        /**
+         * @param capacity the maximum number of entries in the queue
+         */
+        IndexQueue(int capacity)
+        {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Add the entry to the queue, waiting if necessary for space to become available.
+         * 
+         * @param entry the entry to add
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void put(IndexQueueEntry entry) throws InterruptedException
+        {
+            this.lock.lockInterruptibly();
+            try {
+                if (!coalesce(entry)) {
+                    while (this.entries.size() >= this.capacity) {
+                        this.notFull.await();
+                    }
+
+                    // The queue might have changed while waiting
+                    if (!coalesce(entry)) {
+                        add(entry);
+                    }
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * Add the entry to the queue if it's possible without waiting.
+         * 
+         * @param entry the entry to add
+         * @return {@code true} if the entry was added (or coalesced), {@code false} if the queue is full
+         */
+        public boolean offer(IndexQueueEntry entry)
+        {
+            this.lock.lock();
+            try {
+                if (coalesce(entry)) {
+                    return true;
+                }
+
+                if (this.entries.size() >= this.capacity) {
+                    return false;
+                }
+
+                add(entry);
+
+                return true;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * @return the oldest entry, waiting if necessary until an entry becomes available
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public IndexQueueEntry take() throws InterruptedException
+        {
+            this.lock.lockInterruptibly();
+            try {
+                while (this.entries.isEmpty()) {
+                    this.notEmpty.await();
+                }
+
+                return remove();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * @return the oldest entry or {@code null} if the queue is empty
+         */
+        public IndexQueueEntry poll()
+        {
+            this.lock.lock();
+            try {
+                return this.entries.isEmpty() ? null : remove();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * Remove all the entries from the queue.
+         */
+        public void clear()
+        {
+            this.lock.lock();
+            try {
+                this.entries.clear();
+                this.pendingIndex.clear();
+                this.pendingDelete.clear();
+
+                this.notFull.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * @return the number of entries in the queue
+         */
+        public int size()
+        {
+            this.lock.lock();
+            try {
+                return this.entries.size();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private boolean coalesce(IndexQueueEntry entry)
+        {
+            if (entry.reference == null) {
+                return false;
+            }
+
+            if (entry.operation == IndexOperation.INDEX) {
+                if (this.pendingIndex.containsKey(entry.reference)) {
+                    statistics.onCoalesced();
+
+                    return true;
+                }
+            } else if (entry.operation == IndexOperation.DELETE) {
+                // Deleting the entity makes useless the pending indexing
+                IndexQueueEntry cancelledEntry = this.pendingIndex.remove(entry.reference);
+                if (cancelledEntry != null) {
+                    this.entries.remove(cancelledEntry);
+                    this.notFull.signal();
+
+                    statistics.onCoalesced();
+                }
+
+                if (this.pendingDelete.containsKey(entry.reference)) {
+                    statistics.onCoalesced();
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void add(IndexQueueEntry entry)
+        {
+            this.entries.add(entry);
+
+            if (entry.reference == null) {
+                // The delete query might target any of the pending entities
+                this.pendingIndex.clear();
+                this.pendingDelete.clear();
+            } else if (entry.operation == IndexOperation.INDEX) {
+                this.pendingIndex.put(entry.reference, entry);
+            } else if (entry.operation == IndexOperation.DELETE) {
+                this.pendingDelete.put(entry.reference, entry);
+            }
+
+            this.notEmpty.signal();
+        }
+
+        private IndexQueueEntry remove()
+        {
+            Iterator<IndexQueueEntry> iterator = this.entries.iterator();
+            IndexQueueEntry entry = iterator.next();
+            iterator.remove();
+
+            if (entry.reference != null) {
+                this.pendingIndex.remove(entry.reference, entry);
+                this.pendingDelete.remove(entry.reference, entry);
+            }
+
+            this.notFull.signal();
+
+            return entry;
+        }
+    }
+
+    /**
+     * Index queue entry taken from the queue and waiting to be sent to Solr.
+     * 
+     * @version $Id$
+     */
+    private static class PendingIndexEntry
+    {
+        /**
+         * The index queue entry.
+         */
+        public final IndexQueueEntry entry;
+
+        /**
+         * The extraction of the document to index, {@code null} if the operation is not an indexing.
+         */
+        public final Future<LengthSolrInputDocument> extraction;
+
+        /**
+         * @param entry the index queue entry
+         * @param extraction the extraction of the document to index
+         */
+        PendingIndexEntry(IndexQueueEntry entry, Future<LengthSolrInputDocument> extraction)
+        {
+            this.entry = entry;
+            this.extraction = extraction;
+        }
+    }
+
     /**
      * Resolve queue entry.
      * 
@@ -226,6 +500,8 @@ public void runInternal()
                 } catch (Throwable e) {
                     logger.warn("Failed to apply operation [{}] on root reference [{}]", queueEntry.operation,
                         queueEntry.reference, e);
+                } finally {
+                    resolvingCount.decrementAndGet();
                 }
             }
 
@@ -245,6 +521,8 @@ public void runInternal()
     private static final IndexQueueEntry INDEX_QUEUE_ENTRY_STOP =
         new IndexQueueEntry((String) null, IndexOperation.STOP);
 
+    private static final String MBEAN_NAME = "name=solrindexer";
+
     /**
      * Logging framework.
      */
@@ -284,16 +562,32 @@ public void runInternal()
     @Inject
     private JobExecutor jobs;
 
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    @Inject
+    private SynchronizationCheckpoints checkpoints;
+
     /**
      * The queue of index operation to perform.
      */
-    private BlockingQueue<IndexQueueEntry> indexQueue;
+    private IndexQueue indexQueue;
 
     /**
      * The queue of resolve references and add them to the index queue.
      */
     private BlockingQueue<ResolveQueueEntry> resolveQueue;
 
+    /**
+     * The number of entries added to the resolve queue and not yet pushed to the index queue.
+     */
+    private final AtomicInteger resolvingCount = new AtomicInteger();
+
+    /**
+     * Indicate if a commit failed, in which case the synchronization checkpoints are not saved anymore.
+     */
+    private volatile boolean commitFailed;
+
     /**
      * Thread in which the indexUpdater will be executed.
      */
@@ -314,12 +608,45 @@ public void runInternal()
      */
     private volatile int batchSize;
 
+    /**
+     * The number of entries taken from the queue and not yet sent.
+     */
+    private volatile int pendingSize;
+
+    /**
+     * The threads extracting the metadata of the entities to index, {@code null} when the extraction is done by the
+     * index thread.
+     */
+    private ExecutorService extractorExecutor;
+
+    /**
+     * The maximum number of entries taken from the queue and not yet sent.
+     */
+    private int maxPendingSize;
+
+    private JMXSolrIndexer statistics;
+
     @Override
     public void initialize() throws InitializationException
     {
         // Initialize the queues before starting the threads.
         this.resolveQueue = new LinkedBlockingQueue<>();
-        this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
+        this.indexQueue = new IndexQueue(this.configuration.getIndexerQueueCapacity());
+
+        // Initialize the metadata extractor threads
+        int extractorThreads = Math.max(this.configuration.getIndexerExtractorThreads(), 1);
+        if (extractorThreads > 1) {
+            this.extractorExecutor = Executors.newFixedThreadPool(extractorThreads,
+                new BasicThreadFactory.Builder().namingPattern("XWiki Solr extractor thread %d").daemon(true)
+                    .priority(Thread.NORM_PRIORITY - 1).build());
+            // Extract enough entries in advance to keep all the threads busy while waiting for the oldest one
+            this.maxPendingSize = extractorThreads * 2;
+        } else {
+            this.maxPendingSize = 1;
+        }
+
+        this.statistics = new JMXSolrIndexer(this::getQueueSize, extractorThreads);
+        this.jmxRegistration.registerMBean(this.statistics, MBEAN_NAME);
 
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
@@ -353,6 +680,8 @@ public void dispose() throws ComponentLifecycleException
         // the index queue was full) and just one entry will be added to the queue before the special stop entry.
         this.indexQueue.clear();
         this.indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
+
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
     }
 
     @Override
@@ -376,6 +705,12 @@ public void run()
             if (!processBatch(queueEntry)) {
                 break;
             }
+
+            saveCheckpoints();
+        }
+
+        if (this.extractorExecutor != null) {
+            this.extractorExecutor.shutdownNow();
         }
 
         this.logger.debug("Stop SOLR indexer thread");
@@ -392,46 +727,38 @@ private boolean processBatch(IndexQueueEntry queueEntry)
     {
         int length = 0;
 
-        for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
-            if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
-                // Discard the current batch and stop the indexing thread.
-                return false;
-            }
+        Deque<PendingIndexEntry> pendingEntries = new ArrayDeque<>();
 
-            IndexOperation operation = batchEntry.operation;
-
-            // For the current contiguous operations queue, group the changes
-            try {
-                this.ecim.initialize(new ExecutionContext());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
+        IndexQueueEntry batchEntry = queueEntry;
+        while (batchEntry != null || !pendingEntries.isEmpty()) {
+            // Start the extraction of the next entries
+            for (; batchEntry != null; batchEntry =
+                pendingEntries.size() < this.maxPendingSize ? this.indexQueue.poll() : null) {
+                if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
+                    // Discard the current batch and stop the indexing thread.
+                    cancel(pendingEntries);
 
-                    ++this.batchSize;
+                    return false;
                 }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
+
+                pendingEntries.add(new PendingIndexEntry(batchEntry, extract(batchEntry)));
+                this.pendingSize = pendingEntries.size();
             }
 
+            // Send the oldest entry to Solr
+            length += send(pendingEntries.poll());
+            this.pendingSize = pendingEntries.size();
+
             // Commit the index changes so that they become available to queries. This is a costly operation and that is
             // the reason why we perform it at the end of the batch.
             if (shouldCommit(length, this.batchSize)) {
                 commit();
                 length = 0;
             }
+
+            if (pendingEntries.size() < this.maxPendingSize) {
+                batchEntry = this.indexQueue.poll();
+            }
         }
 
         // Commit what's left
@@ -442,6 +769,125 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * Save the synchronization checkpoints if everything which was queued before has been sent to Solr, once it's
+     * flushed to the storage.
+     */
+    private void saveCheckpoints()
+    {
+        if (this.commitFailed) {
+            // Some changes were lost, the next synchronization at startup will have to start from the last checkpoint
+            return;
+        }
+
+        SynchronizationCheckpoints.Snapshot snapshot = this.checkpoints.snapshot();
+
+        if (this.resolvingCount.get() == 0 && this.indexQueue.size() == 0) {
+            // The changes might only be visible (soft commit) and would be lost if XWiki was stopped now
+            this.solrInstance.runAfterHardCommit(() -> this.checkpoints.save(snapshot));
+        }
+    }
+
+    private Future<LengthSolrInputDocument> extract(IndexQueueEntry queueEntry)
+    {
+        if (!IndexOperation.INDEX.equals(queueEntry.operation)) {
+            return null;
+        }
+
+        Callable<LengthSolrInputDocument> extraction = () -> extractSolrDocument(queueEntry.reference);
+
+        if (this.extractorExecutor != null) {
+            return this.extractorExecutor.submit(extraction);
+        }
+
+        // Extract the metadata in the index thread
+        FutureTask<LengthSolrInputDocument> task = new FutureTask<>(extraction);
+        task.run();
+
+        return task;
+    }
+
+    private LengthSolrInputDocument extractSolrDocument(EntityReference reference) throws Exception
+    {
+        long start = System.nanoTime();
+
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            return getSolrDocument(reference);
+        } finally {
+            this.execution.removeContext();
+
+            this.statistics.onExtracted(reference.getType(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param pendingEntry the entry to send to Solr
+     * @return the length of the sent data
+     */
+    private int send(PendingIndexEntry pendingEntry)
+    {
+        IndexQueueEntry queueEntry = pendingEntry.entry;
+        IndexOperation operation = queueEntry.operation;
+
+        int length = 0;
+
+        try {
+            if (IndexOperation.INDEX.equals(operation)) {
+                LengthSolrInputDocument solrDocument = pendingEntry.extraction.get();
+                if (solrDocument != null) {
+                    this.solrInstance.add(solrDocument);
+                    length = solrDocument.getLength();
+                    ++this.batchSize;
+
+                    this.statistics.onIndexed();
+                }
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                delete(queueEntry);
+
+                ++this.batchSize;
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while processing entry [{}]", queueEntry);
+
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", queueEntry, e.getCause());
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", queueEntry, e);
+        }
+
+        return length;
+    }
+
+    private void delete(IndexQueueEntry queueEntry) throws Exception
+    {
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            if (queueEntry.reference == null) {
+                this.solrInstance.deleteByQuery(queueEntry.deleteQuery);
+            } else {
+                this.solrInstance.delete(this.solrRefereceResolver.getId(queueEntry.reference));
+            }
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    private void cancel(Deque<PendingIndexEntry> pendingEntries)
+    {
+        for (PendingIndexEntry pendingEntry : pendingEntries) {
+            if (pendingEntry.extraction != null) {
+                pendingEntry.extraction.cancel(true);
+            }
+        }
+
+        pendingEntries.clear();
+        this.pendingSize = 0;
+    }
+
     /**
      * Commit.
      */
@@ -452,6 +898,8 @@ private void commit()
         } catch (Exception e) {
             this.logger.error("Failed to commit index changes to the Solr server. Rolling back.", e);
 
+            this.commitFailed = true;
+
             try {
                 solrInstance.rollback();
             } catch (Exception ex) {
@@ -541,9 +989,12 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
     {
         if (!this.disposed) {
             // Don't block because the capacity of the resolver queue is not limited.
+            this.resolvingCount.incrementAndGet();
             try {
                 this.resolveQueue.put(new ResolveQueueEntry(reference, recurse, operation));
             } catch (InterruptedException e) {
+                this.resolvingCount.decrementAndGet();
+
                 this.logger.error("Failed to add reference [{}] to Solr indexing queue", reference, e);
             }
         }
@@ -552,7 +1003,7 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.pendingSize + this.batchSize;
     }
 
     @Override
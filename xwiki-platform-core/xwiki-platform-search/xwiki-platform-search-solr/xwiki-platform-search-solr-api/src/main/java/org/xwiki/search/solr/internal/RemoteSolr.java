@@ -75,7 +75,7 @@ public void initialize() throws InitializationException
         // RETRO COMPATIBILITY: the seach core used to be configured using "solr.remote.url" property
         String searchCoreURL = this.configuration.getInstanceConfiguration(TYPE, "url", null);
         if (searchCoreURL != null) {
-            this.clients.put(SolrClientInstance.CORE_NAME, new HttpSolrClient.Builder(searchCoreURL).build());
+            this.clients.put(SolrClientInstance.CORE_NAME, wrap(new HttpSolrClient.Builder(searchCoreURL).build()));
         }
     }
 
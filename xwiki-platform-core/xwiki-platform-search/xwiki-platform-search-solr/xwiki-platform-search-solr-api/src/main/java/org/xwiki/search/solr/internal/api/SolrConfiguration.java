@@ -50,6 +50,31 @@
         WIKI
     }
 
+    /**
+     * The ways to make the index changes visible.
+     * 
+     * @since 12.10
+     */
+    enum CommitMode
+    {
+        /**
+         * Each commit is a hard commit (flush the changes to the storage and open a new searcher).
+         */
+        HARD,
+
+        /**
+         * Each commit is a soft commit (only open a new searcher) and the changes are regularly flushed to the storage
+         * with a hard commit.
+         */
+        SOFT,
+
+        /**
+         * The explicit commits are ignored and the changes are sent with a maximum delay after which Solr makes them
+         * visible; the changes are regularly flushed to the storage with a hard commit.
+         */
+        WITHIN
+    }
+
     /**
      * @return the type of Solr server used. Supported values: "embedded" or "remote".
      */
@@ -98,6 +123,27 @@
      */
     int getIndexerQueueCapacity();
 
+    /**
+     * @return the number of threads used to extract the metadata of the entities to index (the changes are still sent
+     *         to Solr in the order they were queued)
+     * @since 12.10
+     */
+    int getIndexerExtractorThreads();
+
+    /**
+     * @return the maximum size (in bytes) on disk of the cache of text extracted from the attachments, 0 to disable
+     *         the cache
+     * @since 12.10
+     */
+    long getAttachmentTextCacheMaxSize();
+
+    /**
+     * @return the maximum size (in bytes) on disk of a single entry of the cache of text extracted from the
+     *         attachments, bigger entries are not cached
+     * @since 12.10
+     */
+    long getAttachmentTextCacheMaxEntrySize();
+
     /**
      * @return true if a full synchronization job between the database and SOLR index should be run when XWiki starts
      * @since 6.1M2
@@ -121,4 +167,30 @@
      * @since 12.5RC1
      */
     SynchronizeAtStartupMode synchronizeAtStartupMode();
+
+    /**
+     * @return {@code true} if the synchronization at startup should only look at the documents modified since the last
+     *         synchronization checkpoint of each wiki (when there is one)
+     * @since 12.10
+     */
+    boolean synchronizeAtStartupIncremental();
+
+    /**
+     * @return the way to make the index changes visible, for all the Solr cores
+     * @since 12.10
+     */
+    CommitMode getCommitMode();
+
+    /**
+     * @return the maximum time (in milliseconds) after which the changes become visible when the commit mode is
+     *         {@link CommitMode#WITHIN}
+     * @since 12.10
+     */
+    int getCommitWithin();
+
+    /**
+     * @return the interval (in seconds) between two hard commits when the commit mode is not {@link CommitMode#HARD}
+     * @since 12.10
+     */
+    int getHardCommitInterval();
 }
@@ -118,6 +118,17 @@ public interface SolrInstance extends Initializable
      */
     void commit() throws SolrServerException, IOException;
 
+    /**
+     * Run the passed action once all the changes sent until now have been flushed to the storage by a hard commit.
+     * <p>
+     * When the explicit commits are hard commits (see {@link SolrConfiguration#getCommitMode()}) the action is run
+     * right away, so it should be called after {@link #commit()}.
+     * 
+     * @param action the action to run
+     * @since 12.10
+     */
+    void runAfterHardCommit(Runnable action);
+
     /**
      * Cancel the local uncommitted changes that were not yet pushed to the Solr server.
      * 
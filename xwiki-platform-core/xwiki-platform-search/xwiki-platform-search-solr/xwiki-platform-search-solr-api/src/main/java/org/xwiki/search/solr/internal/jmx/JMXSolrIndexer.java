@@ -0,0 +1,153 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.jmx;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.xwiki.model.EntityType;
+
+/**
+ * Implementation of the Solr indexer JMX MBean, also in charge of gathering the indexing statistics.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+public class JMXSolrIndexer implements JMXSolrIndexerMBean
+{
+    private static final class ExtractionStatistics
+    {
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder time = new LongAdder();
+    }
+
+    private final Supplier<Integer> queueSize;
+
+    private final int extractorThreads;
+
+    private final LongAdder indexedCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final ConcurrentMap<EntityType, ExtractionStatistics> extractions = new ConcurrentHashMap<>();
+
+    private volatile long resetTime = System.nanoTime();
+
+    /**
+     * @param queueSize the current size of the indexer queue
+     * @param extractorThreads the number of threads used to extract the metadata of the entities to index
+     */
+    public JMXSolrIndexer(Supplier<Integer> queueSize, int extractorThreads)
+    {
+        this.queueSize = queueSize;
+        this.extractorThreads = extractorThreads;
+    }
+
+    /**
+     * Record the extraction of the metadata of an entity.
+     *
+     * @param type the type of the entity
+     * @param time the time spent extracting the metadata, in nanoseconds
+     */
+    public void onExtracted(EntityType type, long time)
+    {
+        ExtractionStatistics statistics = this.extractions.computeIfAbsent(type, key -> new ExtractionStatistics());
+        statistics.count.increment();
+        statistics.time.add(time);
+    }
+
+    /**
+     * Record the addition of an entity to the index.
+     */
+    public void onIndexed()
+    {
+        this.indexedCount.increment();
+    }
+
+    /**
+     * Record an operation which was merged with an operation already waiting in the queue.
+     */
+    public void onCoalesced()
+    {
+        this.coalescedCount.increment();
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        return this.queueSize.get();
+    }
+
+    @Override
+    public int getExtractorThreads()
+    {
+        return this.extractorThreads;
+    }
+
+    @Override
+    public long getIndexedCount()
+    {
+        return this.indexedCount.sum();
+    }
+
+    @Override
+    public long getCoalescedCount()
+    {
+        return this.coalescedCount.sum();
+    }
+
+    @Override
+    public double getIndexedPerSecond()
+    {
+        long elapsed = System.nanoTime() - this.resetTime;
+
+        return elapsed > 0 ? (double) getIndexedCount() * TimeUnit.SECONDS.toNanos(1) / elapsed : 0;
+    }
+
+    @Override
+    public Map<String, Double> getAverageExtractionTimes()
+    {
+        Map<String, Double> times = new TreeMap<>();
+        for (Map.Entry<EntityType, ExtractionStatistics> entry : this.extractions.entrySet()) {
+            long count = entry.getValue().count.sum();
+            if (count > 0) {
+                times.put(entry.getKey().name(),
+                    (double) entry.getValue().time.sum() / count / TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+
+        return times;
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        this.indexedCount.reset();
+        this.coalescedCount.reset();
+        this.extractions.clear();
+        this.resetTime = System.nanoTime();
+    }
+}
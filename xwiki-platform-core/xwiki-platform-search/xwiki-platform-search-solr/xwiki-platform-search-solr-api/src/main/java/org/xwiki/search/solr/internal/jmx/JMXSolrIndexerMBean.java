@@ -0,0 +1,67 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.jmx;
+
+import java.util.Map;
+
+/**
+ * Interface of the Solr indexer JMX MBean.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+public interface JMXSolrIndexerMBean
+{
+    /**
+     * @return the number of entities waiting to be indexed or deleted
+     */
+    int getQueueSize();
+
+    /**
+     * @return the number of threads used to extract the metadata of the entities to index
+     */
+    int getExtractorThreads();
+
+    /**
+     * @return the number of entities added to the index since the statistics were reset
+     */
+    long getIndexedCount();
+
+    /**
+     * @return the number of operations which were merged with an operation already waiting in the queue since the
+     *         statistics were reset
+     */
+    long getCoalescedCount();
+
+    /**
+     * @return the average number of entities added to the index per second since the statistics were reset
+     */
+    double getIndexedPerSecond();
+
+    /**
+     * @return the average time (in milliseconds) spent extracting the metadata of an entity, by entity type
+     */
+    Map<String, Double> getAverageExtractionTimes();
+
+    /**
+     * Reset the indexing statistics.
+     */
+    void resetStatistics();
+}
@@ -19,12 +19,22 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.xwiki.bridge.DocumentAccessBridge;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -33,11 +43,22 @@
 import org.xwiki.job.GroupedJob;
 import org.xwiki.job.JobGroupPath;
 import org.xwiki.job.Request;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.search.solr.internal.job.DiffDocumentIterator.Action;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints.Checkpoint;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+import org.xwiki.wiki.manager.WikiManagerException;
 
 /**
  * Provide progress information and store logging of an advanced indexing.
@@ -74,6 +95,28 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
     @Named("solr")
     private transient DocumentIterator<String> solrIterator;
 
+    @Inject
+    private transient Provider<ModifiedDocumentIterator> modifiedIteratorProvider;
+
+    @Inject
+    private transient SynchronizationCheckpoints checkpoints;
+
+    @Inject
+    private transient SolrInstance solrInstance;
+
+    @Inject
+    private transient QueryManager queryManager;
+
+    @Inject
+    private transient WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private transient DocumentAccessBridge documentAccessBridge;
+
+    @Inject
+    @Named("current")
+    private transient DocumentReferenceResolver<String> documentReferenceResolver;
+
     @Inject
     private EntityReferenceSerializer<String> entityReferenceSerializer;
 
@@ -113,18 +156,143 @@ protected void runInternal() throws Exception
             EntityReference rootReference = getRequest().getRootReference();
             this.logger.info("Index documents in [{}].", rootReference);
             this.indexer.index(rootReference, true);
+        } else if (getRequest().isIncremental() && (getRequest().getRootReference() == null
+            || getRequest().getRootReference().getType() == EntityType.WIKI)) {
+            synchronizeWikis();
+        } else {
+            updateSolrIndex(getRequest().getRootReference());
+        }
+    }
+
+    /**
+     * Synchronize each wiki starting from its checkpoint (if any).
+     */
+    private void synchronizeWikis() throws WikiManagerException, QueryException, SolrServerException, IOException
+    {
+        long startDate = System.currentTimeMillis();
+
+        List<String> wikis;
+        if (getRequest().getRootReference() == null) {
+            wikis = new ArrayList<>(this.wikiDescriptorManager.getAllIds());
+            Collections.sort(wikis);
         } else {
-            updateSolrIndex();
+            wikis = Collections.singletonList(getRequest().getRootReference().getName());
+        }
+
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        try {
+            for (String wiki : wikis) {
+                this.progressManager.startStep(this);
+
+                Checkpoint checkpoint = getCheckpoint(wiki);
+                if (checkpoint != null) {
+                    this.logger.info("Synchronize the Solr index with the documents of wiki [{}] modified since [{}].",
+                        wiki, new Date(checkpoint.getDate()));
+
+                    synchronizeModified(wiki, checkpoint);
+                } else {
+                    updateSolrIndex(new WikiReference(wiki));
+                }
+
+                // Everything which was in the database when the synchronization started has been queued
+                this.checkpoints.setPending(wiki, this.checkpoints.getCompleteCheckpoint(startDate), true);
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    private Checkpoint getCheckpoint(String wiki) throws SolrServerException, IOException
+    {
+        Checkpoint checkpoint = this.checkpoints.get(wiki);
+
+        if (checkpoint != null) {
+            // Make sure the index was not reset since the checkpoint was saved
+            SolrQuery query = new SolrQuery(FieldUtils.WIKI + ':' + ClientUtils.escapeQueryChars(wiki));
+            query.addFilterQuery(FieldUtils.TYPE + ':' + EntityType.DOCUMENT.name());
+            query.setRows(0);
+
+            if (this.solrInstance.query(query).getResults().getNumFound() == 0) {
+                return null;
+            }
+        }
+
+        return checkpoint;
+    }
+
+    private void synchronizeModified(String wiki, Checkpoint checkpoint) throws QueryException
+    {
+        // Start with the deleted documents since they might have been created again after
+        synchronizeDeleted(wiki, checkpoint);
+
+        ModifiedDocumentIterator iterator = this.modifiedIteratorProvider.get();
+        iterator.setRootReference(new WikiReference(wiki));
+        iterator.setCheckpoint(checkpoint);
+
+        this.progressManager.pushLevelProgress((int) iterator.size(), this);
+
+        try {
+            long counter = 0;
+
+            while (iterator.hasNext()) {
+                this.progressManager.startStep(this);
+
+                Pair<DocumentReference, Checkpoint> entry = iterator.next();
+                this.indexer.index(entry.getKey(), true);
+
+                // Regularly remember the progress to not have to start again from scratch if the synchronization is
+                // interrupted
+                if (++counter % AbstractDocumentIterator.LIMIT == 0) {
+                    this.checkpoints.setPending(wiki, entry.getValue(), false);
+                }
+
+                this.progressManager.endStep(this);
+            }
+
+            this.logger.info("{} documents updated during the synchronization of the Solr index.", counter);
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    private void synchronizeDeleted(String wiki, Checkpoint checkpoint) throws QueryException
+    {
+        if (!getRequest().isRemoveMissing()) {
+            return;
+        }
+
+        Query query = this.queryManager
+            .createQuery("select distinct ddoc.fullName from XWikiDeletedDocument ddoc where ddoc.date >= :date",
+                Query.HQL)
+            .setWiki(wiki).bindValue("date", new Date(checkpoint.getDate()));
+
+        WikiReference wikiReference = new WikiReference(wiki);
+        for (Object fullName : query.execute()) {
+            DocumentReference documentReference =
+                this.documentReferenceResolver.resolve((String) fullName, wikiReference);
+
+            // Remove all the translations since the locale of the default translation is unknown
+            this.indexer.delete(documentReference, true);
+
+            // Index again what's left
+            if (this.documentAccessBridge.exists(documentReference)) {
+                this.indexer.index(documentReference, true);
+            }
         }
     }
 
     /**
      * Update the Solr index to match the current state of the database.
+     * 
+     * @param rootReference the reference from which to work
      */
-    private void updateSolrIndex()
+    private void updateSolrIndex(EntityReference rootReference)
     {
         DiffDocumentIterator<String> iterator = new DiffDocumentIterator<>(this.solrIterator, this.databaseIterator);
-        iterator.setRootReference(getRequest().getRootReference());
+        iterator.setRootReference(rootReference);
 
         this.progressManager.pushLevelProgress(2, this);
 
@@ -53,6 +53,11 @@ public class IndexerRequest extends AbstractRequest
      */
     private boolean removeMissing = true;
 
+    /**
+     * @see #isIncremental()
+     */
+    private boolean incremental;
+
     /**
      * The default constructor.
      */
@@ -118,6 +123,26 @@ public void setRemoveMissing(boolean removeMissing)
         this.removeMissing = removeMissing;
     }
 
+    /**
+     * @return if true the documents of the wikis which were already synchronized are only compared with the Solr index
+     *         if they were modified (or deleted) since the last synchronization checkpoint
+     * @since 12.10
+     */
+    public boolean isIncremental()
+    {
+        return this.incremental;
+    }
+
+    /**
+     * @param incremental if true the documents of the wikis which were already synchronized are only compared with
+     *            the Solr index if they were modified (or deleted) since the last synchronization checkpoint
+     * @since 12.10
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -135,6 +160,7 @@ public boolean equals(Object o)
             .appendSuper(super.equals(o))
             .append(overwrite, that.overwrite)
             .append(removeMissing, that.removeMissing)
+            .append(incremental, that.incremental)
             .append(rootReference, that.rootReference)
             .isEquals();
     }
@@ -147,6 +173,7 @@ public int hashCode()
             .append(rootReference)
             .append(overwrite)
             .append(removeMissing)
+            .append(incremental)
             .toHashCode();
     }
 }
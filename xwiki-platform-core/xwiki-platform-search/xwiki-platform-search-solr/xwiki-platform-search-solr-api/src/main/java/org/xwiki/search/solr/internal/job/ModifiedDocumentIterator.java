@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints.Checkpoint;
+
+/**
+ * Iterates the documents of a wiki modified after a given checkpoint, in the order of their modification.
+ * <p>
+ * The pagination is based on the last returned document (and not on an offset) so that the documents modified while
+ * iterating don't shift the pages.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component(roles = ModifiedDocumentIterator.class)
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+public class ModifiedDocumentIterator extends AbstractDocumentIterator<Checkpoint>
+{
+    private static final String WHERE =
+        " where doc.date > :date or (doc.date = :date and doc.id > :id)";
+
+    private static final String SELECT =
+        "select doc.space, doc.name, doc.language, doc.date, doc.id from XWikiDocument doc" + WHERE
+            + " order by doc.date, doc.id";
+
+    private static final String PARAMETER_DATE = "date";
+
+    private static final String PARAMETER_ID = "id";
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("explicit")
+    private EntityReferenceResolver<String> explicitEntityReferenceResolver;
+
+    @Inject
+    @Named("count")
+    private QueryFilter countFilter;
+
+    private Checkpoint checkpoint = new Checkpoint(0, Long.MIN_VALUE);
+
+    private List<Object[]> results = Collections.emptyList();
+
+    private int index;
+
+    private boolean finished;
+
+    /**
+     * @param checkpoint the checkpoint after which to start iterating
+     */
+    public void setCheckpoint(Checkpoint checkpoint)
+    {
+        this.checkpoint = checkpoint;
+    }
+
+    private String getWiki()
+    {
+        return this.rootReference.extractReference(EntityType.WIKI).getName();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return getResults().size() > this.index;
+    }
+
+    @Override
+    public Pair<DocumentReference, Checkpoint> next()
+    {
+        Object[] result = getResults().get(this.index++);
+
+        String localSpaceReference = (String) result[0];
+        String name = (String) result[1];
+        String locale = (String) result[2];
+        Date date = (Date) result[3];
+        long id = (Long) result[4];
+
+        SpaceReference spaceReference = new SpaceReference(this.explicitEntityReferenceResolver
+            .resolve(localSpaceReference, EntityType.SPACE, new WikiReference(getWiki())));
+        DocumentReference documentReference = new DocumentReference(name, spaceReference);
+        if (!StringUtils.isEmpty(locale)) {
+            documentReference = new DocumentReference(documentReference, LocaleUtils.toLocale(locale));
+        }
+
+        // Remember the position of the last returned document
+        this.checkpoint = new Checkpoint(date.getTime(), id);
+
+        return new ImmutablePair<>(documentReference, this.checkpoint);
+    }
+
+    @Override
+    public long size()
+    {
+        try {
+            Query query = this.queryManager.createQuery(WHERE, Query.HQL).addFilter(this.countFilter);
+            bind(query);
+
+            return (long) query.execute().get(0);
+        } catch (QueryException e) {
+            throw new IllegalStateException("Failed to count the modified documents.", e);
+        }
+    }
+
+    private List<Object[]> getResults()
+    {
+        if (this.index >= this.results.size() && !this.finished) {
+            try {
+                Query query = this.queryManager.createQuery(SELECT, Query.HQL).setLimit(LIMIT);
+                bind(query);
+
+                this.results = query.execute();
+                this.finished = this.results.size() < LIMIT;
+            } catch (QueryException e) {
+                throw new IllegalStateException("Failed to query the modified documents.", e);
+            }
+
+            this.index = 0;
+        }
+
+        return this.results;
+    }
+
+    private void bind(Query query)
+    {
+        query.setWiki(getWiki());
+        query.bindValue(PARAMETER_DATE, new Date(this.checkpoint.getDate()));
+        query.bindValue(PARAMETER_ID, this.checkpoint.getId());
+    }
+}
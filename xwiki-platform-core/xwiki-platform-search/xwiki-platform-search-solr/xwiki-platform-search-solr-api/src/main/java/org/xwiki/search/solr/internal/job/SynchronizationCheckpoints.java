@@ -0,0 +1,331 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+
+/**
+ * Remember, for each wiki, up to which document modification the Solr index is known to be in sync with the database
+ * so that the synchronization at startup only has to look at the documents modified since then.
+ * <p>
+ * A checkpoint is only saved when all the changes queued before it have been sent to Solr and flushed to the storage
+ * (see {@link #snapshot()} and {@link #save(Snapshot)}) and a wiki is only moved forward while the application is
+ * running once it has been synchronized.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component(roles = SynchronizationCheckpoints.class)
+@Singleton
+public class SynchronizationCheckpoints implements Initializable
+{
+    /**
+     * The maximum delay between the modification of a document and its addition to the indexer queue.
+     */
+    private static final long MARGIN = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The minimum delay between two saves of the checkpoints when only moving forward the synchronized wikis.
+     */
+    private static final long SAVE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String FILE_NAME = "synchronization.properties";
+
+    private static final String SUFFIX_DATE = ".date";
+
+    private static final String SUFFIX_ID = ".id";
+
+    /**
+     * A position in the list of documents ordered by modification date and id.
+     *
+     * @version $Id$
+     */
+    public static final class Checkpoint implements Comparable<Checkpoint>
+    {
+        private final long date;
+
+        private final long id;
+
+        /**
+         * @param date the modification date of the document
+         * @param id the identifier of the document
+         */
+        public Checkpoint(long date, long id)
+        {
+            this.date = date;
+            this.id = id;
+        }
+
+        /**
+         * @return the modification date of the document
+         */
+        public long getDate()
+        {
+            return this.date;
+        }
+
+        /**
+         * @return the identifier of the document
+         */
+        public long getId()
+        {
+            return this.id;
+        }
+
+        @Override
+        public int compareTo(Checkpoint other)
+        {
+            int result = Long.compare(this.date, other.date);
+
+            return result != 0 ? result : Long.compare(this.id, other.id);
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.date + "/" + this.id;
+        }
+    }
+
+    private static final class PendingCheckpoint
+    {
+        private final Checkpoint checkpoint;
+
+        private final boolean complete;
+
+        private PendingCheckpoint(Checkpoint checkpoint, boolean complete)
+        {
+            this.checkpoint = checkpoint;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * The state of the pending checkpoints at a given time.
+     *
+     * @version $Id$
+     */
+    public static final class Snapshot
+    {
+        private final long time = System.currentTimeMillis();
+
+        private final Map<String, PendingCheckpoint> pending;
+
+        private Snapshot(Map<String, PendingCheckpoint> pending)
+        {
+            this.pending = pending;
+        }
+    }
+
+    @Inject
+    private SolrConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    private File file;
+
+    private final Map<String, Checkpoint> checkpoints = new HashMap<>();
+
+    private final Map<String, PendingCheckpoint> pending = new HashMap<>();
+
+    private final Set<String> synchronizedWikis = new HashSet<>();
+
+    private long lastSave;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.file = new File(this.configuration.getHomeDirectory(), FILE_NAME);
+
+        if (this.file.exists()) {
+            Properties properties = new Properties();
+            try (InputStream stream = Files.newInputStream(this.file.toPath())) {
+                properties.load(stream);
+            } catch (IOException e) {
+                this.logger.warn("Failed to read the Solr synchronization checkpoints from [{}]: {}", this.file,
+                    e.getMessage());
+            }
+
+            for (String key : properties.stringPropertyNames()) {
+                if (key.endsWith(SUFFIX_DATE)) {
+                    String wiki = StringUtils.removeEnd(key, SUFFIX_DATE);
+                    try {
+                        this.checkpoints.put(wiki, new Checkpoint(Long.parseLong(properties.getProperty(key)),
+                            Long.parseLong(properties.getProperty(wiki + SUFFIX_ID, String.valueOf(Long.MIN_VALUE)))));
+                    } catch (NumberFormatException e) {
+                        this.logger.warn("Invalid Solr synchronization checkpoint for wiki [{}]", wiki);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param wiki the identifier of the wiki
+     * @return the checkpoint up to which the documents of the wiki are known to be indexed, {@code null} if the wiki
+     *         was never fully synchronized
+     */
+    public synchronized Checkpoint get(String wiki)
+    {
+        return this.checkpoints.get(wiki);
+    }
+
+    /**
+     * Indicate the progress of the synchronization of a wiki. The checkpoint will be saved once all the changes queued
+     * before calling this method have been sent to Solr.
+     *
+     * @param wiki the identifier of the wiki
+     * @param checkpoint all the documents up to this checkpoint have been queued
+     * @param complete {@code true} if the synchronization of the wiki is finished
+     */
+    public synchronized void setPending(String wiki, Checkpoint checkpoint, boolean complete)
+    {
+        this.pending.put(wiki, new PendingCheckpoint(checkpoint, complete));
+    }
+
+    /**
+     * @param startDate the date at which the synchronization started
+     * @return the checkpoint to save when the synchronization of a wiki is finished
+     */
+    public Checkpoint getCompleteCheckpoint(long startDate)
+    {
+        return new Checkpoint(startDate - MARGIN, Long.MIN_VALUE);
+    }
+
+    /**
+     * Forget the checkpoint of a wiki (for example when the wiki is deleted).
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public synchronized void remove(String wiki)
+    {
+        this.pending.remove(wiki);
+        this.synchronizedWikis.remove(wiki);
+
+        if (this.checkpoints.remove(wiki) != null) {
+            write();
+        }
+    }
+
+    /**
+     * @return the current pending checkpoints, to pass to {@link #save(Snapshot)} if all the changes queued until now
+     *         have been sent to Solr
+     */
+    public synchronized Snapshot snapshot()
+    {
+        return new Snapshot(new HashMap<>(this.pending));
+    }
+
+    /**
+     * Save the checkpoints of the passed snapshot. Must only be called when all the changes queued before the snapshot
+     * was taken have been sent to Solr and flushed to the storage (hard commit).
+     *
+     * @param snapshot the checkpoints to save
+     */
+    public synchronized void save(Snapshot snapshot)
+    {
+        boolean changed = false;
+
+        for (Map.Entry<String, PendingCheckpoint> entry : snapshot.pending.entrySet()) {
+            String wiki = entry.getKey();
+            PendingCheckpoint pendingCheckpoint = entry.getValue();
+
+            changed |= moveForward(wiki, pendingCheckpoint.checkpoint);
+
+            if (pendingCheckpoint.complete) {
+                this.synchronizedWikis.add(wiki);
+            }
+
+            this.pending.remove(wiki, pendingCheckpoint);
+        }
+
+        if (changed || snapshot.time - this.lastSave >= SAVE_INTERVAL) {
+            // All the changes made to the synchronized wikis before the snapshot have been indexed
+            Checkpoint current = getCompleteCheckpoint(snapshot.time);
+            for (String wiki : this.synchronizedWikis) {
+                changed |= moveForward(wiki, current);
+            }
+
+            if (changed) {
+                write();
+            }
+
+            this.lastSave = snapshot.time;
+        }
+    }
+
+    private boolean moveForward(String wiki, Checkpoint checkpoint)
+    {
+        Checkpoint currentCheckpoint = this.checkpoints.get(wiki);
+
+        if (currentCheckpoint == null || currentCheckpoint.compareTo(checkpoint) < 0) {
+            this.checkpoints.put(wiki, checkpoint);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private void write()
+    {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Checkpoint> entry : this.checkpoints.entrySet()) {
+            properties.setProperty(entry.getKey() + SUFFIX_DATE, String.valueOf(entry.getValue().getDate()));
+            properties.setProperty(entry.getKey() + SUFFIX_ID, String.valueOf(entry.getValue().getId()));
+        }
+
+        try {
+            this.file.getParentFile().mkdirs();
+
+            // Write a temporary file first to not end up with a partial file
+            File tmpFile = new File(this.file.getParentFile(), FILE_NAME + ".tmp");
+            try (OutputStream stream = Files.newOutputStream(tmpFile.toPath())) {
+                properties.store(stream, null);
+            }
+            Files.move(tmpFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            this.logger.warn("Failed to save the Solr synchronization checkpoints in [{}]: {}", this.file,
+                e.getMessage());
+        }
+    }
+}
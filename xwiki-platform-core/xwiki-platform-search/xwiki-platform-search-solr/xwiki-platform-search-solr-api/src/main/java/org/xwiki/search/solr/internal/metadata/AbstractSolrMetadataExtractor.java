@@ -114,6 +114,14 @@ public abstract class AbstractSolrMetadataExtractor implements SolrMetadataExtra
     @Inject
     protected ComponentManager componentManager;
 
+    /**
+     * Used to not parse again the attachments which did not change.
+     *
+     * @since 12.10
+     */
+    @Inject
+    protected AttachmentTextCache attachmentTextCache;
+
     @Override
     public LengthSolrInputDocument getSolrDocument(EntityReference entityReference)
         throws SolrIndexerException, IllegalArgumentException
@@ -500,16 +508,32 @@ protected void addFieldValueOnce(SolrInputDocument solrDocument, String fieldNam
     protected String getContentAsText(XWikiAttachment attachment)
     {
         try {
+            XWikiContext xcontext = this.xcontextProvider.get();
+
+            String cacheKey = this.attachmentTextCache.getKey(attachment, xcontext);
+            if (cacheKey != null) {
+                String text = this.attachmentTextCache.get(cacheKey);
+                if (text != null) {
+                    return text;
+                }
+            }
+
             Metadata metadata = new Metadata();
             metadata.set(TikaMetadataKeys.RESOURCE_NAME_KEY, attachment.getFilename());
 
-            InputStream in = attachment.getContentInputStream(this.xcontextProvider.get());
-
+            String text;
+            InputStream in = attachment.getContentInputStream(xcontext);
             try {
-                return TikaUtils.parseToString(in, metadata);
+                text = TikaUtils.parseToString(in, metadata);
             } finally {
                 in.close();
             }
+
+            if (cacheKey != null) {
+                this.attachmentTextCache.set(cacheKey, text);
+            }
+
+            return text;
         } catch (Exception e) {
             this.logger.error("Failed to retrieve the content of attachment [{}]", attachment.getReference(), e);
             return null;
@@ -0,0 +1,299 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.environment.Environment;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.tika.internal.TikaUtils;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+
+/**
+ * A filesystem cache of the text extracted from the attachments content, to not parse again the attachments which did
+ * not change when they (or their document) are indexed again.
+ * <p>
+ * The entries are addressed by a digest of the attachment content, its file extension (used by Tika to detect the
+ * media type) and the Tika version so that upgrading Tika automatically invalidates them. The least recently used
+ * entries are removed when the cache becomes bigger than {@link SolrConfiguration#getAttachmentTextCacheMaxSize()}.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component(roles = AttachmentTextCache.class)
+@Singleton
+public class AttachmentTextCache implements Initializable
+{
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final String EXTENSION = ".txt.gz";
+
+    private static final String TMP_EXTENSION = ".tmp";
+
+    @Inject
+    private SolrConfiguration configuration;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Logger logger;
+
+    private File directory;
+
+    private long maxSize;
+
+    private long maxEntrySize;
+
+    /**
+     * The size of each cache entry, in access order.
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long size;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.directory = new File(this.environment.getPermanentDirectory(), "store/solr-attachment-text");
+        this.maxSize = this.configuration.getAttachmentTextCacheMaxSize();
+        this.maxEntrySize = Math.min(this.configuration.getAttachmentTextCacheMaxEntrySize(), this.maxSize);
+
+        if (this.maxSize > 0) {
+            load();
+        }
+    }
+
+    private void load()
+    {
+        List<File> files = new ArrayList<>();
+        File[] subdirectories = this.directory.listFiles(File::isDirectory);
+        if (subdirectories != null) {
+            for (File subdirectory : subdirectories) {
+                File[] subdirectoryFiles = subdirectory.listFiles();
+                if (subdirectoryFiles != null) {
+                    for (File file : subdirectoryFiles) {
+                        if (file.getName().endsWith(EXTENSION)) {
+                            files.add(file);
+                        } else {
+                            // Left over of an interrupted write
+                            file.delete();
+                        }
+                    }
+                }
+            }
+        }
+
+        // The last modified date of the files is updated when they are accessed
+        files.sort(Comparator.comparingLong(File::lastModified));
+
+        synchronized (this.entries) {
+            for (File file : files) {
+                String key = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+                long length = file.length();
+                this.entries.put(key, length);
+                this.size += length;
+            }
+
+            evict();
+        }
+    }
+
+    /**
+     * @return {@code true} if the cache is enabled
+     */
+    public boolean isEnabled()
+    {
+        return this.maxSize > 0;
+    }
+
+    /**
+     * Compute the cache key of the attachment (which involves reading its whole content).
+     *
+     * @param attachment the attachment
+     * @param xcontext the XWiki context
+     * @return the cache key of the attachment content, or {@code null} if the cache is disabled
+     * @throws Exception when failing to read the attachment content
+     */
+    public String getKey(XWikiAttachment attachment, XWikiContext xcontext) throws Exception
+    {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        MessageDigest digest = createDigest();
+        digest.update(TikaUtils.getTika().toString().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(FilenameUtils.getExtension(attachment.getFilename()).toLowerCase(Locale.ROOT)
+            .getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+
+        byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+        try (InputStream stream = attachment.getContentInputStream(xcontext)) {
+            for (int length = stream.read(buffer); length != IOUtils.EOF; length = stream.read(buffer)) {
+                digest.update(buffer, 0, length);
+            }
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("Failed to create a " + DIGEST_ALGORITHM + " digest", e);
+        }
+    }
+
+    private File getFile(String key)
+    {
+        return new File(new File(this.directory, key.substring(0, 2)), key + EXTENSION);
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(XWikiAttachment, XWikiContext)}
+     * @return the cached text, or {@code null} if it's not in the cache
+     */
+    public String get(String key)
+    {
+        synchronized (this.entries) {
+            if (this.entries.get(key) == null) {
+                return null;
+            }
+        }
+
+        File file = getFile(key);
+        try (InputStream stream = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            String text = IOUtils.toString(stream, StandardCharsets.UTF_8);
+
+            // Remember the access across restarts
+            file.setLastModified(System.currentTimeMillis());
+
+            return text;
+        } catch (IOException e) {
+            // The entry was probably evicted in the meantime
+            this.logger.debug("Failed to read the cached attachment text [{}]: {}", file, e.getMessage());
+
+            return null;
+        }
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(XWikiAttachment, XWikiContext)}
+     * @param text the text extracted from the attachment content
+     */
+    public void set(String key, String text)
+    {
+        File file = getFile(key);
+        File tmpFile = new File(file.getParentFile(), key + '-' + UUID.randomUUID() + TMP_EXTENSION);
+
+        long length;
+        try {
+            file.getParentFile().mkdirs();
+
+            CountingOutputStream countingStream = new CountingOutputStream(Files.newOutputStream(tmpFile.toPath()));
+            try (Writer writer = IOUtils.buffer(new OutputStreamWriter(new GZIPOutputStream(countingStream),
+                StandardCharsets.UTF_8))) {
+                writer.write(text);
+            }
+            length = countingStream.getByteCount();
+
+            if (length > this.maxEntrySize) {
+                Files.delete(tmpFile.toPath());
+
+                return;
+            }
+
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            this.logger.warn("Failed to cache the attachment text in [{}]: {}", file, e.getMessage());
+
+            tmpFile.delete();
+
+            return;
+        }
+
+        synchronized (this.entries) {
+            Long previousLength = this.entries.put(key, length);
+            this.size += length - (previousLength != null ? previousLength : 0);
+
+            evict();
+        }
+    }
+
+    private void evict()
+    {
+        for (Iterator<Map.Entry<String, Long>> it = this.entries.entrySet().iterator(); this.size > this.maxSize
+            && it.hasNext();) {
+            Map.Entry<String, Long> entry = it.next();
+
+            File file = getFile(entry.getKey());
+            if (file.delete() || !file.exists()) {
+                this.size -= entry.getValue();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the current size (in bytes) of the cache on disk
+     */
+    public long getSize()
+    {
+        synchronized (this.entries) {
+            return this.size;
+        }
+    }
+}
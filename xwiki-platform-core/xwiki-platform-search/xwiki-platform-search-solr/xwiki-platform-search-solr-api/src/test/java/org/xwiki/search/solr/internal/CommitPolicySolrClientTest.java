@@ -0,0 +1,184 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.search.solr.internal.api.SolrConfiguration.CommitMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Validate {@link CommitPolicySolrClient}.
+ *
+ * @version $Id$
+ */
+class CommitPolicySolrClientTest
+{
+    private final SolrClient client = mock(SolrClient.class);
+
+    @Test
+    void softCommit() throws Exception
+    {
+        CommitPolicySolrClient policyClient = new CommitPolicySolrClient(this.client, CommitMode.SOFT, 1000);
+
+        // Nothing to flush yet
+        policyClient.hardCommit();
+        verifyNoInteractions(this.client);
+
+        policyClient.add(new SolrInputDocument());
+        policyClient.commit();
+
+        ArgumentCaptor<SolrRequest> requestCaptor = ArgumentCaptor.forClass(SolrRequest.class);
+        verify(this.client, times(2)).request(requestCaptor.capture(), isNull());
+        UpdateRequest commitRequest = (UpdateRequest) requestCaptor.getAllValues().get(1);
+        assertTrue(commitRequest.getParams().getBool(UpdateParams.COMMIT));
+        assertTrue(commitRequest.getParams().getBool(UpdateParams.SOFT_COMMIT));
+
+        policyClient.hardCommit();
+        // Only once as long as nothing changed
+        policyClient.hardCommit();
+
+        verify(this.client, times(3)).request(requestCaptor.capture(), isNull());
+        UpdateRequest hardCommitRequest = (UpdateRequest) requestCaptor.getValue();
+        assertTrue(hardCommitRequest.getParams().getBool(UpdateParams.COMMIT));
+        assertFalse(hardCommitRequest.getParams().getBool(UpdateParams.SOFT_COMMIT, false));
+        assertFalse(hardCommitRequest.getParams().getBool(UpdateParams.OPEN_SEARCHER));
+    }
+
+    @Test
+    void commitWithin() throws Exception
+    {
+        CommitPolicySolrClient policyClient = new CommitPolicySolrClient(this.client, CommitMode.WITHIN, 1000);
+
+        policyClient.add(new SolrInputDocument());
+        policyClient.deleteById("id");
+        policyClient.commit();
+
+        ArgumentCaptor<SolrRequest> requestCaptor = ArgumentCaptor.forClass(SolrRequest.class);
+        verify(this.client, times(2)).request(requestCaptor.capture(), any());
+        for (SolrRequest request : requestCaptor.getAllValues()) {
+            assertEquals(1000, ((UpdateRequest) request).getCommitWithin());
+        }
+
+        policyClient.hardCommit();
+
+        verify(this.client, times(3)).request(any(), any());
+    }
+
+    @Test
+    void runAfterHardCommit() throws Exception
+    {
+        CommitPolicySolrClient policyClient = new CommitPolicySolrClient(this.client, CommitMode.SOFT, 1000);
+        AtomicInteger counter = new AtomicInteger();
+
+        // Nothing to flush
+        policyClient.runAfterHardCommit(counter::incrementAndGet);
+        assertEquals(1, counter.get());
+
+        policyClient.add(new SolrInputDocument());
+        policyClient.commit();
+        policyClient.runAfterHardCommit(counter::incrementAndGet);
+
+        // The changes are only visible
+        assertEquals(1, counter.get());
+
+        // The action waits for a successful hard commit
+        doThrow(new SolrServerException("error")).when(this.client).request(any(UpdateRequest.class), isNull());
+        assertThrows(SolrServerException.class, policyClient::hardCommit);
+        assertEquals(1, counter.get());
+
+        doReturn(new NamedList<>()).when(this.client).request(any(UpdateRequest.class), isNull());
+        policyClient.hardCommit();
+        assertEquals(2, counter.get());
+
+        // Only run once
+        policyClient.add(new SolrInputDocument());
+        policyClient.hardCommit();
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    void hardCommitDuringUpdate() throws Exception
+    {
+        CommitPolicySolrClient policyClient = new CommitPolicySolrClient(this.client, CommitMode.SOFT, 1000);
+        AtomicInteger counter = new AtomicInteger();
+
+        CountDownLatch updateSent = new CountDownLatch(1);
+        CountDownLatch updateReceived = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (((UpdateRequest) invocation.getArgument(0)).getDocuments() != null) {
+                updateSent.countDown();
+                updateReceived.await();
+            }
+
+            return new NamedList<>();
+        }).when(this.client).request(any(UpdateRequest.class), isNull());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> update = executor.submit(() -> policyClient.add(new SolrInputDocument()));
+            assertTrue(updateSent.await(10, TimeUnit.SECONDS));
+
+            // The update might not be part of a hard commit sent while it's on its way
+            policyClient.runAfterHardCommit(counter::incrementAndGet);
+            policyClient.hardCommit();
+            assertEquals(0, counter.get());
+
+            updateReceived.countDown();
+            update.get(10, TimeUnit.SECONDS);
+
+            policyClient.runAfterHardCommit(counter::incrementAndGet);
+            assertEquals(0, counter.get());
+
+            policyClient.hardCommit();
+            assertEquals(2, counter.get());
+            verify(this.client, times(3)).request(any(UpdateRequest.class), isNull());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
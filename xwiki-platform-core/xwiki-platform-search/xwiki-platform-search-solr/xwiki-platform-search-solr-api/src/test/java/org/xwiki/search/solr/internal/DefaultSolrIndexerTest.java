@@ -0,0 +1,270 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.inject.Named;
+
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.jmx.JMXSolrIndexer;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultSolrIndexer}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultSolrIndexerTest
+{
+    private static final int DOCUMENT_COUNT = 20;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @InjectMockComponents
+    private DefaultSolrIndexer indexer;
+
+    @MockComponent
+    private SolrConfiguration configuration;
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
+    @MockComponent
+    private SolrReferenceResolver solrReferenceResolver;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    @MockComponent
+    private JobExecutor jobExecutor;
+
+    @MockComponent
+    private JMXBeanRegistration jmxRegistration;
+
+    @MockComponent
+    @Named("document")
+    private SolrMetadataExtractor documentExtractor;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        // Needed by the resolver thread
+        Utils.setComponentManager(this.componentManager);
+
+        when(this.configuration.getIndexerQueueCapacity()).thenReturn(100);
+        when(this.configuration.getIndexerBatchSize()).thenReturn(50);
+        when(this.configuration.getIndexerBatchMaxLengh()).thenReturn(10000);
+        when(this.configuration.getIndexerExtractorThreads()).thenReturn(4);
+    }
+
+    @BeforeComponent("coalesceQueuedOperations")
+    void beforeCoalesceQueuedOperations()
+    {
+        // Extract in the index thread so that it's blocked by the first extraction
+        when(this.configuration.getIndexerExtractorThreads()).thenReturn(1);
+    }
+
+    @AfterEach
+    void afterEach() throws Exception
+    {
+        this.indexer.dispose();
+
+        Utils.setComponentManager(null);
+    }
+
+    @Test
+    void indexInQueueOrder() throws Exception
+    {
+        List<DocumentReference> references = new ArrayList<>();
+        for (int i = 0; i < DOCUMENT_COUNT; ++i) {
+            references.add(new DocumentReference("wiki", "Space", "Page" + i));
+        }
+
+        when(this.documentExtractor.getSolrDocument(any())).then(invocation -> {
+            EntityReference reference = invocation.getArgument(0);
+            int index = references.indexOf(reference);
+
+            // Make the first documents the slowest to extract
+            Thread.sleep((DOCUMENT_COUNT - index) * 5L);
+
+            LengthSolrInputDocument document = new LengthSolrInputDocument();
+            document.setField("id", reference.getName());
+
+            return document;
+        });
+        DocumentReference deletedReference = new DocumentReference("wiki", "Space", "Deleted");
+        when(this.solrReferenceResolver.getId(deletedReference)).thenReturn("deleted");
+
+        for (int i = 0; i < DOCUMENT_COUNT / 2; ++i) {
+            this.indexer.index(references.get(i), false);
+        }
+        this.indexer.delete(deletedReference, false);
+        for (int i = DOCUMENT_COUNT / 2; i < DOCUMENT_COUNT; ++i) {
+            this.indexer.index(references.get(i), false);
+        }
+
+        ArgumentCaptor<SolrInputDocument> documentCaptor = ArgumentCaptor.forClass(SolrInputDocument.class);
+        verify(this.solrInstance, timeout(10000).times(DOCUMENT_COUNT)).add(documentCaptor.capture());
+        verify(this.solrInstance, timeout(10000).atLeastOnce()).commit();
+
+        // The documents are sent to Solr in the order they were queued even if they were extracted in another order
+        assertEquals(references.stream().map(DocumentReference::getName).collect(Collectors.toList()), documentCaptor
+            .getAllValues().stream().map(document -> document.getFieldValue("id")).collect(Collectors.toList()));
+
+        InOrder order = inOrder(this.solrInstance);
+        order.verify(this.solrInstance, times(DOCUMENT_COUNT / 2)).add(any(SolrInputDocument.class));
+        order.verify(this.solrInstance).delete("deleted");
+        order.verify(this.solrInstance, times(DOCUMENT_COUNT / 2)).add(any(SolrInputDocument.class));
+
+        verify(this.jmxRegistration).registerMBean(any(JMXSolrIndexer.class), eq("name=solrindexer"));
+    }
+
+    @Test
+    void coalesceQueuedOperations() throws Exception
+    {
+        DocumentReference blockingReference = new DocumentReference("wiki", "Space", "Blocking");
+        DocumentReference indexedReference = new DocumentReference("wiki", "Space", "Indexed");
+        DocumentReference deletedReference = new DocumentReference("wiki", "Space", "Deleted");
+        when(this.solrReferenceResolver.getId(deletedReference)).thenReturn("deleted");
+
+        CountDownLatch extractionStarted = new CountDownLatch(1);
+        CountDownLatch extractionReleased = new CountDownLatch(1);
+        when(this.documentExtractor.getSolrDocument(any())).then(invocation -> {
+            EntityReference reference = invocation.getArgument(0);
+            if (reference.equals(blockingReference)) {
+                extractionStarted.countDown();
+                extractionReleased.await();
+            }
+
+            return new LengthSolrInputDocument();
+        });
+
+        // Block the index thread so that the next operations stay in the queue
+        this.indexer.index(blockingReference, false);
+        assertTrue(extractionStarted.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 5; ++i) {
+            this.indexer.index(indexedReference, false);
+        }
+        this.indexer.index(deletedReference, false);
+        this.indexer.delete(deletedReference, false);
+        this.indexer.delete(deletedReference, false);
+
+        // Wait for the resolver to push everything to the index queue: one index and one delete operation
+        long timeout = System.currentTimeMillis() + 10000;
+        while (this.indexer.getQueueSize() > 2 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, this.indexer.getQueueSize());
+
+        extractionReleased.countDown();
+
+        verify(this.solrInstance, timeout(10000)).delete("deleted");
+        verify(this.solrInstance, times(2)).add(any(SolrInputDocument.class));
+        verify(this.documentExtractor).getSolrDocument(blockingReference);
+        verify(this.documentExtractor).getSolrDocument(indexedReference);
+        verify(this.documentExtractor, never()).getSolrDocument(deletedReference);
+    }
+
+    @Test
+    void saveCheckpointsAfterHardCommit() throws Exception
+    {
+        SynchronizationCheckpoints checkpoints = this.componentManager.getInstance(SynchronizationCheckpoints.class);
+        DocumentReference reference = new DocumentReference("wiki", "Space", "Page");
+        when(this.documentExtractor.getSolrDocument(reference)).thenReturn(new LengthSolrInputDocument());
+
+        this.indexer.index(reference, false);
+
+        ArgumentCaptor<Runnable> actionCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.solrInstance, timeout(10000)).runAfterHardCommit(actionCaptor.capture());
+
+        InOrder order = inOrder(this.solrInstance);
+        order.verify(this.solrInstance).add(any(SolrInputDocument.class));
+        order.verify(this.solrInstance).commit();
+        order.verify(this.solrInstance).runAfterHardCommit(any());
+
+        // Not saved until the changes are flushed to the storage
+        verify(checkpoints, never()).save(any());
+
+        actionCaptor.getValue().run();
+
+        verify(checkpoints).save(any());
+    }
+
+    @Test
+    void dontSaveCheckpointsAfterCommitFailure() throws Exception
+    {
+        doThrow(new SolrServerException("error")).when(this.solrInstance).commit();
+        DocumentReference reference = new DocumentReference("wiki", "Space", "Page");
+        when(this.documentExtractor.getSolrDocument(reference)).thenReturn(new LengthSolrInputDocument());
+
+        this.indexer.index(reference, false);
+
+        verify(this.solrInstance, timeout(10000)).rollback();
+        verify(this.solrInstance, after(500).never()).runAfterHardCommit(any());
+    }
+}
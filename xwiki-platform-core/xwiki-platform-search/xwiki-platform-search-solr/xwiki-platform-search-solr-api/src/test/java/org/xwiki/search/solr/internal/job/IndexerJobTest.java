@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints.Checkpoint;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the incremental synchronization of {@link IndexerJob}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class IndexerJobTest
+{
+    private static final String WIKI = "wiki";
+
+    private static final WikiReference WIKI_REFERENCE = new WikiReference(WIKI);
+
+    private static final Checkpoint CHECKPOINT = new Checkpoint(1000, 5);
+
+    private static final Checkpoint COMPLETE_CHECKPOINT = new Checkpoint(2000, Long.MIN_VALUE);
+
+    @InjectMockComponents
+    private IndexerJob job;
+
+    @MockComponent
+    private SolrIndexer indexer;
+
+    @MockComponent
+    private Provider<ModifiedDocumentIterator> modifiedIteratorProvider;
+
+    private final ModifiedDocumentIterator modifiedIterator = mock(ModifiedDocumentIterator.class);
+
+    @MockComponent
+    private SynchronizationCheckpoints checkpoints;
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    private DocumentAccessBridge documentAccessBridge;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    private Query deletedQuery;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.modifiedIteratorProvider.get()).thenReturn(this.modifiedIterator);
+
+        when(this.checkpoints.get(WIKI)).thenReturn(CHECKPOINT);
+        when(this.checkpoints.getCompleteCheckpoint(anyLong())).thenReturn(COMPLETE_CHECKPOINT);
+
+        // The wiki has documents in the index
+        SolrDocumentList documents = new SolrDocumentList();
+        documents.setNumFound(42);
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(documents);
+        when(this.solrInstance.query(any())).thenReturn(response);
+
+        this.deletedQuery = mock(Query.class);
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).thenReturn(this.deletedQuery);
+        when(this.deletedQuery.setWiki(WIKI)).thenReturn(this.deletedQuery);
+        when(this.deletedQuery.bindValue(anyString(), any())).thenReturn(this.deletedQuery);
+        when(this.deletedQuery.execute()).thenReturn(Collections.emptyList());
+    }
+
+    private void run() throws Exception
+    {
+        IndexerRequest request = new IndexerRequest();
+        request.setRootReference(WIKI_REFERENCE);
+        request.setIncremental(true);
+
+        this.job.initialize(request);
+        this.job.runInternal();
+    }
+
+    @Test
+    void resumeFromCheckpoint() throws Exception
+    {
+        List<Pair<DocumentReference, Checkpoint>> modified = new ArrayList<>();
+        for (int i = 0; i <= AbstractDocumentIterator.LIMIT; ++i) {
+            modified.add(new ImmutablePair<>(new DocumentReference(WIKI, "Space", "Page" + i),
+                new Checkpoint(CHECKPOINT.getDate() + i, i)));
+        }
+        when(this.modifiedIterator.size()).thenReturn((long) modified.size());
+        Iterator<Pair<DocumentReference, Checkpoint>> iterator = modified.iterator();
+        when(this.modifiedIterator.hasNext()).then(invocation -> iterator.hasNext());
+        when(this.modifiedIterator.next()).then(invocation -> iterator.next());
+
+        run();
+
+        // Only the documents modified after the saved checkpoint are looked at
+        verify(this.modifiedIterator).setRootReference(WIKI_REFERENCE);
+        verify(this.modifiedIterator).setCheckpoint(CHECKPOINT);
+        for (Pair<DocumentReference, Checkpoint> entry : modified) {
+            verify(this.indexer).index(entry.getKey(), true);
+        }
+
+        // The progress is regularly recorded and the wiki is marked as synchronized at the end
+        InOrder order = inOrder(this.checkpoints);
+        order.verify(this.checkpoints).setPending(WIKI, modified.get(AbstractDocumentIterator.LIMIT - 1).getValue(),
+            false);
+        order.verify(this.checkpoints).setPending(eq(WIKI), same(COMPLETE_CHECKPOINT), eq(true));
+    }
+
+    @Test
+    void synchronizeDeletedAfterCheckpoint() throws Exception
+    {
+        DocumentReference deletedReference = new DocumentReference(WIKI, "Space", "Deleted");
+        DocumentReference recreatedReference = new DocumentReference(WIKI, "Space", "Recreated");
+        when(this.deletedQuery.execute()).thenReturn(Arrays.asList("Space.Deleted", "Space.Recreated"));
+        when(this.documentReferenceResolver.resolve("Space.Deleted", WIKI_REFERENCE)).thenReturn(deletedReference);
+        when(this.documentReferenceResolver.resolve("Space.Recreated", WIKI_REFERENCE))
+            .thenReturn(recreatedReference);
+        when(this.documentAccessBridge.exists(recreatedReference)).thenReturn(true);
+
+        run();
+
+        // Only the documents deleted since the checkpoint
+        verify(this.deletedQuery).bindValue("date", new Date(CHECKPOINT.getDate()));
+
+        verify(this.indexer).delete(deletedReference, true);
+        verify(this.indexer, never()).index(deletedReference, true);
+
+        // A document created again after its deletion is indexed again
+        InOrder order = inOrder(this.indexer);
+        order.verify(this.indexer).delete(recreatedReference, true);
+        order.verify(this.indexer).index(recreatedReference, true);
+
+        verify(this.checkpoints).setPending(eq(WIKI), same(COMPLETE_CHECKPOINT), eq(true));
+    }
+
+    @Test
+    void fullSynchronizationWhenIndexIsEmpty() throws Exception
+    {
+        // The index was reset since the checkpoint was saved
+        SolrDocumentList documents = new SolrDocumentList();
+        documents.setNumFound(0);
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(documents);
+        when(this.solrInstance.query(any())).thenReturn(response);
+
+        run();
+
+        verify(this.modifiedIterator, never()).setCheckpoint(any());
+        verify(this.deletedQuery, never()).execute();
+        verify(this.checkpoints).setPending(eq(WIKI), same(COMPLETE_CHECKPOINT), eq(true));
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Named;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints.Checkpoint;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ModifiedDocumentIterator}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class ModifiedDocumentIteratorTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    @InjectMockComponents
+    private ModifiedDocumentIterator iterator;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("explicit")
+    private EntityReferenceResolver<String> explicitEntityReferenceResolver;
+
+    @MockComponent
+    @Named("count")
+    private QueryFilter countFilter;
+
+    /**
+     * The documents of the wiki as returned by the database: space, name, language, date, id.
+     */
+    private final List<Object[]> documents = new ArrayList<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.explicitEntityReferenceResolver.resolve(anyString(), eq(EntityType.SPACE), any(WikiReference.class)))
+            .then(invocation -> new EntityReference(invocation.getArgument(0), EntityType.SPACE,
+                invocation.getArgument(2)));
+
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).then(invocation -> {
+            String statement = invocation.getArgument(0);
+
+            return mockQuery(!statement.startsWith("select "));
+        });
+
+        this.iterator.setRootReference(WIKI);
+    }
+
+    /**
+     * Simulate the query on {@link #documents}.
+     */
+    private Query mockQuery(boolean count) throws Exception
+    {
+        Query query = mock(Query.class);
+        Map<String, Object> parameters = new HashMap<>();
+        int[] limit = new int[] { Integer.MAX_VALUE };
+
+        when(query.setWiki(WIKI.getName())).thenReturn(query);
+        when(query.addFilter(this.countFilter)).thenReturn(query);
+        when(query.setLimit(anyInt())).then(invocation -> {
+            limit[0] = invocation.getArgument(0);
+
+            return query;
+        });
+        when(query.bindValue(anyString(), any())).then(invocation -> {
+            parameters.put(invocation.getArgument(0), invocation.getArgument(1));
+
+            return query;
+        });
+        when(query.execute()).then(invocation -> {
+            long date = ((Date) parameters.get("date")).getTime();
+            long id = (Long) parameters.get("id");
+
+            List<Object[]> results = this.documents.stream().filter(document -> {
+                long documentDate = ((Date) document[3]).getTime();
+
+                return documentDate > date || (documentDate == date && (Long) document[4] > id);
+            }).limit(limit[0]).collect(Collectors.toList());
+
+            return count ? Arrays.asList((long) results.size()) : results;
+        });
+
+        return query;
+    }
+
+    private void addDocument(String name, String locale, long date, long id)
+    {
+        this.documents.add(new Object[] { "Space", name, locale, new Date(date), id });
+    }
+
+    private List<Pair<DocumentReference, Checkpoint>> iterate()
+    {
+        List<Pair<DocumentReference, Checkpoint>> result = new ArrayList<>();
+        while (this.iterator.hasNext()) {
+            result.add(this.iterator.next());
+        }
+
+        return result;
+    }
+
+    private DocumentReference getReference(int index)
+    {
+        Object[] document = this.documents.get(index);
+        DocumentReference reference = new DocumentReference(WIKI.getName(), "Space", (String) document[1]);
+
+        return document[2].equals("") ? reference : new DocumentReference(reference, new Locale((String) document[2]));
+    }
+
+    private void assertDocuments(int from, List<Pair<DocumentReference, Checkpoint>> result)
+    {
+        assertEquals(this.documents.size() - from, result.size());
+
+        for (int i = from; i < this.documents.size(); ++i) {
+            Pair<DocumentReference, Checkpoint> entry = result.get(i - from);
+            Object[] document = this.documents.get(i);
+
+            assertEquals(getReference(i), entry.getKey());
+            assertEquals(((Date) document[3]).getTime(), entry.getValue().getDate());
+            assertEquals(document[4], entry.getValue().getId());
+        }
+    }
+
+    @Test
+    void iterateAcrossEqualDates()
+    {
+        addDocument("Before", "", 10, 7);
+        // More documents with the same date than the size of a page
+        for (int i = 0; i < AbstractDocumentIterator.LIMIT * 2 + 10; ++i) {
+            addDocument("Page" + i, i % 10 == 0 ? "fr" : "", 20, 100 + i);
+        }
+        addDocument("After", "", 30, 1);
+
+        assertEquals(this.documents.size(), this.iterator.size());
+
+        // Each document is returned exactly once, in the order of the modifications
+        assertDocuments(0, iterate());
+    }
+
+    @Test
+    void resumeFromCheckpoint()
+    {
+        for (int i = 0; i < AbstractDocumentIterator.LIMIT + 10; ++i) {
+            addDocument("Page" + i, "", 20 + i / 30, i);
+        }
+
+        // In the middle of documents with the same date
+        Object[] last = this.documents.get(45);
+        this.iterator.setCheckpoint(new Checkpoint(((Date) last[3]).getTime(), (Long) last[4]));
+
+        assertEquals(this.documents.size() - 46, this.iterator.size());
+        assertDocuments(46, iterate());
+    }
+
+    @Test
+    void resumeFromLastCheckpoint()
+    {
+        addDocument("Page", "", 20, 1);
+
+        this.iterator.setCheckpoint(new Checkpoint(20, 1));
+
+        assertEquals(0, this.iterator.size());
+        assertFalse(this.iterator.hasNext());
+    }
+}
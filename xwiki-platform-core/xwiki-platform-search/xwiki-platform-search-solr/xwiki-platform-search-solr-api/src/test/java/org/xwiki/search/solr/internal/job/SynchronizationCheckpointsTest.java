@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints.Checkpoint;
+import org.xwiki.search.solr.internal.job.SynchronizationCheckpoints.Snapshot;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link SynchronizationCheckpoints}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class SynchronizationCheckpointsTest
+{
+    @XWikiTempDir
+    private File homeDirectory;
+
+    private final SolrConfiguration configuration = mock(SolrConfiguration.class);
+
+    private SynchronizationCheckpoints checkpoints;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.configuration.getHomeDirectory()).thenReturn(this.homeDirectory.getPath());
+
+        this.checkpoints = createCheckpoints();
+    }
+
+    private SynchronizationCheckpoints createCheckpoints() throws Exception
+    {
+        SynchronizationCheckpoints instance = new SynchronizationCheckpoints();
+        ReflectionUtils.setFieldValue(instance, "configuration", this.configuration);
+        ReflectionUtils.setFieldValue(instance, "logger", mock(Logger.class));
+        instance.initialize();
+
+        return instance;
+    }
+
+    @Test
+    void saveAfterIndexing() throws Exception
+    {
+        assertNull(this.checkpoints.get("wiki"));
+
+        // Progress of the synchronization
+        this.checkpoints.setPending("wiki", new Checkpoint(10, 1), false);
+        Snapshot snapshot = this.checkpoints.snapshot();
+        this.checkpoints.setPending("wiki", new Checkpoint(20, 2), false);
+
+        // Only what was queued before the snapshot is saved
+        this.checkpoints.save(snapshot);
+        assertEquals(0, new Checkpoint(10, 1).compareTo(this.checkpoints.get("wiki")));
+
+        this.checkpoints.save(this.checkpoints.snapshot());
+        assertEquals(0, new Checkpoint(20, 2).compareTo(this.checkpoints.get("wiki")));
+
+        // A checkpoint never goes back
+        this.checkpoints.setPending("wiki", new Checkpoint(15, 3), false);
+        this.checkpoints.save(this.checkpoints.snapshot());
+        assertEquals(0, new Checkpoint(20, 2).compareTo(this.checkpoints.get("wiki")));
+
+        // The checkpoints are persisted
+        assertEquals(0, new Checkpoint(20, 2).compareTo(createCheckpoints().get("wiki")));
+    }
+
+    @Test
+    void moveForwardSynchronizedWikis() throws Exception
+    {
+        long start = System.currentTimeMillis();
+
+        this.checkpoints.setPending("wiki", this.checkpoints.getCompleteCheckpoint(start), true);
+        this.checkpoints.save(this.checkpoints.snapshot());
+
+        Checkpoint checkpoint = this.checkpoints.get("wiki");
+        assertTrue(checkpoint.getDate() <= start);
+
+        this.checkpoints.remove("wiki");
+        assertNull(this.checkpoints.get("wiki"));
+        assertNull(createCheckpoints().get("wiki"));
+    }
+}
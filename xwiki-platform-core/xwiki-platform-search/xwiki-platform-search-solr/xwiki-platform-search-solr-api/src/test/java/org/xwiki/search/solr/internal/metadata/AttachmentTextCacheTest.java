@@ -0,0 +1,145 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.environment.Environment;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AttachmentTextCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class AttachmentTextCacheTest
+{
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    private final SolrConfiguration configuration = mock(SolrConfiguration.class);
+
+    private final XWikiContext xcontext = mock(XWikiContext.class);
+
+    private AttachmentTextCache cache;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.configuration.getAttachmentTextCacheMaxSize()).thenReturn(10000L);
+        when(this.configuration.getAttachmentTextCacheMaxEntrySize()).thenReturn(5000L);
+
+        this.cache = createCache();
+    }
+
+    private AttachmentTextCache createCache() throws Exception
+    {
+        Environment environment = mock(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+
+        AttachmentTextCache instance = new AttachmentTextCache();
+        ReflectionUtils.setFieldValue(instance, "configuration", this.configuration);
+        ReflectionUtils.setFieldValue(instance, "environment", environment);
+        ReflectionUtils.setFieldValue(instance, "logger", mock(Logger.class));
+        instance.initialize();
+
+        return instance;
+    }
+
+    private XWikiAttachment mockAttachment(String filename, String content) throws Exception
+    {
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getFilename()).thenReturn(filename);
+        when(attachment.getContentInputStream(this.xcontext))
+            .thenAnswer(invocation -> new ByteArrayInputStream(content.getBytes()));
+
+        return attachment;
+    }
+
+    @Test
+    void getKey() throws Exception
+    {
+        String key = this.cache.getKey(mockAttachment("file.pdf", "content"), this.xcontext);
+
+        assertEquals(key, this.cache.getKey(mockAttachment("other.PDF", "content"), this.xcontext));
+        assertNotEquals(key, this.cache.getKey(mockAttachment("file.pdf", "other content"), this.xcontext));
+        assertNotEquals(key, this.cache.getKey(mockAttachment("file.doc", "content"), this.xcontext));
+    }
+
+    @Test
+    void setAndGet() throws Exception
+    {
+        String key = this.cache.getKey(mockAttachment("file.pdf", "content"), this.xcontext);
+
+        assertNull(this.cache.get(key));
+
+        this.cache.set(key, "text");
+
+        assertEquals("text", this.cache.get(key));
+
+        // The cache is persisted
+        assertEquals("text", createCache().get(key));
+    }
+
+    @Test
+    void limits() throws Exception
+    {
+        // Too big to be cached (random text is not compressed much)
+        this.cache.set("00big", RandomStringUtils.randomAlphanumeric(10000));
+        assertNull(this.cache.get("00big"));
+        assertEquals(0, this.cache.getSize());
+
+        for (int i = 10; i < 20; ++i) {
+            this.cache.set(i + "text", RandomStringUtils.randomAlphanumeric(2000));
+        }
+        assertTrue(this.cache.getSize() <= 10000);
+
+        // The least recently used entries are evicted
+        assertNull(this.cache.get("10text"));
+        assertEquals(2000, this.cache.get("19text").length());
+    }
+
+    @Test
+    void disabled() throws Exception
+    {
+        when(this.configuration.getAttachmentTextCacheMaxSize()).thenReturn(0L);
+
+        assertNull(createCache().getKey(mockAttachment("file.pdf", "content"), this.xcontext));
+    }
+}
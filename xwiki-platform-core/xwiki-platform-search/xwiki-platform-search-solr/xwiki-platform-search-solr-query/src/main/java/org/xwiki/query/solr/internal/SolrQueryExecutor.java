@@ -22,6 +22,7 @@
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map.Entry;
 
@@ -235,27 +236,31 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         SolrDocumentList results = response.getResults();
         long numFound = results.getNumFound();
 
-        // Since we are modifying the results collection, we need to iterate over its copy.
-        for (SolrDocument result : new ArrayList<SolrDocument>(results)) {
+        List<SolrDocument> checkedResults = new ArrayList<>(results.size());
+        List<DocumentReference> resultDocumentReferences = new ArrayList<>(results.size());
+        for (SolrDocument result : results) {
             try {
-                DocumentReference resultDocumentReference = this.solrDocumentReferenceResolver.resolve(result);
+                resultDocumentReferences.add(this.solrDocumentReferenceResolver.resolve(result));
+                checkedResults.add(result);
+            } catch (Exception e) {
+                this.logger.warn("Skipping bad result: {}", result, e);
+            }
+        }
 
-                if (!isAllowed(resultDocumentReference, usersToCheck)) {
+        // Check all the results at once
+        BitSet allowed = isAllowed(resultDocumentReferences, usersToCheck);
 
-                    // Remove the current incompatible result.
-                    results.remove(result);
+        for (int i = allowed.nextClearBit(0); i < checkedResults.size(); i = allowed.nextClearBit(i + 1)) {
+            // Remove the current incompatible result.
+            results.remove(checkedResults.get(i));
 
-                    // Decrement the number of results.
-                    numFound--;
+            // Decrement the number of results.
+            numFound--;
 
-                    // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
-                    // Sorting based on score might be a not so expensive option.
+            // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
+            // Sorting based on score might be a not so expensive option.
 
-                    // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
-                }
-            } catch (Exception e) {
-                this.logger.warn("Skipping bad result: {}", result, e);
-            }
+            // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
         }
 
         // Update the new number of results, excluding the filtered ones.
@@ -266,14 +271,24 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         results.setNumFound(numFound);
     }
 
-    protected boolean isAllowed(DocumentReference resultDocumentReference, List<DocumentReference> usersToCheck)
+    /**
+     * @param resultDocumentReferences the references of the documents to check
+     * @param usersToCheck the users which should all be allowed to view the documents
+     * @return the indexes of the documents which all the passed users are allowed to view
+     * @since 12.10
+     */
+    protected BitSet isAllowed(List<DocumentReference> resultDocumentReferences, List<DocumentReference> usersToCheck)
     {
+        BitSet allowed = new BitSet(resultDocumentReferences.size());
+        allowed.set(0, resultDocumentReferences.size());
+
         for (DocumentReference user : usersToCheck) {
-            if (!this.authorization.hasAccess(Right.VIEW, user, resultDocumentReference)) {
-                return false;
+            if (allowed.isEmpty()) {
+                break;
             }
+            allowed.and(this.authorization.hasAccessOnEach(Right.VIEW, user, resultDocumentReferences));
         }
 
-        return true;
+        return allowed;
     }
 }
@@ -173,6 +173,8 @@ public void filterResponse() throws Exception
         currentDocument.setContentAuthorReference(currentAuthorReference);
         this.oldCore.getXWikiContext().setDoc(currentDocument);
 
+        when(authorizationManager.hasAccessOnEach(any(), any(), any())).thenCallRealMethod();
+
         DocumentReference aliceReference = new DocumentReference("wiki", "Users", "Alice");
         when(authorizationManager.hasAccess(Right.VIEW, currentAuthorReference, aliceReference)).thenReturn(true);
         SolrDocument alice = new SolrDocument();
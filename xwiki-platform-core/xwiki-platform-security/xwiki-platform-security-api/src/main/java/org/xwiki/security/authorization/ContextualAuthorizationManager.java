@@ -19,8 +19,12 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.BitSet;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of current user in the current context. It replaces
@@ -80,4 +84,27 @@
      * @return {@code true} if the user has the specified right on the entity, {@code false} otherwise
      */
     boolean hasAccess(Right right, EntityReference entityReference);
+
+    /**
+     * Verifies if access identified by {@code right} on each of the passed entities would be allowed in the current
+     * context. This is equivalent to calling {@link #hasAccess(Right, EntityReference)} for each entity but
+     * implementations can share the work needed for entities located in the same part of the hierarchy.
+     *
+     * @param right the right to check
+     * @param entityReferences the entities on which to check the right
+     * @return the indexes (in the passed list) of the entities on which the access is allowed
+     * @since 12.10
+     */
+    @Unstable
+    default BitSet hasAccessOnEach(Right right, List<? extends EntityReference> entityReferences)
+    {
+        BitSet result = new BitSet(entityReferences.size());
+        for (int i = 0; i < entityReferences.size(); ++i) {
+            if (hasAccess(right, entityReferences.get(i))) {
+                result.set(i);
+            }
+        }
+
+        return result;
+    }
 }
@@ -20,8 +20,11 @@
 package org.xwiki.security.authorization;
 
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -125,6 +128,60 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public BitSet hasAccessOnEach(Right right, DocumentReference userReference,
+        List<? extends EntityReference> entityReferences)
+    {
+        BitSet result = new BitSet(entityReferences.size());
+
+        if (isSuperAdmin(userReference)) {
+            result.set(0, entityReferences.size());
+
+            return result;
+        }
+
+        if (right == null || right == Right.ILLEGAL || (!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
+            || (userReference == null && xwikiBridge.needsAuthentication(right))) {
+            return result;
+        }
+
+        UserSecurityReference user = securityReferenceFactory.newUserReference(userReference);
+
+        // Share the work between entities located in the same part of the hierarchy (and between duplicates)
+        Map<EntityReference, Boolean> knownAccess = new HashMap<>();
+        Map<SecurityReference, SecurityRuleEntry> knownRuleEntries = new HashMap<>();
+        Map<SecurityReference, SecurityAccess> knownAccessEntries = new HashMap<>();
+
+        for (int i = 0; i < entityReferences.size(); ++i) {
+            EntityReference entityReference = entityReferences.get(i);
+
+            Boolean access = knownAccess.get(entityReference);
+            if (access == null) {
+                try {
+                    SecurityAccess securityAccess =
+                        getAccess(user, securityReferenceFactory.newEntityReference(entityReference),
+                            knownRuleEntries, knownAccessEntries);
+                    access = securityAccess.get(right) == RuleState.ALLOW;
+
+                    logAccess(securityAccess.get(right), userReference, entityReference, right, "bulk access inquiry",
+                        true);
+                } catch (Exception e) {
+                    this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                        (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+                        (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+                    access = false;
+                }
+                knownAccess.put(entityReference, access);
+            }
+
+            if (access) {
+                result.set(i);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -259,6 +316,54 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
         return access;
     }
 
+    /**
+     * Obtain the access for the user on the given entity and load it into the cache if unavailable, reusing what was
+     * already found for other entities of the same bulk check.
+     *
+     * @param user The user identity.
+     * @param entity The entity.  May be of type DOCUMENT, WIKI, or SPACE.
+     * @param knownRuleEntries the rule entries already found in the cache during this bulk check
+     * @param knownAccessEntries the access already found in the cache during this bulk check, indexed by the
+     *            reference of the entity holding the rules
+     * @return the cached access entry.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityRuleEntry> knownRuleEntries,
+        Map<SecurityReference, SecurityAccess> knownAccessEntries) throws AuthorizationException
+    {
+        for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
+            if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
+                // Skip search on entity types that will obviously have empty/useless list of rules.
+                continue;
+            }
+            SecurityRuleEntry entry = knownRuleEntries.get(ref);
+            if (entry == null) {
+                entry = securityCache.get(ref);
+                if (entry == null) {
+                    // Loading the entity also loads all its missing ancestors, which will benefit the next entities
+                    return securityCacheLoader.load(user, entity).getAccess();
+                }
+                knownRuleEntries.put(ref, entry);
+            }
+            if (!entry.isEmpty()) {
+                SecurityAccess access = knownAccessEntries.get(ref);
+                if (access == null) {
+                    SecurityAccessEntry accessEntry = securityCache.get(user, ref);
+                    if (accessEntry == null) {
+                        return securityCacheLoader.load(user, entity).getAccess();
+                    }
+                    access = accessEntry.getAccess();
+                    knownAccessEntries.put(ref, access);
+                }
+
+                return access;
+            }
+        }
+
+        return securityCacheLoader.load(user, entity).getAccess();
+    }
+
     /**
      * Log access conclusion.
      * @param access The ALLOW or DENY state
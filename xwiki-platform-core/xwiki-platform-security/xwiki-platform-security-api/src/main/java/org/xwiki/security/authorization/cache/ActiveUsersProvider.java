@@ -0,0 +1,46 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.cache;
+
+import java.util.Collection;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Provide the most recently active users, whose access entries are worth loading in the security cache before they
+ * are needed.
+ * <p>
+ * This component is optional: nothing is preloaded for specific users when no implementation is installed.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Role
+@Unstable
+public interface ActiveUsersProvider
+{
+    /**
+     * @param maxUsers the maximum number of users to return
+     * @return the most recently active users, the most recent first
+     */
+    Collection<DocumentReference> getActiveUsers(int maxUsers);
+}
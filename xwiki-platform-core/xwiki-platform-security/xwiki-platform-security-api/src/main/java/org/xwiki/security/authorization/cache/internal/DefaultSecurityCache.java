@@ -27,6 +27,7 @@
 import java.util.HashSet;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.inject.Inject;
@@ -56,6 +57,10 @@
 
 /**
  * Default implementation of the security cache.
+ * <p>
+ * Modifications of the cache (insertions and invalidations) are serialized but reads never wait for them: an entry is
+ * flagged as invalidated (along with all its descendants) before being removed so that a concurrent read either get
+ * the entry as it was before the modification started or miss it, never an entry which depends on a removed parent.
  *
  * @version $Id$
  * @since 4.0M2
@@ -74,14 +79,8 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private Logger logger;
 
-    /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
-
-    /** Fair read lock. */
-    private final Lock readLock = readWriteLock.readLock();
-
-    /** Fair write lock. */
-    private final Lock writeLock = readWriteLock.writeLock();
+    /** Lock used to serialize the modifications of the cache, reads don't need it. */
+    private final Lock writeLock = new ReentrantLock();
 
     private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock(true);
 
@@ -136,12 +135,13 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
-         * Parents of this cached entry.
+         * Parents of this cached entry. The collection is never modified once assigned so that it can be safely
+         * explored without lock.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
          * Children of this cached entry.
@@ -153,6 +153,11 @@ private class SecurityCacheEntry implements DisposableCacheValue
          */
         private boolean disposed;
 
+        /**
+         * True if this entry (or one of its ancestors) is being removed, it should not be returned anymore.
+         */
+        private volatile boolean invalidated;
+
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
          * 
@@ -282,7 +287,7 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
             this.entry = entry;
             int parentSize = groups.size() + ((parentReference == null) ? 0 : 1);
             if (parentSize > 0) {
-                this.parents = new ArrayList<>(parentSize);
+                Collection<SecurityCacheEntry> newParents = new ArrayList<>(parentSize);
                 if (parentReference != null) {
                     SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
                     if (parent == null) {
@@ -291,10 +296,11 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
                                 + " is no longer available in the cache.",
                             parentReference, entry, groups));
                     }
-                    this.parents.add(parent);
+                    newParents.add(parent);
                     parent.addChild(this);
                 }
-                addParentGroups(groups, parentReference);
+                addParentGroups(newParents, groups, parentReference);
+                this.parents = newParents;
                 logNewEntry();
             } else {
                 this.parents = null;
@@ -305,11 +311,13 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
         /**
          * Add provided groups as parent of this entry, excluding the main parent reference.
          *
+         * @param newParents the parents being prepared for this entry
          * @param groups the list of groups to add.
          * @param parentReference the main parent reference to exclude.
          * @throws ParentEntryEvictedException if the parents required are no more available in the cache.
          */
-        private void addParentGroups(Collection<GroupSecurityReference> groups, SecurityReference parentReference)
+        private void addParentGroups(Collection<SecurityCacheEntry> newParents,
+            Collection<GroupSecurityReference> groups, SecurityReference parentReference)
             throws ParentEntryEvictedException
         {
             for (GroupSecurityReference group : groups) {
@@ -323,7 +331,7 @@ private void addParentGroups(Collection<GroupSecurityReference> groups, Security
                     throw new ParentEntryEvictedException(String
                         .format("The parent with reference [%s] is no longer available in the cache", parentReference));
                 }
-                this.parents.add(parent);
+                newParents.add(parent);
                 parent.addChild(this);
             }
         }
@@ -341,15 +349,18 @@ boolean updateParentGroups(Collection<GroupSecurityReference> groups) throws Par
             }
 
             if (groups != null && !groups.isEmpty()) {
+                // Prepare the new parents before publishing them since they might be read concurrently
+                Collection<SecurityCacheEntry> newParents;
                 if (this.parents == null) {
-                    this.parents = new ArrayList<>(groups.size());
-                    addParentGroups(groups, null);
+                    newParents = new ArrayList<>(groups.size());
+                    addParentGroups(newParents, groups, null);
                 } else {
                     SecurityCacheEntry parent = this.parents.iterator().next();
-                    this.parents = new ArrayList<>(groups.size() + 1);
-                    this.parents.add(parent);
-                    addParentGroups(groups, parent.entry.getReference());
+                    newParents = new ArrayList<>(groups.size() + 1);
+                    newParents.add(parent);
+                    addParentGroups(newParents, groups, parent.entry.getReference());
                 }
+                this.parents = newParents;
             }
 
             return true;
@@ -406,12 +417,42 @@ String getKey()
         public void dispose()
         {
             if (!disposed) {
+                // Make sure concurrent reads stop returning this entry and its descendants before starting to remove
+                // them from the cache
+                invalidate();
+
                 disposed = true;
                 disconnectFromParents();
                 disposeChildren();
             }
         }
 
+        /**
+         * Flag this entry and all its descendants as invalidated.
+         */
+        private void invalidate()
+        {
+            Deque<SecurityCacheEntry> entriesToInvalidate = new ArrayDeque<>();
+            entriesToInvalidate.add(this);
+            while (!entriesToInvalidate.isEmpty()) {
+                SecurityCacheEntry entryToInvalidate = entriesToInvalidate.pop();
+                if (!entryToInvalidate.invalidated) {
+                    entryToInvalidate.invalidated = true;
+                    if (entryToInvalidate.children != null) {
+                        entriesToInvalidate.addAll(entryToInvalidate.children);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return true if this entry can be returned by the cache
+         */
+        boolean isValid()
+        {
+            return !this.invalidated;
+        }
+
         protected void disconnectFromParents()
         {
             if (parents != null) {
@@ -562,18 +603,24 @@ private String getEntryKey(SecurityAccessEntry entry)
         return getEntryKey(entry.getUserReference(), entry.getReference());
     }
 
+    /**
+     * @param key the key of the entry
+     * @return the valid security cache entry corresponding to the given key, null if none is available in the cache.
+     */
+    private SecurityCacheEntry getValidEntry(String key)
+    {
+        SecurityCacheEntry entry = cache.get(key);
+
+        return entry != null && entry.isValid() ? entry : null;
+    }
+
     /**
      * @param reference the reference requested.
      * @return a security cache entry corresponding to given reference, null if none is available in the cache.
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getValidEntry(getEntryKey(reference));
     }
 
     /**
@@ -584,12 +631,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getValidEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -600,12 +642,7 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
-        readLock.lock();
-        try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
-        } finally {
-            readLock.unlock();
-        }
+        return getValidEntry(getShadowEntryKey(userReference, wiki));
     }
 
     /**
@@ -627,7 +664,7 @@ private boolean isAlreadyInserted(String key, SecurityEntry entry) throws Confli
     private boolean isAlreadyInserted(String key, SecurityEntry entry, Collection<GroupSecurityReference> groups)
         throws ConflictingInsertionException, ParentEntryEvictedException
     {
-        SecurityCacheEntry oldEntry = cache.get(key);
+        SecurityCacheEntry oldEntry = getValidEntry(key);
         if (oldEntry != null) {
             if (!oldEntry.getEntry().equals(entry)) {
                 // Another thread has inserted an entry which is different from this entry!
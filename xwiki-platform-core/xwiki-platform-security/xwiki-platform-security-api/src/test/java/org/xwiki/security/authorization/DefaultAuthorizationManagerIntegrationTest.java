@@ -21,8 +21,11 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -680,6 +683,46 @@ public void testGroupAccess() throws Exception
             getXDoc("docAllowGroupB", "any space"));
     }
 
+    @Test
+    public void testHasAccessOnEach() throws Exception
+    {
+        initialiseWikiMock("inheritancePolicyForLocalWikiAccess");
+
+        // Edit requires authentication, view does not
+        when(xWikiBridge.needsAuthentication(EDIT)).thenReturn(true);
+
+        // Documents located in several wikis, sharing some ancestors, with duplicates
+        List<EntityReference> entities = Arrays.asList(getDoc("any document", "any space", "wikiAllowA"),
+            getDoc("docDenyA", "spaceAllowA", "wikiDenyA"), getDoc("any document", "any space", "wikiDenyA"),
+            getDoc("any document", "spaceAllowA", "wikiDenyA"), getDoc("docAllowA", "any space", "wikiDenyA"),
+            getDoc("any document", "spaceDenyA", "wikiAllowNoAdminA"),
+            getDoc("docAllowA", "spaceDenyA", "wikiAllowNoAdminA"), getDoc("any document", "any space", "wikiAllowA"),
+            getDoc("any document", "spaceAllowANoAdmin", "wikiDenyA"),
+            getDoc("docDenyA", "spaceAllowA", "wikiDenyA"));
+
+        List<DocumentReference> users = Arrays.asList(getUser("userA", "wikiAllowA"), getUser("userA", "wikiDenyA"),
+            getUser("userA", "wikiAllowNoAdminA"), getXUser("a user without any access rule"), null, SUPERADMIN);
+
+        for (DocumentReference user : users) {
+            for (Right right : Arrays.asList(VIEW, EDIT, ADMIN, PROGRAM, ILLEGAL)) {
+                // Start with the bulk check to also cover the cache misses
+                BitSet bulkAccess = authorizationManager.hasAccessOnEach(right, user, entities);
+
+                for (int i = 0; i < entities.size(); ++i) {
+                    Assert.assertEquals(
+                        String.format("[%s] on [%s] for [%s]", right, getEntityReadableName(entities.get(i)),
+                            getUserReadableName(user)),
+                        authorizationManager.hasAccess(right, user, entities.get(i)), bulkAccess.get(i));
+                }
+                Assert.assertTrue(bulkAccess.length() <= entities.size());
+            }
+        }
+
+        // Guest users can view but not edit
+        Assert.assertFalse(authorizationManager.hasAccessOnEach(VIEW, null, entities).isEmpty());
+        Assert.assertTrue(authorizationManager.hasAccessOnEach(EDIT, null, entities).isEmpty());
+    }
+
     @Test
     public void testCheckAccess() throws Exception
     {
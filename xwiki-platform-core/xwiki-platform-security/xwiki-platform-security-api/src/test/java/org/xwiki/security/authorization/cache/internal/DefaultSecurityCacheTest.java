@@ -26,6 +26,14 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -862,4 +870,92 @@ public boolean keepAccess(SecurityAccessEntry entry)
             }
         });
     }
+
+    @Test
+    public void testConcurrentInvalidationAndLookups() throws Exception
+    {
+        final int generations = 500;
+
+        // The user and its parents are never invalidated
+        AddRuleEntry(mockSecurityRuleEntry(wikiRef));
+        AddRuleEntry(mockSecurityRuleEntry(xwikiSpace));
+        AddRuleEntry(mockSecurityRuleEntry(userRef));
+
+        // Prepare all the versions of the space, document and access entries (mocking is not thread safe)
+        final Map<SecurityEntry, Integer> generationByEntry = new ConcurrentHashMap<>();
+        final List<SecurityEntry[]> entries = new ArrayList<>();
+        for (int i = 0; i < generations; ++i) {
+            SecurityEntry[] generationEntries = new SecurityEntry[] { mockSecurityRuleEntry(spaceRef),
+                mockSecurityRuleEntry(docRef), mockSecurityAccessEntry(docRef, userRef) };
+            for (SecurityEntry entry : generationEntries) {
+                generationByEntry.put(entry, i);
+            }
+            entries.add(generationEntries);
+        }
+
+        securityCache.add((SecurityRuleEntry) entries.get(0)[0]);
+        securityCache.add((SecurityRuleEntry) entries.get(0)[1]);
+        securityCache.add((SecurityAccessEntry) entries.get(0)[2]);
+
+        // The last generation fully inserted in the cache
+        final AtomicInteger currentGeneration = new AtomicInteger();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                readers.add(executor.submit(() -> {
+                    while (!stop.get() && failure.get() == null) {
+                        int minGeneration = currentGeneration.get();
+
+                        // An entry replaced before the lookup started should never be returned
+                        SecurityRuleEntry rules = securityCache.get(docRef);
+                        if (rules != null && generationByEntry.get(rules) < minGeneration) {
+                            failure.set("Stale rule entry of generation " + generationByEntry.get(rules)
+                                + " returned after generation " + minGeneration);
+                        }
+                        SecurityAccessEntry access = securityCache.get(userRef, docRef);
+                        if (access != null && generationByEntry.get(access) < minGeneration) {
+                            failure.set("Stale access entry of generation " + generationByEntry.get(access)
+                                + " returned after generation " + minGeneration);
+                        }
+                    }
+                }));
+            }
+
+            Future<?> invalidator = executor.submit(() -> {
+                try {
+                    for (int i = 1; i < generations && failure.get() == null; ++i) {
+                        // Invalidate the space and everything below it
+                        securityCache.remove(spaceRef);
+
+                        securityCache.add((SecurityRuleEntry) entries.get(i)[0]);
+                        securityCache.add((SecurityRuleEntry) entries.get(i)[1]);
+                        securityCache.add((SecurityAccessEntry) entries.get(i)[2]);
+
+                        currentGeneration.set(i);
+                    }
+                } catch (Exception e) {
+                    failure.set("Failed to update the cache: " + e);
+                } finally {
+                    stop.set(true);
+                }
+            });
+
+            invalidator.get(60, TimeUnit.SECONDS);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(failure.get(), nullValue());
+
+        // The cache is consistent once the invalidations are over
+        assertThat(securityCache.get(docRef), sameInstance(entries.get(generations - 1)[1]));
+        assertThat(securityCache.get(userRef, docRef), sameInstance(entries.get(generations - 1)[2]));
+    }
 }
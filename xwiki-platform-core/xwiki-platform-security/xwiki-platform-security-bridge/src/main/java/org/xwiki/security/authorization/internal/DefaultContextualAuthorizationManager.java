@@ -19,8 +19,11 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -122,6 +125,26 @@ private boolean hasAccess(Right right, DocumentReference user, EntityReference e
         return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
     }
 
+    @Override
+    public BitSet hasAccessOnEach(Right right, List<? extends EntityReference> entityReferences)
+    {
+        if (CONTENT_AUTHOR_RIGHTS.contains(right)) {
+            // The user to check depends on each entity
+            return ContextualAuthorizationManager.super.hasAccessOnEach(right, entityReferences);
+        }
+
+        if (!checkPreAccess(right)) {
+            return new BitSet(entityReferences.size());
+        }
+
+        List<EntityReference> fullReferences = new ArrayList<>(entityReferences.size());
+        for (EntityReference entityReference : entityReferences) {
+            fullReferences.add(getFullReference(entityReference));
+        }
+
+        return this.authorizationManager.hasAccessOnEach(right, getCurrentUser(right, null), fullReferences);
+    }
+
     private EntityReference getFullReference(EntityReference reference)
     {
         return reference != null ? this.resolver.resolve(reference, reference.getType()) : null;
@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.security.internal.AbstractSecurityConfiguration;
+
+/**
+ * Configuration of the security cache preloading performed at startup.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component(roles = SecurityCachePreloadConfiguration.class)
+@Singleton
+public class SecurityCachePreloadConfiguration extends AbstractSecurityConfiguration
+{
+    /** Prefix for preload configuration keys. */
+    private static final String PRELOAD = SECURITY + ".authorization.preload";
+
+    private static final String ENABLED = PRELOAD + ".enabled";
+
+    private static final String WIKIS = PRELOAD + ".wikis";
+
+    private static final String USERS = PRELOAD + ".users";
+
+    private static final String DELAY = PRELOAD + ".delay";
+
+    private static final int DEFAULT_USERS = 100;
+
+    private static final long DEFAULT_DELAY = 10;
+
+    /** Obtain configuration from the xwiki.properties file. */
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    /**
+     * @return true if the security cache should be preloaded in the background at startup
+     */
+    public boolean isEnabled()
+    {
+        return this.configuration.getProperty(ENABLED, false);
+    }
+
+    /**
+     * @return the identifiers of the wikis for which to preload the security rules of all the spaces, the main wiki
+     *         if empty
+     */
+    public List<String> getWikis()
+    {
+        return this.configuration.getProperty(WIKIS, List.class, Collections.emptyList());
+    }
+
+    /**
+     * @return the maximum number of most recently active users for which to preload the access entries
+     */
+    public int getUsers()
+    {
+        return this.configuration.getProperty(USERS, DEFAULT_USERS);
+    }
+
+    /**
+     * @return the time to wait (in milliseconds) between two loads, to not compete too much with the requests
+     */
+    public long getDelay()
+    {
+        return this.configuration.getProperty(DELAY, DEFAULT_DELAY);
+    }
+}
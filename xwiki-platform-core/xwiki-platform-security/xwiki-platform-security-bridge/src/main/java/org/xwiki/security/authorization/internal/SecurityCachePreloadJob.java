@@ -0,0 +1,249 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.Request;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.authorization.AuthorizationException;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.security.authorization.cache.ActiveUsersProvider;
+import org.xwiki.security.authorization.cache.SecurityCache;
+import org.xwiki.security.authorization.cache.SecurityCacheLoader;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+/**
+ * Preload the security cache in the background: first the security rules of all the spaces of the configured wikis,
+ * then the access of the most recently active users (when an {@link ActiveUsersProvider} is installed) to the same
+ * entities.
+ * <p>
+ * Entities already in the cache are skipped, and the job waits for the configured delay between two loads so that it
+ * doesn't compete too much with the actual requests.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component
+@Named(SecurityCachePreloadJob.JOBTYPE)
+public class SecurityCachePreloadJob extends AbstractJob<Request, JobStatus>
+{
+    /**
+     * The type of the job.
+     */
+    public static final String JOBTYPE = "security.cache.preload";
+
+    /**
+     * The identifier of the job.
+     */
+    public static final List<String> JOBID = Arrays.asList("security", "cache", "preload");
+
+    @Inject
+    private SecurityCachePreloadConfiguration configuration;
+
+    @Inject
+    private AuthorizationManager authorizationManager;
+
+    @Inject
+    private SecurityCache securityCache;
+
+    @Inject
+    private SecurityCacheLoader securityCacheLoader;
+
+    @Inject
+    private SecurityReferenceFactory securityReferenceFactory;
+
+    @Inject
+    private XWikiBridge xwikiBridge;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private SpaceReferenceResolver<String> spaceResolver;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        List<EntityReference> entities = getEntities();
+        Collection<DocumentReference> users = getActiveUsers();
+
+        this.logger.info("Preloading the security cache for [{}] entities and [{}] users", entities.size(),
+            users.size());
+
+        this.progressManager.pushLevelProgress(users.size() + 1, this);
+
+        try {
+            this.progressManager.startStep(this);
+            if (!preload(getRulesLoader(), entities)) {
+                return;
+            }
+            this.progressManager.endStep(this);
+
+            for (DocumentReference user : users) {
+                this.progressManager.startStep(this);
+                if (!preload(entity -> this.authorizationManager.hasAccess(Right.VIEW, user, entity), entities)) {
+                    return;
+                }
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+
+        this.logger.info("Security cache preloading finished");
+    }
+
+    private Consumer<EntityReference> getRulesLoader()
+    {
+        if (!this.xwikiBridge.needsAuthentication(Right.VIEW)) {
+            // Loading the guest access also loads the security rules of the entities and their parents
+            return entity -> this.authorizationManager.hasAccess(Right.VIEW, null, entity);
+        }
+
+        // The guest access is denied without looking at the rules when the wiki requires authentication so the rules
+        // have to be loaded directly (which also loads the guest access entry, but that's cheap)
+        return entity -> {
+            SecurityReference reference = this.securityReferenceFactory.newEntityReference(entity);
+
+            if (this.securityCache.get(reference) == null) {
+                try {
+                    this.securityCacheLoader.load(this.securityReferenceFactory.newUserReference(null), reference);
+                } catch (AuthorizationException e) {
+                    this.logger.warn("Failed to load the security rules of [{}]: {}", entity,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        };
+    }
+
+    private boolean preload(Consumer<EntityReference> loader, List<EntityReference> entities)
+    {
+        long delay = this.configuration.getDelay();
+
+        for (EntityReference entity : entities) {
+            // Load the entry in the cache if it's not already there
+            loader.accept(entity);
+
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    this.logger.warn("The security cache preloading was interrupted");
+
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private List<EntityReference> getEntities()
+    {
+        List<EntityReference> entities = new ArrayList<>();
+
+        for (String wiki : getWikis()) {
+            WikiReference wikiReference = new WikiReference(wiki);
+            entities.add(wikiReference);
+
+            try {
+                Query query = this.queryManager.createQuery("select space.reference from XWikiSpace as space "
+                    + "order by space.reference", Query.HQL);
+                query.setWiki(wiki);
+
+                for (Object space : query.execute()) {
+                    entities.add(this.spaceResolver.resolve((String) space, wikiReference));
+                }
+            } catch (QueryException e) {
+                this.logger.warn("Failed to get the spaces of wiki [{}]", wiki, e);
+            }
+        }
+
+        return entities;
+    }
+
+    private List<String> getWikis()
+    {
+        List<String> wikis = this.configuration.getWikis();
+
+        if (wikis.isEmpty()) {
+            wikis = Arrays.asList(this.wikiDescriptorManager.getMainWikiId());
+        }
+
+        return wikis;
+    }
+
+    private Collection<DocumentReference> getActiveUsers()
+    {
+        int maxUsers = this.configuration.getUsers();
+
+        // The active users provider is optional
+        if (maxUsers > 0 && this.componentManager.hasComponent(ActiveUsersProvider.class)) {
+            try {
+                return this.componentManager.<ActiveUsersProvider>getInstance(ActiveUsersProvider.class)
+                    .getActiveUsers(maxUsers);
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to get the active users provider: {}", ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        return Collections.emptySet();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.SpaceReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+import org.xwiki.security.authorization.cache.ActiveUsersProvider;
+import org.xwiki.security.authorization.cache.SecurityCache;
+import org.xwiki.security.authorization.cache.SecurityCacheLoader;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link SecurityCachePreloadJob}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class SecurityCachePreloadJobTest
+{
+    private static final WikiReference WIKI = new WikiReference("xwiki");
+
+    private static final SpaceReference SPACE = new SpaceReference("Space", WIKI);
+
+    private static final DocumentReference ALICE = new DocumentReference("xwiki", "XWiki", "Alice");
+
+    private static final DocumentReference BOB = new DocumentReference("xwiki", "XWiki", "Bob");
+
+    @InjectMockComponents
+    private SecurityCachePreloadJob job;
+
+    @MockComponent
+    private SecurityCachePreloadConfiguration configuration;
+
+    @MockComponent
+    private AuthorizationManager authorizationManager;
+
+    @MockComponent
+    private SecurityCache securityCache;
+
+    @MockComponent
+    private SecurityCacheLoader securityCacheLoader;
+
+    @MockComponent
+    private SecurityReferenceFactory securityReferenceFactory;
+
+    @MockComponent
+    private XWikiBridge xwikiBridge;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    private SpaceReferenceResolver<String> spaceResolver;
+
+    @MockComponent
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @MockComponent
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.configuration.getWikis()).thenReturn(Collections.emptyList());
+        when(this.configuration.getUsers()).thenReturn(10);
+        when(this.wikiDescriptorManager.getMainWikiId()).thenReturn(WIKI.getName());
+
+        Query query = mock(Query.class);
+        when(this.queryManager.createQuery(anyString(), any())).thenReturn(query);
+        when(query.execute()).thenReturn(Arrays.asList("Space"));
+        when(this.spaceResolver.resolve("Space", WIKI)).thenReturn(SPACE);
+    }
+
+    private ActiveUsersProvider mockActiveUsersProvider() throws Exception
+    {
+        ActiveUsersProvider activeUsersProvider = mock(ActiveUsersProvider.class);
+        when(this.componentManager.hasComponent(ActiveUsersProvider.class)).thenReturn(true);
+        when(this.componentManager.getInstance(ActiveUsersProvider.class)).thenReturn(activeUsersProvider);
+
+        return activeUsersProvider;
+    }
+
+    @Test
+    void runWithoutActiveUsersProvider() throws Exception
+    {
+        this.job.runInternal();
+
+        verify(this.authorizationManager).hasAccess(Right.VIEW, null, WIKI);
+        verify(this.authorizationManager).hasAccess(Right.VIEW, null, SPACE);
+        verify(this.authorizationManager, times(2)).hasAccess(any(), any(), any(EntityReference.class));
+    }
+
+    @Test
+    void runWithActiveUsers() throws Exception
+    {
+        ActiveUsersProvider activeUsersProvider = mockActiveUsersProvider();
+        when(activeUsersProvider.getActiveUsers(10)).thenReturn(Arrays.asList(ALICE, BOB));
+
+        this.job.runInternal();
+
+        verify(this.authorizationManager).hasAccess(Right.VIEW, null, WIKI);
+        verify(this.authorizationManager).hasAccess(Right.VIEW, null, SPACE);
+        verify(this.authorizationManager).hasAccess(Right.VIEW, ALICE, WIKI);
+        verify(this.authorizationManager).hasAccess(Right.VIEW, ALICE, SPACE);
+        verify(this.authorizationManager).hasAccess(Right.VIEW, BOB, WIKI);
+        verify(this.authorizationManager).hasAccess(Right.VIEW, BOB, SPACE);
+        verify(this.authorizationManager, times(6)).hasAccess(any(), any(), any(EntityReference.class));
+    }
+
+    @Test
+    void runWithoutUsers() throws Exception
+    {
+        ActiveUsersProvider activeUsersProvider = mockActiveUsersProvider();
+        when(this.configuration.getUsers()).thenReturn(0);
+
+        this.job.runInternal();
+
+        verify(activeUsersProvider, never()).getActiveUsers(anyInt());
+        verify(this.authorizationManager, times(2)).hasAccess(any(), isNull(), any(EntityReference.class));
+    }
+
+    @Test
+    void runWhenAuthenticationIsRequired() throws Exception
+    {
+        when(this.xwikiBridge.needsAuthentication(Right.VIEW)).thenReturn(true);
+
+        ActiveUsersProvider activeUsersProvider = mockActiveUsersProvider();
+        when(activeUsersProvider.getActiveUsers(10)).thenReturn(Arrays.asList(ALICE));
+
+        UserSecurityReference guest = mock(UserSecurityReference.class);
+        when(this.securityReferenceFactory.newUserReference(null)).thenReturn(guest);
+        SecurityReference wikiReference = mock(SecurityReference.class, "wiki");
+        when(this.securityReferenceFactory.newEntityReference(WIKI)).thenReturn(wikiReference);
+        SecurityReference spaceReference = mock(SecurityReference.class, "space");
+        when(this.securityReferenceFactory.newEntityReference(SPACE)).thenReturn(spaceReference);
+        // The rules of the wiki are already in the cache
+        when(this.securityCache.get(wikiReference)).thenReturn(mock(SecurityRuleEntry.class));
+
+        this.job.runInternal();
+
+        // The guest access is useless so the rules are loaded without access check
+        verify(this.authorizationManager, never()).hasAccess(any(), isNull(), any(EntityReference.class));
+        verify(this.securityCacheLoader, never()).load(guest, wikiReference);
+        verify(this.securityCacheLoader).load(guest, spaceReference);
+
+        verify(this.authorizationManager).hasAccess(Right.VIEW, ALICE, WIKI);
+        verify(this.authorizationManager).hasAccess(Right.VIEW, ALICE, SPACE);
+    }
+}
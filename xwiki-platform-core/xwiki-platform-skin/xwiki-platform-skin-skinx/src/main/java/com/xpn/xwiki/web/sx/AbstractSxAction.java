@@ -24,7 +24,9 @@
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.skinx.internal.SkinExtensionContentCache;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -58,14 +60,22 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
+    /** What http header parameter is used to identify the content of the response. */
+    private static final String ETAG_HEADER = "ETag";
+
+    /** What http header parameter is used by the browser to send the entity tags of its cached content. */
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    /** The encoding of the content compressed with GZIP. */
+    private static final String GZIP_ENCODING = "gzip";
 
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
     private DebugConfiguration debugConfiguration;
 
+    private SkinExtensionContentCache contentCache;
+
     /** @return the logging object of the concrete subclass. */
     protected abstract Logger getLogger();
 
@@ -106,23 +116,142 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = compress(extensionContent, sxType.getCompressor(), context);
+        CachedSxContent content = getContent(extensionContent, sxType, context);
+
+        if (content.getSourceMap() != null) {
+            sendSourceMap(content.getSourceMap(), context);
+        }
+
+        boolean gzip = content.getContent(true) != null;
+        if (gzip) {
+            // The response depends on the encodings accepted by the browser
+            response.setHeader("Vary", "Accept-Encoding");
+            gzip = acceptsGzip(context.getRequest().getHeader("Accept-Encoding"));
+        }
+
+        if (cachePolicy != CachePolicy.FORBID) {
+            String eTag = content.getETag(gzip);
+            response.setHeader(ETAG_HEADER, eTag);
+
+            // The browser already has this content
+            if (matches(context.getRequest().getHeader(IF_NONE_MATCH_HEADER), eTag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+                return;
+            }
+        }
+
+        if (gzip) {
+            response.setHeader("Content-Encoding", GZIP_ENCODING);
         }
 
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            byte[] bytes = content.getContent(gzip);
+            response.setContentLength(bytes.length);
+            response.getOutputStream().write(bytes);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
     }
 
+    private CachedSxContent getContent(String extensionContent, Extension sxType, XWikiContext context)
+    {
+        boolean minify = getDebugConfiguration().isMinify();
+
+        // Minifying is expensive so we reuse the result for the same content
+        String key = getContentCache().getKey(extensionContent, sxType, minify);
+        CachedSxContent content = getContentCache().get(key);
+        if (content == null) {
+            if (minify) {
+                SxCompressor compressor = sxType.getCompressor();
+                content = new CachedSxContent(compress(extensionContent, compressor, context),
+                    compressor.getSourceMap());
+            } else {
+                content = new CachedSxContent(extensionContent, null);
+            }
+
+            getContentCache().set(key, content);
+        }
+
+        return content;
+    }
+
+    /**
+     * @param acceptEncoding the value of the Accept-Encoding header
+     * @return {@code true} if the browser accepts the content compressed with GZIP (taking into account the quality
+     *         values, {@code gzip;q=0} meaning that GZIP is not acceptable)
+     */
+    private boolean acceptsGzip(String acceptEncoding)
+    {
+        float gzipQuality = -1;
+        float anyQuality = -1;
+
+        if (acceptEncoding != null) {
+            for (String value : StringUtils.split(acceptEncoding, ',')) {
+                String[] parts = StringUtils.split(value, ';');
+                if (parts.length > 0) {
+                    String coding = parts[0].trim();
+                    if (GZIP_ENCODING.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                        gzipQuality = Math.max(gzipQuality, getQuality(parts));
+                    } else if ("*".equals(coding)) {
+                        anyQuality = getQuality(parts);
+                    }
+                }
+            }
+        }
+
+        // An explicit gzip coding takes precedence over the wildcard
+        return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+    }
+
+    private float getQuality(String[] parts)
+    {
+        for (int i = 1; i < parts.length; ++i) {
+            String parameter = parts[i].trim();
+            if (StringUtils.startsWithIgnoreCase(parameter, "q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // Consider an invalid quality as not acceptable
+                    return 0;
+                }
+            }
+        }
+
+        // The default quality
+        return 1;
+    }
+
+    private boolean matches(String ifNoneMatch, String eTag)
+    {
+        if (ifNoneMatch != null) {
+            for (String value : StringUtils.split(ifNoneMatch, ',')) {
+                if (eTag.equals(StringUtils.removeStart(value.trim(), "W/"))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     protected String compress(String source, SxCompressor compressor, XWikiContext context)
     {
         return compressor.compress(source);
     }
 
+    /**
+     * Send the source map generated when minifying the extension content (which can come from the cache).
+     *
+     * @param sourceMap the source map
+     * @param context the XWiki context
+     * @since 12.10
+     */
+    protected void sendSourceMap(String sourceMap, XWikiContext context)
+    {
+        // Nothing to do by default
+    }
+
     @Override
     public String render(XWikiContext context) throws XWikiException
     {
@@ -156,6 +285,15 @@ protected DebugConfiguration getDebugConfiguration()
         return this.debugConfiguration;
     }
 
+    private SkinExtensionContentCache getContentCache()
+    {
+        if (this.contentCache == null) {
+            this.contentCache = Utils.getComponent(SkinExtensionContentCache.class);
+        }
+
+        return this.contentCache;
+    }
+
     /**
      * Get the type of extension, depends on the type of action.
      *
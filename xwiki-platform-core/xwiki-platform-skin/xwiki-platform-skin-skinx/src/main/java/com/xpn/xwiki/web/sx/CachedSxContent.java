@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * The content of a skin extension response, ready to be sent: encoded, compressed with GZIP and identified by a strong
+ * entity tag.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+public class CachedSxContent
+{
+    private final byte[] content;
+
+    private final byte[] gzipContent;
+
+    private final String hash;
+
+    private final String sourceMap;
+
+    /**
+     * @param content the (minified) content of the skin extension
+     * @param sourceMap the source map generated when minifying the content, {@code null} if none
+     */
+    public CachedSxContent(String content, String sourceMap)
+    {
+        this.content = content.getBytes(StandardCharsets.UTF_8);
+        this.hash = DigestUtils.sha256Hex(this.content);
+        this.sourceMap = sourceMap;
+
+        byte[] gzip = gzip(this.content);
+        // Not worth it for very small contents
+        this.gzipContent = gzip.length < this.content.length ? gzip : null;
+    }
+
+    private static byte[] gzip(byte[] bytes)
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(stream)) {
+            gzipStream.write(bytes);
+        } catch (IOException e) {
+            // Cannot happen with a memory stream
+            throw new UncheckedIOException(e);
+        }
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @param gzip {@code true} for the content compressed with GZIP
+     * @return the content to send, {@code null} if it's not available compressed with GZIP
+     */
+    public byte[] getContent(boolean gzip)
+    {
+        return gzip ? this.gzipContent : this.content;
+    }
+
+    /**
+     * @param gzip {@code true} for the entity tag of the content compressed with GZIP
+     * @return the strong entity tag (including the quotes) of the content
+     */
+    public String getETag(boolean gzip)
+    {
+        return '"' + this.hash + (gzip ? "-gzip\"" : "\"");
+    }
+
+    /**
+     * @return the source map generated when minifying the content, {@code null} if none
+     */
+    public String getSourceMap()
+    {
+        return this.sourceMap;
+    }
+}
@@ -160,9 +160,7 @@ private String getSourceMap(Compiler compiler) throws IOException
             }
         }
 
-        /**
-         * @return the last source map that was created by this compressor
-         */
+        @Override
         public String getSourceMap()
         {
             return this.sourceMap;
@@ -34,4 +34,13 @@
      * @return A compressed version of the input source
      */
     String compress(String source);
+
+    /**
+     * @return the source map generated by the last call to {@link #compress(String)}, {@code null} if none
+     * @since 12.10
+     */
+    default String getSourceMap()
+    {
+        return null;
+    }
 }
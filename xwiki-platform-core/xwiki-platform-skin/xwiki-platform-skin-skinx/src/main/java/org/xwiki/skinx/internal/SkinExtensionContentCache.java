@@ -0,0 +1,103 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+
+import com.xpn.xwiki.web.sx.CachedSxContent;
+import com.xpn.xwiki.web.sx.Extension;
+
+/**
+ * Cache the responses of the skin extension actions to not minify and compress again the same content.
+ * <p>
+ * The entries are addressed by a digest of the content produced by the extension source (which can depend on the
+ * Velocity context, the color theme, etc.) and not by the document version.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component(roles = SkinExtensionContentCache.class)
+@Singleton
+public class SkinExtensionContentCache implements Initializable, Disposable
+{
+    private static final char KEY_SEPARATOR = '/';
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private Cache<CachedSxContent> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration("skinx.content", 500));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the skin extension content cache", e);
+        }
+    }
+
+    /**
+     * @param content the content produced by the extension source
+     * @param extension the type of extension
+     * @param minify {@code true} if the content is minified
+     * @return the cache key
+     */
+    public String getKey(String content, Extension extension, boolean minify)
+    {
+        return extension.getClass().getName() + KEY_SEPARATOR + minify + KEY_SEPARATOR
+            + DigestUtils.sha256Hex(content);
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(String, Extension, boolean)}
+     * @return the cached content, {@code null} if it's not in the cache
+     */
+    public CachedSxContent get(String key)
+    {
+        return this.cache.get(key);
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(String, Extension, boolean)}
+     * @param content the content to cache
+     */
+    public void set(String key, CachedSxContent content)
+    {
+        this.cache.set(key, content);
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.cache.dispose();
+    }
+}
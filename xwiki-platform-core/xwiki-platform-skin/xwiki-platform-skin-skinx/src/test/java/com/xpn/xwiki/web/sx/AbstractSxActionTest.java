@@ -0,0 +1,271 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.skinx.internal.SkinExtensionContentCache;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList(SkinExtensionContentCache.class)
+class AbstractSxActionTest
+{
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    private static final String ETAG = "ETag";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private DebugConfiguration debugConfiguration;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    private final Map<String, CachedSxContent> cachedContents = new HashMap<>();
+
+    private Extension extension = new CssExtension();
+
+    private final List<String> sentSourceMaps = new ArrayList<>();
+
+    private AbstractSxAction action = new AbstractSxAction()
+    {
+        @Override
+        protected Logger getLogger()
+        {
+            return LoggerFactory.getLogger(AbstractSxActionTest.class);
+        }
+
+        @Override
+        public Extension getExtensionType()
+        {
+            return extension;
+        }
+
+        @Override
+        protected void sendSourceMap(String sourceMap, XWikiContext context)
+        {
+            sentSourceMaps.add(sourceMap);
+        }
+    };
+
+    private SxSource source = mock(SxSource.class);
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        Utils.setComponentManager(this.componentManager);
+
+        Cache<CachedSxContent> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> this.cachedContents.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.cachedContents.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(cache).set(anyString(), any());
+        when(this.cacheManager.<CachedSxContent>createNewCache(any())).thenReturn(cache);
+
+        // Big enough to be compressed
+        when(this.source.getContent()).thenReturn(StringUtils.repeat(".someClass { color: red; }\n", 100));
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.DEFAULT);
+    }
+
+    @AfterEach
+    void afterEach()
+    {
+        Utils.setComponentManager(null);
+    }
+
+    private XWikiResponse render(String acceptEncoding, String ifNoneMatch) throws Exception
+    {
+        XWikiRequest request = mock(XWikiRequest.class);
+        when(request.getHeader(ACCEPT_ENCODING)).thenReturn(acceptEncoding);
+        when(request.getHeader(IF_NONE_MATCH)).thenReturn(ifNoneMatch);
+
+        XWikiResponse response = mock(XWikiResponse.class);
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+
+        XWikiContext context = mock(XWikiContext.class);
+        when(context.getRequest()).thenReturn(request);
+        when(context.getResponse()).thenReturn(response);
+
+        this.action.renderExtension(this.source, this.action.getExtensionType(), context);
+
+        return response;
+    }
+
+    private String getETag(XWikiResponse response)
+    {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq(ETAG), captor.capture());
+
+        return captor.getValue();
+    }
+
+    @Test
+    void notModifiedWhenIfNoneMatchMatches() throws Exception
+    {
+        String eTag = getETag(render(null, null));
+
+        XWikiResponse response = render(null, "\"other\", " + eTag);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).getOutputStream();
+        assertEquals(eTag, getETag(response));
+    }
+
+    @Test
+    void contentWhenIfNoneMatchDoesNotMatch() throws Exception
+    {
+        XWikiResponse response = render(null, "\"other\"");
+
+        verify(response, never()).setStatus(anyInt());
+        verify(response.getOutputStream()).write(any(byte[].class));
+    }
+
+    @Test
+    void distinctETagForGzip() throws Exception
+    {
+        XWikiResponse plainResponse = render(null, null);
+        XWikiResponse gzipResponse = render("deflate, gzip;q=0.8", null);
+
+        verify(plainResponse, never()).setHeader(eq(CONTENT_ENCODING), any());
+        verify(gzipResponse).setHeader(CONTENT_ENCODING, "gzip");
+        verify(gzipResponse).setHeader("Vary", ACCEPT_ENCODING);
+
+        String plainETag = getETag(plainResponse);
+        String gzipETag = getETag(gzipResponse);
+        assertNotEquals(plainETag, gzipETag);
+        assertTrue(gzipETag.endsWith("-gzip\""));
+
+        // The uncompressed entity tag doesn't match the compressed content
+        verify(render("gzip", plainETag), never()).setStatus(anyInt());
+        verify(render("gzip", gzipETag)).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    void noGzipWhenNotAcceptable() throws Exception
+    {
+        String plainETag = getETag(render(null, null));
+
+        for (String acceptEncoding : new String[] { "gzip;q=0", "deflate, GZIP; q=0.0", "*;q=0", "identity",
+            "*, gzip;q=0", "gzip;q=invalid" }) {
+            XWikiResponse response = render(acceptEncoding, null);
+
+            verify(response, never()).setHeader(eq(CONTENT_ENCODING), any());
+            assertEquals(plainETag, getETag(response), acceptEncoding);
+        }
+    }
+
+    @Test
+    void gzipWhenAcceptedByWildcard() throws Exception
+    {
+        verify(render("*", null)).setHeader(CONTENT_ENCODING, "gzip");
+        verify(render("x-gzip", null)).setHeader(CONTENT_ENCODING, "gzip");
+    }
+
+    @Test
+    void noETagWhenCacheIsForbidden() throws Exception
+    {
+        String eTag = getETag(render(null, null));
+
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.FORBID);
+
+        XWikiResponse response = render(null, eTag);
+
+        verify(response, never()).setHeader(eq(ETAG), any());
+        verify(response, never()).setStatus(anyInt());
+        verify(response.getOutputStream()).write(any(byte[].class));
+    }
+
+    @Test
+    void minifyOnceForTheSameContent() throws Exception
+    {
+        when(this.debugConfiguration.isMinify()).thenReturn(true);
+
+        SxCompressor compressor = mock(SxCompressor.class);
+        when(compressor.compress(anyString())).thenReturn(".someClass{color:red}");
+        when(compressor.getSourceMap()).thenReturn("sourceMap");
+        this.extension = mock(Extension.class);
+        when(this.extension.getCompressor()).thenReturn(compressor);
+
+        XWikiResponse firstResponse = render(null, null);
+        XWikiResponse secondResponse = render(null, null);
+
+        // The second request is served from the cache
+        verify(compressor, times(1)).compress(anyString());
+        assertEquals(1, this.cachedContents.size());
+        assertEquals(getETag(firstResponse), getETag(secondResponse));
+        verify(secondResponse.getOutputStream()).write(".someClass{color:red}".getBytes(StandardCharsets.UTF_8));
+
+        // Including the source map generated when minifying the content
+        assertEquals(Arrays.asList("sourceMap", "sourceMap"), this.sentSourceMaps);
+    }
+}
@@ -63,6 +63,9 @@ public class DefaultGroupManager implements GroupManager
     @Inject
     private MembersCache membersCache;
 
+    @Inject
+    private GroupMembershipIndex membershipIndex;
+
     @Inject
     private WikiDescriptorManager wikis;
 
@@ -261,8 +264,20 @@ private Collection<DocumentReference> getGroups(DocumentReference reference, Obj
 
         Set<DocumentReference> groups = new LinkedHashSet<>();
 
+        boolean indexEnabled = this.membershipIndex.isEnabled();
+
         WikiReference currrentWiki = xcontext.getWikiReference();
         for (String wiki : searchWikis) {
+            if (indexEnabled) {
+                Collection<DocumentReference> indexedGroups = this.membershipIndex.getGroups(reference, wiki);
+
+                if (indexedGroups != null) {
+                    groups.addAll(indexedGroups);
+
+                    continue;
+                }
+            }
+
             try {
                 xcontext.setWikiId(wiki);
 
@@ -381,6 +396,14 @@ private Collection<DocumentReference> getMembers(DocumentReference reference, bo
 
     private Collection<DocumentReference> getMembers(DocumentReference reference) throws GroupException
     {
+        if (this.membershipIndex.isEnabled()) {
+            Collection<DocumentReference> indexedMembers = this.membershipIndex.getMembers(reference);
+
+            if (indexedMembers != null) {
+                return new LinkedHashSet<>(indexedMembers);
+            }
+        }
+
         XWikiContext xcontext = this.xcontextProvider.get();
 
         XWikiGroupService groupService = getXWikiGroupService(xcontext);
@@ -68,6 +68,9 @@ public class GroupCacheInvalidationListener extends AbstractEventListener
     @Inject
     private MembersCache membersCache;
 
+    @Inject
+    private GroupMembershipIndex membershipIndex;
+
     /**
      * Default constructor.
      */
@@ -84,6 +87,7 @@ public void onEvent(Event event, Object source, Object data)
     {
         if (event instanceof WikiDeletedEvent) {
             WikiReference wikiReference = new WikiReference(((WikiDeletedEvent) event).getWikiId());
+            this.membershipIndex.remove(wikiReference.getName());
             this.groupsCache.cleanCache(wikiReference.getName());
             this.membersCache.cleanCache(wikiReference.getName());
         } else {
@@ -91,6 +95,9 @@ public void onEvent(Event event, Object source, Object data)
 
             DocumentReference documentReference = document.getDocumentReference();
 
+            // Update the memberships index before cleaning the caches so that they are not filled with outdated data
+            this.membershipIndex.update(document);
+
             // Remove the entity from the cache
             this.groupsCache.cleanCache(documentReference);
             this.membersCache.cleanCache(documentReference);
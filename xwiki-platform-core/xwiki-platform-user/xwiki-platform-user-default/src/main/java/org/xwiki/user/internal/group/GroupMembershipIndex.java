@@ -0,0 +1,335 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.internal.reference.EntityReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.user.api.XWikiRightService;
+
+/**
+ * Keep in memory the direct group memberships of each wiki so that the group manager does not have to query the
+ * database for each level of nested groups.
+ * <p>
+ * The memberships of a wiki are loaded with a single query the first time they are needed and then maintained
+ * incrementally when {@code XWiki.XWikiGroups} objects are modified.
+ *
+ * @version $Id$
+ * @since 12.10
+ */
+@Component(roles = GroupMembershipIndex.class)
+@Singleton
+public class GroupMembershipIndex
+{
+    /**
+     * The reference of the class holding the members of a group.
+     */
+    public static final LocalDocumentReference GROUPS_CLASS = new LocalDocumentReference("XWiki", "XWikiGroups");
+
+    /**
+     * The name of the property holding the member.
+     */
+    public static final String MEMBER_PROPERTY = "member";
+
+    private static final String ENABLED = "user.group.membershipIndex";
+
+    private static final String QUERY = "select obj.name, prop.value from BaseObject as obj, StringProperty as prop "
+        + "where obj.className = :className and obj.id = prop.id.id and prop.id.name = :propertyName";
+
+    private static final LocalDocumentReference ALLGROUP =
+        new LocalDocumentReference("XWiki", XWikiRightService.ALLGROUP_GROUP);
+
+    /**
+     * The direct memberships of a wiki.
+     *
+     * @version $Id$
+     */
+    private static final class WikiMemberships
+    {
+        /**
+         * The direct members of each group. The sets are never modified once put in the map.
+         */
+        private final ConcurrentMap<DocumentReference, Set<DocumentReference>> members = new ConcurrentHashMap<>();
+
+        /**
+         * The groups in which each entity is a direct member. The sets are never modified once put in the map.
+         */
+        private final ConcurrentMap<DocumentReference, Set<DocumentReference>> groups = new ConcurrentHashMap<>();
+
+        synchronized void setMembers(DocumentReference group, Set<DocumentReference> newMembers)
+        {
+            Set<DocumentReference> previousMembers = newMembers.isEmpty() ? this.members.remove(group)
+                : this.members.put(group, Collections.unmodifiableSet(newMembers));
+
+            if (previousMembers != null) {
+                for (DocumentReference member : previousMembers) {
+                    if (!newMembers.contains(member)) {
+                        this.groups.computeIfPresent(member, (key, value) -> {
+                            Set<DocumentReference> memberGroups = new LinkedHashSet<>(value);
+                            memberGroups.remove(group);
+                            return memberGroups.isEmpty() ? null : Collections.unmodifiableSet(memberGroups);
+                        });
+                    }
+                }
+            }
+
+            for (DocumentReference member : newMembers) {
+                if (previousMembers == null || !previousMembers.contains(member)) {
+                    this.groups.compute(member, (key, value) -> {
+                        Set<DocumentReference> memberGroups =
+                            value != null ? new LinkedHashSet<>(value) : new LinkedHashSet<>();
+                        memberGroups.add(group);
+                        return Collections.unmodifiableSet(memberGroups);
+                    });
+                }
+            }
+        }
+    }
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private EntityReferenceFactory referenceFactory;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    private final ConcurrentMap<String, WikiMemberships> wikis = new ConcurrentHashMap<>();
+
+    /**
+     * The number of modifications received for each wiki, used to detect modifications happening while a wiki is
+     * being loaded. Protected by the index monitor.
+     */
+    private final Map<String, Long> versions = new HashMap<>();
+
+    /**
+     * @return true if the index should be used
+     */
+    public boolean isEnabled()
+    {
+        return this.configuration.getProperty(ENABLED, true);
+    }
+
+    /**
+     * @param member the reference of the user or group
+     * @param wiki the wiki where to search for groups
+     * @return the groups of the passed wiki in which the passed entity is a direct member, null if the memberships of
+     *         the wiki could not be loaded
+     */
+    public Collection<DocumentReference> getGroups(DocumentReference member, String wiki)
+    {
+        WikiMemberships memberships = getWikiMemberships(wiki);
+
+        if (memberships == null) {
+            return null;
+        }
+
+        Set<DocumentReference> groups = new LinkedHashSet<>(memberships.groups.getOrDefault(member,
+            Collections.emptySet()));
+
+        // If the 'XWiki.XWikiAllGroup' is implicit, all users/groups of the wiki except XWikiGuest and XWikiAllGroup
+        // itself are part of it.
+        if (member.getWikiReference().getName().equals(wiki) && !XWikiRightService.isGuest(member)
+            && this.xcontextProvider.get().getWiki().isAllGroupImplicit()) {
+            DocumentReference allGroup = new DocumentReference(ALLGROUP, new WikiReference(wiki));
+
+            if (!allGroup.equals(member)) {
+                groups.add(allGroup);
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * @param group the reference of the group
+     * @return the direct members of the passed group, null if the memberships of the group wiki could not be loaded
+     */
+    public Collection<DocumentReference> getMembers(DocumentReference group)
+    {
+        WikiMemberships memberships = getWikiMemberships(group.getWikiReference().getName());
+
+        if (memberships == null) {
+            return null;
+        }
+
+        return memberships.members.getOrDefault(group, Collections.emptySet());
+    }
+
+    /**
+     * Update the members of the passed group document (if its wiki is already loaded).
+     *
+     * @param document the group document
+     */
+    public void update(XWikiDocument document)
+    {
+        DocumentReference group = this.referenceFactory.getReference(document.getDocumentReference());
+        String wiki = group.getWikiReference().getName();
+
+        synchronized (this) {
+            this.versions.merge(wiki, 1L, Long::sum);
+
+            WikiMemberships memberships = this.wikis.get(wiki);
+            if (memberships != null) {
+                memberships.setMembers(group, getMembers(document, group));
+            }
+        }
+    }
+
+    private Set<DocumentReference> getMembers(XWikiDocument document, DocumentReference group)
+    {
+        Set<DocumentReference> members = new LinkedHashSet<>();
+
+        List<BaseObject> xobjects = document.getXObjects(GROUPS_CLASS);
+        for (BaseObject xobject : xobjects) {
+            if (xobject != null) {
+                DocumentReference member = resolveMember(xobject.getStringValue(MEMBER_PROPERTY), group);
+                if (member != null) {
+                    members.add(member);
+                }
+            }
+        }
+
+        return members;
+    }
+
+    /**
+     * Forget everything about the passed wiki.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public void remove(String wiki)
+    {
+        synchronized (this) {
+            this.versions.merge(wiki, 1L, Long::sum);
+
+            this.wikis.remove(wiki);
+        }
+    }
+
+    private WikiMemberships getWikiMemberships(String wiki)
+    {
+        WikiMemberships memberships = this.wikis.get(wiki);
+
+        if (memberships == null) {
+            long version;
+            synchronized (this) {
+                version = this.versions.getOrDefault(wiki, 0L);
+            }
+
+            try {
+                memberships = load(wiki);
+            } catch (QueryException e) {
+                this.logger.error("Failed to load the group memberships of wiki [{}]", wiki, e);
+
+                return null;
+            }
+
+            synchronized (this) {
+                // Don't remember a result which might have missed a modification
+                if (this.versions.getOrDefault(wiki, 0L) == version) {
+                    WikiMemberships currentMemberships = this.wikis.putIfAbsent(wiki, memberships);
+                    if (currentMemberships != null) {
+                        memberships = currentMemberships;
+                    }
+                }
+            }
+        }
+
+        return memberships;
+    }
+
+    private WikiMemberships load(String wiki) throws QueryException
+    {
+        Query query = this.queryManager.createQuery(QUERY, Query.HQL);
+        query.setWiki(wiki);
+        query.bindValue("className", "XWiki.XWikiGroups");
+        query.bindValue("propertyName", MEMBER_PROPERTY);
+
+        List<Object[]> results = query.execute();
+
+        WikiReference wikiReference = new WikiReference(wiki);
+        Map<DocumentReference, Set<DocumentReference>> members = new HashMap<>();
+        for (Object[] result : results) {
+            DocumentReference group =
+                this.referenceFactory.getReference(this.resolver.resolve((String) result[0], wikiReference));
+            DocumentReference member = resolveMember((String) result[1], group);
+
+            if (member != null) {
+                members.computeIfAbsent(group, key -> new LinkedHashSet<>()).add(member);
+            }
+        }
+
+        WikiMemberships memberships = new WikiMemberships();
+        for (Map.Entry<DocumentReference, Set<DocumentReference>> entry : members.entrySet()) {
+            memberships.setMembers(entry.getKey(), entry.getValue());
+        }
+
+        return memberships;
+    }
+
+    private DocumentReference resolveMember(String memberString, DocumentReference group)
+    {
+        if (StringUtils.isEmpty(memberString)) {
+            return null;
+        }
+
+        return this.referenceFactory.getReference(this.resolver.resolve(memberString, group));
+    }
+}
@@ -87,6 +87,9 @@
     @MockComponent
     private CacheManager cacheManager;
 
+    @MockComponent
+    private GroupMembershipIndex membershipIndex;
+
     @InjectMockComponents
     private DefaultGroupManager manager;
 
@@ -294,6 +297,33 @@ public void getGroupsWhenCrossReference() throws GroupException
         assertGetGroups(GLOBAL_GROUP_2, GLOBAL_GROUP_1, WikiTarget.ENTITY, true);
     }
 
+    @Test
+    public void getGroupsWithIndex() throws GroupException
+    {
+        when(this.membershipIndex.isEnabled()).thenReturn(true);
+        when(this.membershipIndex.getGroups(GLOBAL_USER_1, "xwiki")).thenReturn(Arrays.asList(GLOBAL_GROUP_1));
+        when(this.membershipIndex.getGroups(GLOBAL_GROUP_1, "xwiki")).thenReturn(Arrays.asList(GLOBAL_GROUP_2));
+        // The index of the wiki could not be loaded
+        when(this.membershipIndex.getGroups(any(), eq("wiki"))).thenReturn(null);
+        mockGroups("wiki", GLOBAL_USER_1, Arrays.asList(WIKI_GROUP_1));
+
+        assertGetGroups(GLOBAL_GROUP_1, GLOBAL_USER_1, "xwiki", false);
+        assertGetGroups(Arrays.asList(GLOBAL_GROUP_1, GLOBAL_GROUP_2), GLOBAL_USER_1, "xwiki", true);
+        assertGetGroups(WIKI_GROUP_1, GLOBAL_USER_1, "wiki", false);
+        assertGetGroups(Arrays.asList(GLOBAL_GROUP_1, GLOBAL_GROUP_2, WIKI_GROUP_1), GLOBAL_USER_1, null, true);
+    }
+
+    @Test
+    public void getMembersWithIndex() throws GroupException
+    {
+        when(this.membershipIndex.isEnabled()).thenReturn(true);
+        when(this.membershipIndex.getMembers(GLOBAL_GROUP_2)).thenReturn(Arrays.asList(GLOBAL_GROUP_1));
+        when(this.membershipIndex.getMembers(GLOBAL_GROUP_1)).thenReturn(Arrays.asList(GLOBAL_USER_1));
+
+        assertGetMembers(GLOBAL_GROUP_1, GLOBAL_GROUP_2, false);
+        assertGetMembers(Arrays.asList(GLOBAL_GROUP_1, GLOBAL_USER_1), GLOBAL_GROUP_2, true);
+    }
+
     @Test
     public void getMembersWhenNoMembers() throws GroupException
     {
@@ -0,0 +1,187 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupMembershipIndex}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+class GroupMembershipIndexTest
+{
+    private static final DocumentReference USER_1 = new DocumentReference("xwiki", "XWiki", "user1");
+
+    private static final DocumentReference USER_2 = new DocumentReference("xwiki", "XWiki", "user2");
+
+    private static final DocumentReference GROUP_1 = new DocumentReference("xwiki", "XWiki", "group1");
+
+    private static final DocumentReference GROUP_2 = new DocumentReference("xwiki", "XWiki", "group2");
+
+    private static final DocumentReference WIKI_GROUP = new DocumentReference("wiki", "XWiki", "group");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @InjectMockComponents
+    private GroupMembershipIndex index;
+
+    private Query xwikiQuery;
+
+    private Query wikiQuery;
+
+    @BeforeEach
+    void beforeEach() throws QueryException
+    {
+        this.xwikiQuery = mockQuery(new Object[] { "XWiki.group1", "XWiki.user1" },
+            new Object[] { "XWiki.group1", "" }, new Object[] { "XWiki.group2", "XWiki.group1" },
+            new Object[] { "XWiki.group2", "xwiki:XWiki.user2" });
+        this.wikiQuery = mockQuery(new Object[] { "XWiki.group", "xwiki:XWiki.user1" });
+
+        when(this.queryManager.createQuery(anyString(), any())).thenReturn(this.xwikiQuery, this.wikiQuery);
+    }
+
+    private Query mockQuery(Object[]... results) throws QueryException
+    {
+        Query query = mock(Query.class);
+        when(query.execute()).thenReturn(Arrays.asList(results));
+
+        return query;
+    }
+
+    @Test
+    void getGroupsAndMembers()
+    {
+        assertEquals(Collections.singleton(GROUP_1), new HashSet<>(this.index.getGroups(USER_1, "xwiki")));
+        assertEquals(Collections.singleton(GROUP_2), new HashSet<>(this.index.getGroups(USER_2, "xwiki")));
+        assertEquals(Collections.singleton(GROUP_2), new HashSet<>(this.index.getGroups(GROUP_1, "xwiki")));
+        assertEquals(Collections.emptySet(), new HashSet<>(this.index.getGroups(GROUP_2, "xwiki")));
+
+        assertEquals(Collections.singleton(USER_1), new HashSet<>(this.index.getMembers(GROUP_1)));
+        assertEquals(new HashSet<>(Arrays.asList(GROUP_1, USER_2)), new HashSet<>(this.index.getMembers(GROUP_2)));
+
+        assertEquals(Collections.singleton(WIKI_GROUP), new HashSet<>(this.index.getGroups(USER_1, "wiki")));
+        assertEquals(Collections.singleton(USER_1), new HashSet<>(this.index.getMembers(WIKI_GROUP)));
+
+        // Each wiki is loaded only once
+        verify(this.xwikiQuery).setWiki("xwiki");
+        verify(this.wikiQuery).setWiki("wiki");
+        verify(this.queryManager, times(2)).createQuery(anyString(), any());
+    }
+
+    @Test
+    void getGroupsWithImplicitAllGroup()
+    {
+        doReturn(true).when(this.oldcore.getSpyXWiki()).isAllGroupImplicit();
+
+        DocumentReference allGroup = new DocumentReference("xwiki", "XWiki", "XWikiAllGroup");
+
+        assertEquals(new HashSet<>(Arrays.asList(GROUP_1, allGroup)),
+            new HashSet<>(this.index.getGroups(USER_1, "xwiki")));
+        assertEquals(Collections.emptySet(), new HashSet<>(this.index.getGroups(allGroup, "xwiki")));
+        assertEquals(Collections.emptySet(),
+            new HashSet<>(this.index.getGroups(new DocumentReference("xwiki", "XWiki", "XWikiGuest"), "xwiki")));
+        assertEquals(Collections.singleton(WIKI_GROUP), new HashSet<>(this.index.getGroups(USER_1, "wiki")));
+    }
+
+    @Test
+    void update()
+    {
+        // Load the wiki
+        this.index.getGroups(USER_1, "xwiki");
+
+        XWikiDocument document = new XWikiDocument(GROUP_1);
+        BaseObject xobject = new BaseObject();
+        xobject.setXClassReference(GroupMembershipIndex.GROUPS_CLASS);
+        document.addXObject(xobject);
+        xobject.setStringValue(GroupMembershipIndex.MEMBER_PROPERTY, "XWiki.user2");
+
+        this.index.update(document);
+
+        assertEquals(Collections.singleton(USER_2), new HashSet<>(this.index.getMembers(GROUP_1)));
+        assertEquals(Collections.emptySet(), new HashSet<>(this.index.getGroups(USER_1, "xwiki")));
+        assertEquals(new HashSet<>(Arrays.asList(GROUP_1, GROUP_2)),
+            new HashSet<>(this.index.getGroups(USER_2, "xwiki")));
+
+        // Remove all the members
+        this.index.update(new XWikiDocument(GROUP_1));
+
+        assertEquals(Collections.emptySet(), new HashSet<>(this.index.getMembers(GROUP_1)));
+        assertEquals(Collections.singleton(GROUP_2), new HashSet<>(this.index.getGroups(USER_2, "xwiki")));
+    }
+
+    @Test
+    void remove() throws QueryException
+    {
+        this.index.getGroups(USER_1, "xwiki");
+
+        this.index.remove("xwiki");
+
+        when(this.queryManager.createQuery(anyString(), any())).thenReturn(this.xwikiQuery);
+
+        this.index.getGroups(USER_1, "xwiki");
+
+        verify(this.xwikiQuery, times(2)).execute();
+    }
+
+    @Test
+    void getGroupsWhenQueryFails() throws QueryException
+    {
+        when(this.queryManager.createQuery(anyString(), any())).thenReturn(this.xwikiQuery);
+        when(this.xwikiQuery.execute()).thenThrow(new QueryException("failed", null, null));
+
+        assertNull(this.index.getGroups(USER_1, "xwiki"));
+        assertNull(this.index.getMembers(GROUP_1));
+    }
+}